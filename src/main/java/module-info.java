@@ -6,8 +6,11 @@
  * Implements various freedesktop.org specifications.
  */
 module org.panteleyev.freedesktop {
+    requires java.xml;
+
     exports org.panteleyev.freedesktop;
     exports org.panteleyev.freedesktop.directory;
     exports org.panteleyev.freedesktop.menu;
     exports org.panteleyev.freedesktop.entry;
+    exports org.panteleyev.freedesktop.mime;
 }
@@ -51,5 +51,16 @@ public enum EnvironmentVariable {
      * Defines the base directory relative to which user-specific non-essential runtime files and other file objects
      * (such as sockets, named pipes, ...) should be stored.
      */
-    XDG_RUNTIME_DIR
+    XDG_RUNTIME_DIR,
+    /**
+     * Colon separated list of strings identifying the current desktop environment, for example
+     * <code>GNOME:GNOME-Classic</code>. Used to match <code>OnlyShowIn</code> and <code>NotShowIn</code> desktop
+     * entry keys and to select desktop-specific <code>mimeapps.list</code> files.
+     */
+    XDG_CURRENT_DESKTOP,
+    /**
+     * Prefix of the menu file names, for example <code>gnome-</code> selects <code>gnome-applications.menu</code>
+     * instead of <code>applications.menu</code>.
+     */
+    XDG_MENU_PREFIX
 }
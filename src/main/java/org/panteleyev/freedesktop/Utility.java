@@ -4,6 +4,9 @@
  */
 package org.panteleyev.freedesktop;
 
+import org.panteleyev.freedesktop.directory.XdgEnvironment;
+
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -34,4 +37,14 @@ public abstract class Utility {
     public static Optional<String> getExecutablePath() {
         return ProcessHandle.current().info().command();
     }
+
+    /**
+     * Returns identifiers of the current desktop environment from <code>$XDG_CURRENT_DESKTOP</code> in the order of
+     * preference.
+     *
+     * @return desktop identifiers, empty list if variable is not set
+     */
+    public static List<String> getCurrentDesktops() {
+        return XdgEnvironment.current().getCurrentDesktops();
+    }
 }
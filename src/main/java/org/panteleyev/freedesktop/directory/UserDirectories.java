@@ -0,0 +1,178 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.directory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Reads user directories from <code>user-dirs.dirs</code> file.
+ * <p>
+ * File is parsed on the first request and then only when its modification time or size changes, every other request
+ * costs a single stat call. Directories that are not defined, are relative or point to the home directory itself are
+ * not returned.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class UserDirectories {
+    /**
+     * Name of the user directories file in <code>$XDG_CONFIG_HOME</code>.
+     */
+    public static final String USER_DIRS_FILE = "user-dirs.dirs";
+
+    private static final String HOME_PREFIX = "$HOME";
+
+    private record Location(Path file, Path home) {
+    }
+
+    private record Snapshot(Location location, FileTime modified, long size, Map<UserDirectory, Path> directories) {
+    }
+
+    private final Supplier<Location> locationSupplier;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Creates user directories reader for the current {@link XdgEnvironment}.
+     */
+    public UserDirectories() {
+        this.locationSupplier = () -> {
+            var environment = XdgEnvironment.current();
+            return new Location(environment.getConfigHome().resolve(USER_DIRS_FILE), environment.getHome());
+        };
+    }
+
+    /**
+     * Creates user directories reader.
+     *
+     * @param file <code>user-dirs.dirs</code> file
+     * @param home home directory that replaces <code>$HOME</code>
+     */
+    public UserDirectories(Path file, Path home) {
+        var location = new Location(Objects.requireNonNull(file), Objects.requireNonNull(home));
+        this.locationSupplier = () -> location;
+    }
+
+    /**
+     * Returns user directory.
+     *
+     * @param directory user directory
+     * @return directory path, empty if not defined
+     */
+    public Optional<Path> get(UserDirectory directory) {
+        Objects.requireNonNull(directory);
+        return Optional.ofNullable(getAll().get(directory));
+    }
+
+    /**
+     * Returns all defined user directories.
+     *
+     * @return unmodifiable map of user directories
+     */
+    public Map<UserDirectory, Path> getAll() {
+        var location = locationSupplier.get();
+        var current = snapshot;
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(location.file(), BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            attributes = null;
+        } catch (IOException ex) {
+            return current != null && current.location().equals(location) ? current.directories() : Map.of();
+        }
+
+        var modified = attributes == null ? null : attributes.lastModifiedTime();
+        var size = attributes == null ? -1 : attributes.size();
+        if (current != null && current.location().equals(location) && Objects.equals(current.modified(), modified)
+                && current.size() == size)
+        {
+            return current.directories();
+        }
+
+        var directories = attributes == null ? Map.<UserDirectory, Path>of() : parse(location);
+        snapshot = new Snapshot(location, modified, size, directories);
+        return directories;
+    }
+
+    private static Map<UserDirectory, Path> parse(Location location) {
+        try {
+            var result = new EnumMap<UserDirectory, Path>(UserDirectory.class);
+            for (var line : Files.readAllLines(location.file(), StandardCharsets.UTF_8)) {
+                parseLine(line, location.home(), result);
+            }
+            return Collections.unmodifiableMap(result);
+        } catch (IOException ex) {
+            return Map.of();
+        }
+    }
+
+    /**
+     * Parses line of the form <code>XDG_DESKTOP_DIR="$HOME/Desktop"</code>. Value must be quoted and either start
+     * with <code>$HOME</code> or be an absolute path.
+     */
+    static void parseLine(String line, Path home, Map<UserDirectory, Path> result) {
+        var trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return;
+        }
+        var separator = trimmed.indexOf('=');
+        if (separator < 0) {
+            return;
+        }
+        var directory = UserDirectory.of(trimmed.substring(0, separator).trim());
+        if (directory.isEmpty()) {
+            return;
+        }
+        var value = unquote(trimmed.substring(separator + 1).trim());
+        if (value == null) {
+            return;
+        }
+
+        Path path;
+        try {
+            if (value.equals(HOME_PREFIX) || value.equals(HOME_PREFIX + "/")) {
+                // Directory is disabled
+                return;
+            } else if (value.startsWith(HOME_PREFIX + "/")) {
+                path = home.resolve(value.substring(HOME_PREFIX.length() + 1));
+            } else {
+                path = Path.of(value);
+            }
+        } catch (InvalidPathException ex) {
+            return;
+        }
+        path = path.normalize();
+        if (path.isAbsolute() && !path.equals(home.normalize())) {
+            result.put(directory.get(), path);
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return null;
+        }
+        var builder = new StringBuilder(value.length());
+        for (int i = 1; i < value.length() - 1; i++) {
+            var c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length() - 1) {
+                c = value.charAt(++i);
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
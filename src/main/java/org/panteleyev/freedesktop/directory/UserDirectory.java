@@ -0,0 +1,81 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.directory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Well-known user directories defined in <code>$XDG_CONFIG_HOME/user-dirs.dirs</code>.
+ * {@see https://www.freedesktop.org/wiki/Software/xdg-user-dirs/}
+ */
+public enum UserDirectory {
+    /**
+     * Desktop directory, <code>XDG_DESKTOP_DIR</code>.
+     */
+    DESKTOP,
+    /**
+     * Downloads directory, <code>XDG_DOWNLOAD_DIR</code>.
+     */
+    DOWNLOAD,
+    /**
+     * Templates directory, <code>XDG_TEMPLATES_DIR</code>.
+     */
+    TEMPLATES,
+    /**
+     * Public share directory, <code>XDG_PUBLICSHARE_DIR</code>.
+     */
+    PUBLICSHARE,
+    /**
+     * Documents directory, <code>XDG_DOCUMENTS_DIR</code>.
+     */
+    DOCUMENTS,
+    /**
+     * Music directory, <code>XDG_MUSIC_DIR</code>.
+     */
+    MUSIC,
+    /**
+     * Pictures directory, <code>XDG_PICTURES_DIR</code>.
+     */
+    PICTURES,
+    /**
+     * Videos directory, <code>XDG_VIDEOS_DIR</code>.
+     */
+    VIDEOS;
+
+    private static final Map<String, UserDirectory> BY_VARIABLE = new HashMap<>();
+
+    static {
+        for (var directory : values()) {
+            BY_VARIABLE.put(directory.variableName, directory);
+        }
+    }
+
+    private final String variableName;
+
+    UserDirectory() {
+        this.variableName = "XDG_" + name() + "_DIR";
+    }
+
+    /**
+     * Returns name of the variable in <code>user-dirs.dirs</code>, for example <code>XDG_DESKTOP_DIR</code>.
+     *
+     * @return variable name
+     */
+    public String getVariableName() {
+        return variableName;
+    }
+
+    /**
+     * Returns user directory by variable name.
+     *
+     * @param variableName variable name
+     * @return user directory
+     */
+    public static Optional<UserDirectory> of(String variableName) {
+        return Optional.ofNullable(BY_VARIABLE.get(variableName));
+    }
+}
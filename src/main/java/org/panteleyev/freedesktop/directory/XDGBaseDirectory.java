@@ -4,29 +4,22 @@
  */
 package org.panteleyev.freedesktop.directory;
 
-import org.panteleyev.freedesktop.EnvironmentVariable;
-
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
-
-import static java.lang.System.getProperty;
 
 /**
  * Implements
  * <a href="https://specifications.freedesktop.org/basedir-spec/basedir-spec-0.8.html/">XDG Base Directory Specification</a>.
+ * <p>
+ * Values are taken from {@link XdgEnvironment#current()}, environment variables are not read on every call.
  */
 public abstract class XDGBaseDirectory {
-    private XDGBaseDirectory() {
-    }
+    private static final XdgFileLocator LOCATOR = new XdgFileLocator();
+    private static final UserDirectories USER_DIRECTORIES = new UserDirectories();
 
-    private static Optional<String> getDirectoryLocation(EnvironmentVariable env) {
-        var value = System.getenv(env.name());
-        return value == null || value.isEmpty() ?
-                Optional.empty()
-                : Optional.of(value);
+    private XDGBaseDirectory() {
     }
 
     /**
@@ -37,9 +30,7 @@ public abstract class XDGBaseDirectory {
      * @return data files directory path
      */
     public static Path getDataHome() {
-        return getDirectoryLocation(EnvironmentVariable.XDG_DATA_HOME)
-                .map(Path::of)
-                .orElseGet(() -> Path.of(getProperty("user.home"), ".local", "share"));
+        return XdgEnvironment.current().getDataHome();
     }
 
     /**
@@ -50,9 +41,7 @@ public abstract class XDGBaseDirectory {
      * @return configuration files directory path
      */
     public static Path getConfigHome() {
-        return getDirectoryLocation(EnvironmentVariable.XDG_CONFIG_HOME)
-                .map(Path::of)
-                .orElseGet(() -> Path.of(getProperty("user.home"), ".config"));
+        return XdgEnvironment.current().getConfigHome();
     }
 
     /**
@@ -62,9 +51,7 @@ public abstract class XDGBaseDirectory {
      * @return state data directory path
      */
     public static Path getStateHome() {
-        return getDirectoryLocation(EnvironmentVariable.XDG_STATE_HOME)
-                .map(Path::of)
-                .orElseGet(() -> Path.of(getProperty("user.home"), ".local", "state"));
+        return XdgEnvironment.current().getStateHome();
     }
 
     /**
@@ -74,14 +61,14 @@ public abstract class XDGBaseDirectory {
      * <p>
      * If <code>$XDG_DATA_DIRS</code> is either not set or empty, a value equal to
      * <code>/usr/local/share/:/usr/share/</code> should be used.
+     * <p>
+     * Returned set is unmodifiable and iterates in preference order, relative paths and duplicates are removed. Use
+     * {@link XdgEnvironment#getDataDirs()} to get a list.
      *
-     * @return additional data files locations
+     * @return additional data files locations in preference order
      */
     public static Set<Path> getDataDirs() {
-        var env = getDirectoryLocation(EnvironmentVariable.XDG_DATA_DIRS).orElse("/usr/local/share/:/usr/share/");
-        return Arrays.stream(env.split(":"))
-                .map(Path::of)
-                .collect(Collectors.toSet());
+        return XdgEnvironment.current().getDataDirSet();
     }
 
     /**
@@ -91,14 +78,14 @@ public abstract class XDGBaseDirectory {
      * <p>
      * If <code>$XDG_CONFIG_DIRS</code> is either not set or empty, a value equal to <code>/etc/xdg</code> should be
      * used.
+     * <p>
+     * Returned set is unmodifiable and iterates in preference order, relative paths and duplicates are removed. Use
+     * {@link XdgEnvironment#getConfigDirs()} to get a list.
      *
-     * @return additional configuration files locations
+     * @return additional configuration files locations in preference order
      */
     public static Set<Path> getConfigDirs() {
-        var env = getDirectoryLocation(EnvironmentVariable.XDG_CONFIG_DIRS).orElse("/etc/xdg");
-        return Arrays.stream(env.split(":"))
-                .map(Path::of)
-                .collect(Collectors.toSet());
+        return XdgEnvironment.current().getConfigDirSet();
     }
 
     /**
@@ -109,9 +96,7 @@ public abstract class XDGBaseDirectory {
      * @return cache files directory path
      */
     public static Path getCacheHome() {
-        return getDirectoryLocation(EnvironmentVariable.XDG_CACHE_HOME)
-                .map(Path::of)
-                .orElseGet(() -> Path.of(getProperty("user.home"), ".cache"));
+        return XdgEnvironment.current().getCacheHome();
     }
 
     /**
@@ -121,8 +106,7 @@ public abstract class XDGBaseDirectory {
      * @return runtime directory path
      */
     public static Optional<Path> getRuntimeDir() {
-        return getDirectoryLocation(EnvironmentVariable.XDG_RUNTIME_DIR)
-                .map(Path::of);
+        return XdgEnvironment.current().getRuntimeDir();
     }
 
     /**
@@ -142,4 +126,72 @@ public abstract class XDGBaseDirectory {
     public static Path getUserDesktopEntryDirectory() {
         return Path.of(getDataHome().toString(), "applications");
     }
+
+    /**
+     * Returns preference-ordered list of directories to search for desktop entries, i.e.
+     * <code>$XDG_DATA_HOME/applications</code> followed by <code>applications</code> subdirectory of each
+     * <code>$XDG_DATA_DIRS</code> element. If the same desktop file ID exists in several directories the earlier one
+     * takes precedence.
+     *
+     * @return desktop entry directories
+     */
+    public static List<Path> getDesktopEntryDirectories() {
+        return XdgEnvironment.current().getDesktopEntryDirectories();
+    }
+
+    /**
+     * Returns preference-ordered list of directories to search for directory entries that describe menus, i.e.
+     * <code>$XDG_DATA_HOME/desktop-directories</code> followed by <code>desktop-directories</code> subdirectory of
+     * each <code>$XDG_DATA_DIRS</code> element.
+     *
+     * @return directory entry directories
+     */
+    public static List<Path> getDesktopDirectoryDirectories() {
+        return XdgEnvironment.current().getDesktopDirectoryDirectories();
+    }
+
+    /**
+     * Finds the most important configuration file searching <code>$XDG_CONFIG_HOME</code> and then
+     * <code>$XDG_CONFIG_DIRS</code>. Results are cached for a short time, see {@link XdgFileLocator}.
+     *
+     * @param path file path relative to configuration directories, for example <code>app/settings.conf</code>
+     * @return configuration file
+     */
+    public static Optional<Path> findConfigFile(String path) {
+        return LOCATOR.findConfigFile(path);
+    }
+
+    /**
+     * Finds the most important data file searching <code>$XDG_DATA_HOME</code> and then <code>$XDG_DATA_DIRS</code>.
+     * Results are cached for a short time, see {@link XdgFileLocator}.
+     *
+     * @param path file path relative to data directories
+     * @return data file
+     */
+    public static Optional<Path> findDataFile(String path) {
+        return LOCATOR.findDataFile(path);
+    }
+
+    /**
+     * Finds files matching glob pattern in the data subdirectory of <code>$XDG_DATA_HOME</code> and
+     * <code>$XDG_DATA_DIRS</code>. Results are cached for a short time, see {@link XdgFileLocator}.
+     *
+     * @param directory directory relative to data directories, for example <code>applications</code>
+     * @param glob      file name pattern, for example <code>*.desktop</code>
+     * @return data files in precedence order
+     */
+    public static List<Path> findAllDataFiles(String directory, String glob) {
+        return LOCATOR.findAllDataFiles(directory, glob);
+    }
+
+    /**
+     * Returns user directory defined in <code>$XDG_CONFIG_HOME/user-dirs.dirs</code>. File is parsed again only when
+     * it changes, see {@link UserDirectories}.
+     *
+     * @param directory user directory
+     * @return directory path, empty if not defined
+     */
+    public static Optional<Path> getUserDirectory(UserDirectory directory) {
+        return USER_DIRECTORIES.get(directory);
+    }
 }
@@ -0,0 +1,313 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.directory;
+
+import org.panteleyev.freedesktop.EnvironmentVariable;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable snapshot of XDG environment variables.
+ * <p>
+ * All variables are resolved once when snapshot is created: defaults are applied, lists are split, relative paths are
+ * ignored as required by the specification and duplicates are removed keeping the first, i.e. the most important,
+ * occurrence. Getters do not access the process environment and do not allocate.
+ * <p>
+ * {@link #current()} returns the snapshot of the process environment used by {@link XDGBaseDirectory} and the rest of
+ * the library. It can be replaced atomically with {@link #refresh()} or {@link #setCurrent(XdgEnvironment)}, for
+ * example to run with a synthetic environment built by {@link #of(Map, Path)}.
+ */
+public final class XdgEnvironment {
+    private static final String DEFAULT_DATA_DIRS = "/usr/local/share/:/usr/share/";
+    private static final String DEFAULT_CONFIG_DIRS = "/etc/xdg";
+    private static final String APPLICATIONS = "applications";
+    private static final String DESKTOP_DIRECTORIES = "desktop-directories";
+
+    private static final AtomicReference<XdgEnvironment> CURRENT = new AtomicReference<>();
+
+    private final Path home;
+    private final Path dataHome;
+    private final Path configHome;
+    private final Path stateHome;
+    private final Path cacheHome;
+    private final Path runtimeDir;
+    private final List<Path> dataDirs;
+    private final List<Path> configDirs;
+    private final Set<Path> dataDirSet;
+    private final Set<Path> configDirSet;
+    private final List<Path> desktopEntryDirectories;
+    private final List<Path> desktopDirectoryDirectories;
+    private final List<String> currentDesktops;
+    private final String menuPrefix;
+
+    private XdgEnvironment(Map<String, String> variables, Path home) {
+        this.home = home;
+        dataHome = getHome(variables, EnvironmentVariable.XDG_DATA_HOME, home.resolve(".local").resolve("share"));
+        configHome = getHome(variables, EnvironmentVariable.XDG_CONFIG_HOME, home.resolve(".config"));
+        stateHome = getHome(variables, EnvironmentVariable.XDG_STATE_HOME, home.resolve(".local").resolve("state"));
+        cacheHome = getHome(variables, EnvironmentVariable.XDG_CACHE_HOME, home.resolve(".cache"));
+        runtimeDir = toAbsolutePath(getValue(variables, EnvironmentVariable.XDG_RUNTIME_DIR));
+
+        dataDirs = getDirs(variables, EnvironmentVariable.XDG_DATA_DIRS, DEFAULT_DATA_DIRS);
+        configDirs = getDirs(variables, EnvironmentVariable.XDG_CONFIG_DIRS, DEFAULT_CONFIG_DIRS);
+        dataDirSet = Collections.unmodifiableSet(new LinkedHashSet<>(dataDirs));
+        configDirSet = Collections.unmodifiableSet(new LinkedHashSet<>(configDirs));
+
+        desktopEntryDirectories = getDataSubdirectories(APPLICATIONS);
+        desktopDirectoryDirectories = getDataSubdirectories(DESKTOP_DIRECTORIES);
+
+        var desktops = new LinkedHashSet<String>();
+        var desktopValue = getValue(variables, EnvironmentVariable.XDG_CURRENT_DESKTOP);
+        if (desktopValue != null) {
+            for (var desktop : desktopValue.split(":")) {
+                if (!desktop.isBlank()) {
+                    desktops.add(desktop.trim());
+                }
+            }
+        }
+        currentDesktops = List.copyOf(desktops);
+
+        var prefix = getValue(variables, EnvironmentVariable.XDG_MENU_PREFIX);
+        menuPrefix = prefix == null ? "" : prefix;
+    }
+
+    /**
+     * Creates snapshot from explicit variables.
+     *
+     * @param variables environment variables
+     * @param home      user home directory used to compute defaults
+     * @return environment snapshot
+     */
+    public static XdgEnvironment of(Map<String, String> variables, Path home) {
+        Objects.requireNonNull(variables);
+        Objects.requireNonNull(home);
+        return new XdgEnvironment(variables, home);
+    }
+
+    /**
+     * Creates snapshot of the process environment. Home directory is taken from <code>user.home</code> system
+     * property.
+     *
+     * @return environment snapshot
+     */
+    public static XdgEnvironment fromSystem() {
+        return new XdgEnvironment(System.getenv(), Path.of(System.getProperty("user.home")));
+    }
+
+    /**
+     * Returns current snapshot. The first call takes snapshot of the process environment.
+     *
+     * @return current snapshot
+     */
+    public static XdgEnvironment current() {
+        var environment = CURRENT.get();
+        if (environment == null) {
+            CURRENT.compareAndSet(null, fromSystem());
+            environment = CURRENT.get();
+        }
+        return environment;
+    }
+
+    /**
+     * Takes new snapshot of the process environment and makes it current.
+     *
+     * @return new current snapshot
+     */
+    public static XdgEnvironment refresh() {
+        var environment = fromSystem();
+        CURRENT.set(environment);
+        return environment;
+    }
+
+    /**
+     * Replaces current snapshot.
+     *
+     * @param environment new snapshot
+     */
+    public static void setCurrent(XdgEnvironment environment) {
+        CURRENT.set(Objects.requireNonNull(environment));
+    }
+
+    /**
+     * Returns user home directory.
+     *
+     * @return home directory
+     */
+    public Path getHome() {
+        return home;
+    }
+
+    /**
+     * Returns <code>$XDG_DATA_HOME</code> or its default <code>$HOME/.local/share</code>.
+     *
+     * @return data files directory path
+     */
+    public Path getDataHome() {
+        return dataHome;
+    }
+
+    /**
+     * Returns <code>$XDG_CONFIG_HOME</code> or its default <code>$HOME/.config</code>.
+     *
+     * @return configuration files directory path
+     */
+    public Path getConfigHome() {
+        return configHome;
+    }
+
+    /**
+     * Returns <code>$XDG_STATE_HOME</code> or its default <code>$HOME/.local/state</code>.
+     *
+     * @return state data directory path
+     */
+    public Path getStateHome() {
+        return stateHome;
+    }
+
+    /**
+     * Returns <code>$XDG_CACHE_HOME</code> or its default <code>$HOME/.cache</code>.
+     *
+     * @return cache files directory path
+     */
+    public Path getCacheHome() {
+        return cacheHome;
+    }
+
+    /**
+     * Returns <code>$XDG_RUNTIME_DIR</code>.
+     *
+     * @return runtime directory path, empty if variable is not set or not absolute
+     */
+    public Optional<Path> getRuntimeDir() {
+        return Optional.ofNullable(runtimeDir);
+    }
+
+    /**
+     * Returns <code>$XDG_DATA_DIRS</code> or its default <code>/usr/local/share/:/usr/share/</code>.
+     *
+     * @return additional data files locations in preference order
+     */
+    public List<Path> getDataDirs() {
+        return dataDirs;
+    }
+
+    /**
+     * Returns <code>$XDG_CONFIG_DIRS</code> or its default <code>/etc/xdg</code>.
+     *
+     * @return additional configuration files locations in preference order
+     */
+    public List<Path> getConfigDirs() {
+        return configDirs;
+    }
+
+    /**
+     * Returns <code>applications</code> subdirectories of <code>$XDG_DATA_HOME</code> and
+     * <code>$XDG_DATA_DIRS</code>.
+     *
+     * @return desktop entry directories in preference order
+     */
+    public List<Path> getDesktopEntryDirectories() {
+        return desktopEntryDirectories;
+    }
+
+    /**
+     * Returns <code>desktop-directories</code> subdirectories of <code>$XDG_DATA_HOME</code> and
+     * <code>$XDG_DATA_DIRS</code>.
+     *
+     * @return directory entry directories in preference order
+     */
+    public List<Path> getDesktopDirectoryDirectories() {
+        return desktopDirectoryDirectories;
+    }
+
+    /**
+     * Returns identifiers of the current desktop environment from <code>$XDG_CURRENT_DESKTOP</code>.
+     *
+     * @return desktop identifiers in preference order, empty list if variable is not set
+     */
+    public List<String> getCurrentDesktops() {
+        return currentDesktops;
+    }
+
+    /**
+     * Returns <code>$XDG_MENU_PREFIX</code>.
+     *
+     * @return menu file prefix, empty string if variable is not set
+     */
+    public String getMenuPrefix() {
+        return menuPrefix;
+    }
+
+    Set<Path> getDataDirSet() {
+        return dataDirSet;
+    }
+
+    Set<Path> getConfigDirSet() {
+        return configDirSet;
+    }
+
+    private List<Path> getDataSubdirectories(String name) {
+        var result = new LinkedHashSet<Path>();
+        result.add(dataHome.resolve(name));
+        for (var dir : dataDirs) {
+            result.add(dir.resolve(name));
+        }
+        return List.copyOf(result);
+    }
+
+    private static String getValue(Map<String, String> variables, EnvironmentVariable variable) {
+        var value = variables.get(variable.name());
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static Path getHome(Map<String, String> variables, EnvironmentVariable variable, Path defaultValue) {
+        var path = toAbsolutePath(getValue(variables, variable));
+        return path != null ? path : defaultValue;
+    }
+
+    private static List<Path> getDirs(Map<String, String> variables, EnvironmentVariable variable,
+            String defaultValue)
+    {
+        var value = getValue(variables, variable);
+        var result = parseDirs(value == null ? defaultValue : value);
+        // All entries were relative, fall back to the default value
+        return result.isEmpty() ? parseDirs(defaultValue) : result;
+    }
+
+    private static List<Path> parseDirs(String value) {
+        var result = new LinkedHashSet<Path>();
+        for (var element : value.split(":")) {
+            var path = toAbsolutePath(element);
+            if (path != null) {
+                result.add(path);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Converts value to path. Relative paths are invalid according to the specification and are ignored.
+     */
+    private static Path toAbsolutePath(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            var path = Path.of(value).normalize();
+            return path.isAbsolute() ? path : null;
+        } catch (InvalidPathException ex) {
+            return null;
+        }
+    }
+}
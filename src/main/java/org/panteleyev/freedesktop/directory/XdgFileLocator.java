@@ -0,0 +1,239 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.directory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Finds files in XDG base directories in precedence order: home directory first, then system directories in the
+ * order of <code>$XDG_CONFIG_DIRS</code> or <code>$XDG_DATA_DIRS</code>.
+ * <p>
+ * Results of every lookup, including negative ones, are cached for a short time, so frequent lookups of the same file
+ * do not hit the file system. Files created or removed during this time are not noticed until the cached result
+ * expires or {@link #invalidate()} is called. Cache is cleared when current {@link XdgEnvironment} is replaced. Expired
+ * results are removed at most once per time to live, so the cache holds only recently used lookups.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class XdgFileLocator {
+    /**
+     * Default time to keep lookup results.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(2);
+
+    private enum Base {
+        CONFIG,
+        DATA
+    }
+
+    private record Query(Base base, String path, String glob) {
+    }
+
+    private record Result(List<Path> files, long expires) {
+    }
+
+    /**
+     * Cached results of a single environment. Replaced as a whole, so results computed for a previous environment or
+     * before invalidation go to the discarded map.
+     */
+    private record State(XdgEnvironment environment, Map<Query, Result> cache) {
+        State(XdgEnvironment environment) {
+            this(environment, new ConcurrentHashMap<>());
+        }
+    }
+
+    private final Supplier<XdgEnvironment> environmentSupplier;
+    private final long ttl;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(null));
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    /**
+     * Creates locator for {@link XdgEnvironment#current()} with default time to live.
+     */
+    public XdgFileLocator() {
+        this(XdgEnvironment::current, DEFAULT_TTL, System::nanoTime);
+    }
+
+    /**
+     * Creates locator for the environment.
+     *
+     * @param environment XDG environment
+     * @param ttl         time to keep lookup results, zero disables caching
+     */
+    public XdgFileLocator(XdgEnvironment environment, Duration ttl) {
+        this(() -> environment, ttl, System::nanoTime);
+        Objects.requireNonNull(environment);
+    }
+
+    XdgFileLocator(Supplier<XdgEnvironment> environmentSupplier, Duration ttl, LongSupplier clock) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("Time to live must not be negative");
+        }
+        this.environmentSupplier = environmentSupplier;
+        this.ttl = ttl.toNanos();
+        this.clock = clock;
+        this.nextSweep.set(clock.getAsLong());
+    }
+
+    /**
+     * Finds the most important configuration file, for example <code>findConfigFile("app/settings.conf")</code>.
+     *
+     * @param path file path relative to configuration directories
+     * @return configuration file
+     */
+    public Optional<Path> findConfigFile(String path) {
+        return lookup(new Query(Base.CONFIG, checkRelative(path), null)).stream().findFirst();
+    }
+
+    /**
+     * Finds all configuration files with a given relative path.
+     *
+     * @param path file path relative to configuration directories
+     * @return configuration files in precedence order
+     */
+    public List<Path> findAllConfigFiles(String path) {
+        return lookup(new Query(Base.CONFIG, checkRelative(path), null));
+    }
+
+    /**
+     * Finds the most important data file.
+     *
+     * @param path file path relative to data directories
+     * @return data file
+     */
+    public Optional<Path> findDataFile(String path) {
+        return lookup(new Query(Base.DATA, checkRelative(path), null)).stream().findFirst();
+    }
+
+    /**
+     * Finds all data files with a given relative path.
+     *
+     * @param path file path relative to data directories
+     * @return data files in precedence order
+     */
+    public List<Path> findAllDataFiles(String path) {
+        return lookup(new Query(Base.DATA, checkRelative(path), null));
+    }
+
+    /**
+     * Finds files matching glob pattern in the data subdirectory, for example
+     * <code>findAllDataFiles("applications", "*.desktop")</code>. Subdirectories are not searched. If files with the
+     * same name exist in several data directories only the most important one is returned.
+     *
+     * @param directory directory relative to data directories
+     * @param glob      file name pattern as defined by {@link java.nio.file.FileSystem#getPathMatcher(String)}
+     * @return data files in precedence order, files of the same directory are sorted by name
+     */
+    public List<Path> findAllDataFiles(String directory, String glob) {
+        Objects.requireNonNull(glob);
+        return lookup(new Query(Base.DATA, checkRelative(directory), glob));
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void invalidate() {
+        state.updateAndGet(s -> new State(s.environment));
+    }
+
+    /**
+     * Returns number of cached results.
+     */
+    int size() {
+        return state.get().cache.size();
+    }
+
+    private List<Path> lookup(Query query) {
+        var current = environmentSupplier.get();
+        var cache = state.updateAndGet(s -> s.environment == current ? s : new State(current)).cache;
+
+        var now = clock.getAsLong();
+        var cached = cache.get(query);
+        if (cached != null && cached.expires - now > 0) {
+            return cached.files;
+        }
+
+        var files = query.glob == null ? find(current, query) : list(current, query);
+        if (ttl > 0) {
+            cache.put(query, new Result(files, now + ttl));
+            var sweep = nextSweep.get();
+            if (now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + ttl)) {
+                cache.values().removeIf(result -> result.expires - now <= 0);
+            }
+        }
+        return files;
+    }
+
+    private static List<Path> find(XdgEnvironment environment, Query query) {
+        var result = new ArrayList<Path>();
+        for (var base : getBaseDirectories(environment, query.base)) {
+            var file = base.resolve(query.path);
+            if (Files.isRegularFile(file)) {
+                result.add(file);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    private static List<Path> list(XdgEnvironment environment, Query query) {
+        var result = new ArrayList<Path>();
+        var names = new HashSet<Path>();
+        for (var base : getBaseDirectories(environment, query.base)) {
+            var directory = base.resolve(query.path);
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            var files = new ArrayList<Path>();
+            try (var stream = Files.newDirectoryStream(directory, query.glob)) {
+                for (var file : stream) {
+                    if (Files.isRegularFile(file) && names.add(file.getFileName())) {
+                        files.add(file);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException ex) {
+                // Unreadable directories are skipped
+            }
+            files.sort(null);
+            result.addAll(files);
+        }
+        return List.copyOf(result);
+    }
+
+    private static List<Path> getBaseDirectories(XdgEnvironment environment, Base base) {
+        var result = new ArrayList<Path>();
+        if (base == Base.CONFIG) {
+            result.add(environment.getConfigHome());
+            result.addAll(environment.getConfigDirs());
+        } else {
+            result.add(environment.getDataHome());
+            result.addAll(environment.getDataDirs());
+        }
+        return result;
+    }
+
+    private static String checkRelative(String path) {
+        Objects.requireNonNull(path);
+        if (Path.of(path).isAbsolute()) {
+            throw new IllegalArgumentException("Path must be relative: " + path);
+        }
+        return path;
+    }
+}
@@ -5,17 +5,20 @@
 package org.panteleyev.freedesktop.entry;
 
 import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Implements Desktop Action.
  */
 public class ApplicationAction {
     private final String name;
-    private final Collection<Entry> entries;
+    private final EntryTable entries;
 
     ApplicationAction(String name, Collection<Entry> entries) {
         this.name = name;
-        this.entries = entries;
+        this.entries = new EntryTable(entries);
     }
 
     String name() {
@@ -23,6 +26,74 @@ public class ApplicationAction {
     }
 
     Collection<Entry> entries() {
-        return entries;
+        return entries.asList();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns action identifier.
+     *
+     * @return action identifier
+     */
+    public String getId() {
+        return name;
+    }
+
+    /**
+     * Returns default <code>Name</code> value.
+     *
+     * @return name
+     */
+    public Optional<String> getName() {
+        return Optional.ofNullable(DesktopEntry.unescape(entries.get(Key.NAME)));
+    }
+
+    /**
+     * Returns localized <code>Name</code> value, see {@link LocaleFallback}.
+     *
+     * @param locale locale
+     * @return name
+     */
+    public Optional<String> getName(Locale locale) {
+        return Optional.ofNullable(DesktopEntry.unescape(entries.get(Key.NAME, LocaleFallback.of(locale))));
+    }
+
+    /**
+     * Returns default <code>Icon</code> value.
+     *
+     * @return icon name or absolute path
+     */
+    public Optional<String> getIcon() {
+        return Optional.ofNullable(DesktopEntry.unescape(entries.get(Key.ICON)));
+    }
+
+    /**
+     * Returns <code>Exec</code> value.
+     *
+     * @return command line
+     */
+    public Optional<String> getExec() {
+        return Optional.ofNullable(DesktopEntry.unescape(entries.get(Key.EXEC)));
+    }
+
+    /**
+     * Returns entries in output order. Array must not be modified.
+     */
+    Entry[] sortedEntries() {
+        return entries.entries();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof ApplicationAction that
+                && name.equals(that.name)
+                && entries.equals(that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, entries);
+    }
+}
@@ -4,15 +4,24 @@
  */
 package org.panteleyev.freedesktop.entry;
 
+import org.panteleyev.freedesktop.menu.Category;
+import org.panteleyev.freedesktop.menu.OnlyShowInEnvironment;
+
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.io.UncheckedIOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.panteleyev.freedesktop.directory.XDGBaseDirectory.getUserDesktopEntryDirectory;
 
@@ -28,31 +37,476 @@ import static org.panteleyev.freedesktop.directory.XDGBaseDirectory.getUserDeskt
  * <h1>File Extension</h1>
  * Desktop entry files should have the <code>.desktop</code> extension, except for files of Type Directory which
  * should have the <code>.directory</code> extension.
+ * <p>
+ * Instances are immutable and can be freely shared between threads.
  */
 public class DesktopEntry {
-    private static final String DESKTOP_ENTRY = "[Desktop Entry]";
-    private static final String DESKTOP_ACTION_TEMPLATE = "[Desktop Action %s]";
-
-    private static final Comparator<Entry> ENTRY_COMPARATOR = ((Comparator<Entry>) (o1, o2) -> {
-        if (o1.key() instanceof Key k1 && o2.key() instanceof Key k2) {
-            return k1.compareTo(k2);
-        } else if (o1.key() instanceof String s1 && o2.key() instanceof String s2) {
-            return s1.compareTo(s2);
-        } else if (o1.key() instanceof Key && o2.key() instanceof String) {
-            return -1;
-        } else {
-            return 1;
-        }
-    }).thenComparing(Entry::locale);
-
     private final DesktopEntryType type;
-    private final Collection<Entry> entries;
+    private final EntryTable entries;
     private final Collection<ApplicationAction> actions;
 
     DesktopEntry(DesktopEntryType type, Collection<Entry> entries, Collection<ApplicationAction> actions) {
         this.type = type;
-        this.entries = entries;
-        this.actions = actions;
+        this.entries = new EntryTable(entries);
+        this.actions = List.copyOf(actions);
+    }
+
+    /**
+     * Returns desktop entry type.
+     *
+     * @return desktop entry type
+     */
+    public DesktopEntryType getType() {
+        return type;
+    }
+
+    Collection<Entry> entries() {
+        return entries.asList();
+    }
+
+    Collection<ApplicationAction> actions() {
+        return actions;
+    }
+
+    /**
+     * Returns entries in output order. Array must not be modified.
+     */
+    Entry[] sortedEntries() {
+        return entries.entries();
+    }
+
+    /**
+     * Returns value of the specification key without locale.
+     *
+     * @return value or null
+     */
+    String value(Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns value of the specification key with exactly matching locale.
+     *
+     * @return value or null
+     */
+    String value(Key key, String locale) {
+        return entries.get(key, locale);
+    }
+
+    /**
+     * Returns value of the entry with a given key and no locale. Key may be either defined by the specification or
+     * custom. Value is returned as written in the file, escape sequences are not decoded; typed accessors like
+     * {@link #getName()} return decoded values.
+     *
+     * @param key entry key
+     * @return entry value
+     */
+    public Optional<String> getValue(String key) {
+        return getValue(key, "");
+    }
+
+    /**
+     * Returns value of the entry with a given key and exactly matching locale. Empty locale denotes the default
+     * value.
+     *
+     * @param key    entry key
+     * @param locale entry locale
+     * @return entry value
+     */
+    public Optional<String> getValue(String key, String locale) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(locale);
+        return Optional.ofNullable(entries.get(key, locale));
+    }
+
+    /**
+     * Returns localized value of the entry with a given key. Locales are tried in the order defined by
+     * {@link LocaleFallback}, then the default value is used. Key may be either defined by the specification or
+     * custom.
+     *
+     * @param key    entry key
+     * @param locale locale
+     * @return entry value
+     */
+    public Optional<String> getValue(String key, Locale locale) {
+        Objects.requireNonNull(key);
+        return Optional.ofNullable(entries.get(key, LocaleFallback.of(locale)));
+    }
+
+    /**
+     * Returns <code>Version</code> value.
+     *
+     * @return specification version
+     */
+    public Optional<String> getVersion() {
+        return optional(Key.VERSION);
+    }
+
+    /**
+     * Returns default <code>Name</code> value.
+     *
+     * @return name
+     */
+    public Optional<String> getName() {
+        return optional(Key.NAME);
+    }
+
+    /**
+     * Returns localized <code>Name</code> value.
+     *
+     * @param locale locale
+     * @return name
+     */
+    public Optional<String> getName(Locale locale) {
+        return optional(Key.NAME, locale);
+    }
+
+    /**
+     * Returns default <code>GenericName</code> value.
+     *
+     * @return generic name
+     */
+    public Optional<String> getGenericName() {
+        return optional(Key.GENERIC_NAME);
+    }
+
+    /**
+     * Returns localized <code>GenericName</code> value.
+     *
+     * @param locale locale
+     * @return generic name
+     */
+    public Optional<String> getGenericName(Locale locale) {
+        return optional(Key.GENERIC_NAME, locale);
+    }
+
+    /**
+     * Returns <code>NoDisplay</code> value.
+     *
+     * @return true if entry should not be displayed in menus, false if not set
+     */
+    public boolean isNoDisplay() {
+        return bool(Key.NO_DISPLAY);
+    }
+
+    /**
+     * Returns default <code>Comment</code> value.
+     *
+     * @return comment
+     */
+    public Optional<String> getComment() {
+        return optional(Key.COMMENT);
+    }
+
+    /**
+     * Returns localized <code>Comment</code> value.
+     *
+     * @param locale locale
+     * @return comment
+     */
+    public Optional<String> getComment(Locale locale) {
+        return optional(Key.COMMENT, locale);
+    }
+
+    /**
+     * Returns default <code>Icon</code> value.
+     *
+     * @return icon name or absolute path
+     */
+    public Optional<String> getIcon() {
+        return optional(Key.ICON);
+    }
+
+    /**
+     * Returns localized <code>Icon</code> value.
+     *
+     * @param locale locale
+     * @return icon name or absolute path
+     */
+    public Optional<String> getIcon(Locale locale) {
+        return optional(Key.ICON, locale);
+    }
+
+    /**
+     * Returns <code>Hidden</code> value.
+     *
+     * @return true if entry is deleted, false if not set
+     */
+    public boolean isHidden() {
+        return bool(Key.HIDDEN);
+    }
+
+    /**
+     * Returns <code>OnlyShowIn</code> value. Unknown environments are not included.
+     *
+     * @return environments that should display the entry
+     */
+    public Set<OnlyShowInEnvironment> getOnlyShowIn() {
+        return environments(Key.ONLY_SHOW_IN);
+    }
+
+    /**
+     * Returns <code>NotShowIn</code> value. Unknown environments are not included.
+     *
+     * @return environments that should not display the entry
+     */
+    public Set<OnlyShowInEnvironment> getNotShowIn() {
+        return environments(Key.NOT_SHOW_IN);
+    }
+
+    /**
+     * Returns <code>DBusActivatable</code> value.
+     *
+     * @return true if application is activated via D-Bus, false if not set
+     */
+    public boolean isDBusActivatable() {
+        return bool(Key.D_BUS_ACTIVATABLE);
+    }
+
+    /**
+     * Returns <code>TryExec</code> value.
+     *
+     * @return executable used to check if the program is installed
+     */
+    public Optional<String> getTryExec() {
+        return optional(Key.TRY_EXEC);
+    }
+
+    /**
+     * Returns <code>Exec</code> value.
+     *
+     * @return command line
+     */
+    public Optional<String> getExec() {
+        return optional(Key.EXEC);
+    }
+
+    /**
+     * Returns <code>Path</code> value.
+     *
+     * @return working directory
+     */
+    public Optional<String> getPath() {
+        return optional(Key.PATH);
+    }
+
+    /**
+     * Returns <code>Terminal</code> value.
+     *
+     * @return true if program runs in a terminal window, false if not set
+     */
+    public boolean isTerminal() {
+        return bool(Key.TERMINAL);
+    }
+
+    /**
+     * Returns <code>Actions</code> value.
+     *
+     * @return action identifiers
+     */
+    public List<String> getActions() {
+        return list(Key.ACTIONS);
+    }
+
+    /**
+     * Returns <code>MimeType</code> value.
+     *
+     * @return supported MIME types
+     */
+    public List<String> getMimeType() {
+        return list(Key.MIME_TYPE);
+    }
+
+    /**
+     * Returns <code>Categories</code> value. Unknown categories are not included.
+     *
+     * @return categories
+     */
+    public List<Category> getCategories() {
+        var result = new ArrayList<Category>();
+        for (var value : list(Key.CATEGORIES)) {
+            Category.of(value).ifPresent(result::add);
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Returns <code>Implements</code> value.
+     *
+     * @return implemented interfaces
+     */
+    public List<String> getImplements() {
+        return list(Key.IMPLEMENTS);
+    }
+
+    /**
+     * Returns default <code>Keywords</code> value.
+     *
+     * @return keywords
+     */
+    public List<String> getKeywords() {
+        return splitList(entries.get(Key.KEYWORDS));
+    }
+
+    /**
+     * Returns localized <code>Keywords</code> value.
+     *
+     * @param locale locale
+     * @return keywords
+     */
+    public List<String> getKeywords(Locale locale) {
+        return splitList(entries.get(Key.KEYWORDS, LocaleFallback.of(locale)));
+    }
+
+    /**
+     * Returns <code>StartupNotify</code> value.
+     *
+     * @return true if application supports startup notification, false if not set
+     */
+    public boolean isStartupNotify() {
+        return bool(Key.STARTUP_NOTIFY);
+    }
+
+    /**
+     * Returns <code>StartupWMClass</code> value.
+     *
+     * @return WM class or WM name hint
+     */
+    public Optional<String> getStartupWmClass() {
+        return optional(Key.STARTUP_WM_CLASS);
+    }
+
+    /**
+     * Returns <code>URL</code> value.
+     *
+     * @return URL of the link
+     */
+    public Optional<String> getUrl() {
+        return optional(Key.URL);
+    }
+
+    /**
+     * Returns <code>PrefersNonDefaultGPU</code> value.
+     *
+     * @return true if application prefers discrete GPU, false if not set
+     */
+    public boolean isPrefersNonDefaultGpu() {
+        return bool(Key.PREFERS_NON_DEFAULT_GPU);
+    }
+
+    /**
+     * Returns <code>SingleMainWindow</code> value.
+     *
+     * @return true if application has a single main window, false if not set
+     */
+    public boolean isSingleMainWindow() {
+        return bool(Key.SINGLE_MAIN_WINDOW);
+    }
+
+    /**
+     * Returns localized value of the specification key.
+     *
+     * @return value or null
+     */
+    String value(Key key, LocaleFallback fallback) {
+        return entries.get(key, fallback);
+    }
+
+    private Optional<String> optional(Key key) {
+        return Optional.ofNullable(unescape(entries.get(key)));
+    }
+
+    private Optional<String> optional(Key key, Locale locale) {
+        return Optional.ofNullable(unescape(entries.get(key, LocaleFallback.of(locale))));
+    }
+
+    private boolean bool(Key key) {
+        // Boolean values are case-sensitive
+        return "true".equals(entries.get(key));
+    }
+
+    private List<String> list(Key key) {
+        return splitList(entries.get(key));
+    }
+
+    private Set<OnlyShowInEnvironment> environments(Key key) {
+        var result = EnumSet.noneOf(OnlyShowInEnvironment.class);
+        for (var value : list(key)) {
+            OnlyShowInEnvironment.of(value).ifPresent(result::add);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Decodes escape sequences <code>\s</code>, <code>\n</code>, <code>\t</code>, <code>\r</code> and
+     * <code>\\</code> of string values. Other sequences are kept as is.
+     *
+     * @return decoded value, null if value is null
+     */
+    static String unescape(String value) {
+        return unescape(value, false);
+    }
+
+    /**
+     * Splits value of type string(s). Values are separated by semicolons, escaped semicolons <code>\;</code> are
+     * part of the value, other escape sequences are decoded as by {@link #unescape(String)}. Values are trimmed,
+     * empty values are skipped.
+     */
+    static List<String> splitList(String value) {
+        if (value == null || value.isEmpty()) {
+            return List.of();
+        }
+        var result = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c == '\\') {
+                // Escaped character including backslash itself is never a separator
+                i++;
+            } else if (c == ';') {
+                addElement(result, value.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (start < value.length()) {
+            addElement(result, value.substring(start));
+        }
+        return List.copyOf(result);
+    }
+
+    private static void addElement(List<String> result, String value) {
+        var trimmed = value.trim();
+        if (!trimmed.isEmpty()) {
+            result.add(unescape(trimmed, true));
+        }
+    }
+
+    private static String unescape(String value, boolean listElement) {
+        if (value == null || value.indexOf('\\') < 0) {
+            return value;
+        }
+        var builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                var decoded = switch (value.charAt(i + 1)) {
+                    case 's' -> ' ';
+                    case 'n' -> '\n';
+                    case 't' -> '\t';
+                    case 'r' -> '\r';
+                    case '\\' -> '\\';
+                    case ';' -> listElement ? ';' : 0;
+                    default -> 0;
+                };
+                if (decoded != 0) {
+                    builder.append((char) decoded);
+                    i++;
+                    continue;
+                }
+            }
+            builder.append(c);
+        }
+        return builder.toString();
     }
 
     /**
@@ -74,49 +528,43 @@ public class DesktopEntry {
     }
 
     /**
-     * Writes Desktop Entry into the file.
+     * Writes Desktop Entry into the file. File is replaced atomically, see
+     * {@link DesktopEntryWriter#writeAtomically(DesktopEntry, Path, DesktopEntryWriter.Sync, boolean)}.
      *
      * @param path path to desktop entry file
      */
     public void write(Path path) {
-        try (var out = Files.newOutputStream(path)) {
-            write(out);
-        } catch (IOException ex) {
-            throw new UncheckedIOException(ex);
-        }
+        new DesktopEntryWriter().writeAtomically(this, path, DesktopEntryWriter.Sync.NONE, false);
     }
 
     /**
-     * Writes Desktop Entry into the output stream.
+     * Writes Desktop Entry into the output stream as UTF-8 encoded text. Stream is closed after writing. Use
+     * {@link DesktopEntryWriter} to write many entries without intermediate allocations.
      *
      * @param outputStream output stream
      */
     public void write(OutputStream outputStream) {
-        try (var out = new PrintWriter(outputStream)) {
-            out.println(DESKTOP_ENTRY);
-
-            entries.stream()
-                    .sorted(ENTRY_COMPARATOR)
-                    .forEach(entry -> writeEntry(out, entry));
-
-            // Write desktop actions
-            for (var action : actions) {
-                out.println();
-                out.println(String.format(DESKTOP_ACTION_TEMPLATE, action.name()));
-                action.entries().stream()
-                        .sorted(ENTRY_COMPARATOR)
-                        .forEach(entry -> writeEntry(out, entry));
-            }
+        try (outputStream) {
+            new DesktopEntryWriter().write(this, outputStream);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
     }
 
-    private void writeEntry(PrintWriter pr, Entry entry) {
-        pr.print(entry.key());
-        if (!entry.locale().isEmpty()) {
-            pr.print("[" + entry.locale() + "]");
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
         }
-        pr.print("=");
-        pr.println(entry.value().toString());
+        return o instanceof DesktopEntry that
+                && type == that.type
+                && entries.equals(that.entries)
+                && actions.equals(that.actions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, entries, actions);
     }
 }
 
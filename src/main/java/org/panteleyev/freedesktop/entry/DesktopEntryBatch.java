@@ -0,0 +1,263 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+import org.panteleyev.freedesktop.mime.MimeTypeIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Installs many desktop entries into one directory at once.
+ * <p>
+ * Files are written in parallel with {@link DesktopEntryWriter#writeAtomically(DesktopEntry, Path,
+ * DesktopEntryWriter.Sync, boolean)}, files that already have the same content are not touched. When all files are
+ * written <code>mimeinfo.cache</code> of the directory is regenerated once, as <code>update-desktop-database</code>
+ * does, and the directory is flushed once if requested by the sync policy. Nothing else is done if no file has
+ * changed, so running desktop components see a single burst of changes instead of one per file.
+ * {@link DesktopEntryCache} detects the change by the directory modification time and needs no explicit update.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class DesktopEntryBatch {
+    private static final int CHUNK_SIZE = 8;
+
+    private final Path directory;
+    private final Map<String, DesktopEntry> entries = new LinkedHashMap<>();
+    private DesktopEntryWriter.Sync sync = DesktopEntryWriter.Sync.NONE;
+    private boolean skipIfIdentical = true;
+    private boolean updateMimeInfoCache = true;
+
+    /**
+     * Creates batch for {@link XDGBaseDirectory#getUserDesktopEntryDirectory()}.
+     */
+    public DesktopEntryBatch() {
+        this(XDGBaseDirectory.getUserDesktopEntryDirectory());
+    }
+
+    /**
+     * Creates batch.
+     *
+     * @param directory target directory, created if it does not exist
+     */
+    public DesktopEntryBatch(Path directory) {
+        this.directory = Objects.requireNonNull(directory);
+    }
+
+    /**
+     * Returns target directory.
+     *
+     * @return target directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Adds desktop entry to the batch. File extension is calculated based on Desktop Entry type.
+     *
+     * @param name  file name without path and extension
+     * @param entry desktop entry
+     * @return this batch
+     * @throws IllegalArgumentException if name is invalid or a file with the same name was already added
+     */
+    public DesktopEntryBatch add(String name, DesktopEntry entry) {
+        Objects.requireNonNull(entry);
+        if (name == null || name.isEmpty() || name.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Invalid file name: " + name);
+        }
+        var fileName = name + "." + entry.getType().getFileExtension();
+        if (entries.putIfAbsent(fileName, entry) != null) {
+            throw new IllegalArgumentException("Duplicate file name: " + fileName);
+        }
+        return this;
+    }
+
+    /**
+     * Sets flush policy, default is {@link DesktopEntryWriter.Sync#NONE}. With
+     * {@link DesktopEntryWriter.Sync#FILE_AND_DIRECTORY} the directory is flushed once after all files are written.
+     *
+     * @param sync flush policy
+     * @return this batch
+     */
+    public DesktopEntryBatch sync(DesktopEntryWriter.Sync sync) {
+        this.sync = Objects.requireNonNull(sync);
+        return this;
+    }
+
+    /**
+     * Defines if files having exactly the same content are skipped, default is true.
+     *
+     * @param skipIfIdentical skip identical files
+     * @return this batch
+     */
+    public DesktopEntryBatch skipIfIdentical(boolean skipIfIdentical) {
+        this.skipIfIdentical = skipIfIdentical;
+        return this;
+    }
+
+    /**
+     * Defines if <code>mimeinfo.cache</code> of the directory is regenerated after installation, default is true.
+     *
+     * @param updateMimeInfoCache update MIME cache
+     * @return this batch
+     */
+    public DesktopEntryBatch updateMimeInfoCache(boolean updateMimeInfoCache) {
+        this.updateMimeInfoCache = updateMimeInfoCache;
+        return this;
+    }
+
+    /**
+     * Installs entries using a dedicated thread pool that is shut down afterwards. Writing files is blocking I/O, so
+     * the common fork/join pool is not used.
+     *
+     * @return written files in the order entries were added, skipped files are not included
+     * @throws UncheckedIOException if directory or files cannot be written
+     */
+    public List<Path> install() {
+        int threads = Math.max(1, Math.min(chunkCount(), Runtime.getRuntime().availableProcessors()));
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            return install(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Installs entries using executor service. Files are written by the executor in chunks, caches are updated in the
+     * calling thread.
+     * <p>
+     * If some files cannot be written the method waits for all chunks, updates caches for files that were written
+     * and then throws the first failure, other failures are added to it as suppressed exceptions.
+     *
+     * @param executor executor service
+     * @return written files in the order entries were added, skipped files are not included
+     * @throws UncheckedIOException if directory or files cannot be written
+     */
+    public List<Path> install(ExecutorService executor) {
+        Objects.requireNonNull(executor);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        var fileSync = sync == DesktopEntryWriter.Sync.NONE ? DesktopEntryWriter.Sync.NONE
+                : DesktopEntryWriter.Sync.FILE;
+        var files = List.copyOf(entries.entrySet());
+        var futures = new ArrayList<Future<ChunkResult>>();
+        for (int from = 0; from < files.size(); from += CHUNK_SIZE) {
+            var chunk = files.subList(from, Math.min(from + CHUNK_SIZE, files.size()));
+            Callable<ChunkResult> task = () -> write(chunk, fileSync);
+            futures.add(executor.submit(task));
+        }
+
+        var written = new ArrayList<Path>();
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (var future : futures) {
+            try {
+                if (interrupted && (!future.isDone() || future.isCancelled())) {
+                    // Do not wait any more, take only completed chunks
+                    continue;
+                }
+                var result = future.get();
+                written.addAll(result.written());
+                failure = addFailure(failure, result.failure());
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                futures.forEach(f -> f.cancel(true));
+                failure = addFailure(failure, new IllegalStateException("Installation interrupted", ex));
+            } catch (ExecutionException ex) {
+                failure = addFailure(failure, ex.getCause() instanceof RuntimeException rex ? rex
+                        : new IllegalStateException(ex.getCause()));
+            }
+        }
+
+        try {
+            if (!written.isEmpty()) {
+                if (updateMimeInfoCache) {
+                    updateMimeInfoCache();
+                }
+                if (sync == DesktopEntryWriter.Sync.FILE_AND_DIRECTORY) {
+                    DesktopEntryWriter.syncDirectory(directory);
+                }
+            }
+        } catch (RuntimeException ex) {
+            failure = addFailure(failure, ex);
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return List.copyOf(written);
+    }
+
+    private record ChunkResult(List<Path> written, RuntimeException failure) {
+    }
+
+    private int chunkCount() {
+        return (entries.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    private static RuntimeException addFailure(RuntimeException first, RuntimeException next) {
+        if (first == null) {
+            return next;
+        }
+        if (next != null && next != first) {
+            first.addSuppressed(next);
+        }
+        return first;
+    }
+
+    /**
+     * Writes files of the chunk. Failure of one file does not stop writing of others.
+     */
+    private ChunkResult write(List<Map.Entry<String, DesktopEntry>> chunk, DesktopEntryWriter.Sync fileSync) {
+        var writer = new DesktopEntryWriter();
+        var result = new ArrayList<Path>(chunk.size());
+        RuntimeException failure = null;
+        for (var entry : chunk) {
+            var path = directory.resolve(entry.getKey());
+            try {
+                if (writer.writeAtomically(entry.getValue(), path, fileSync, skipIfIdentical)) {
+                    result.add(path);
+                }
+            } catch (RuntimeException ex) {
+                failure = addFailure(failure, ex);
+            }
+        }
+        return new ChunkResult(result, failure);
+    }
+
+    /**
+     * Regenerates <code>mimeinfo.cache</code> from all desktop entries of the directory. File is not written if its
+     * content would not change.
+     */
+    private void updateMimeInfoCache() {
+        var cacheFile = directory.resolve(MimeTypeIndex.MIME_INFO_CACHE);
+        var index = MimeTypeIndex.of(new DesktopEntryScanner(List.of(directory)).scan());
+        if (!index.equals(MimeTypeIndex.read(cacheFile))) {
+            index.write(cacheFile);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+import org.panteleyev.freedesktop.internal.AtomicFiles;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent binary cache of desktop entries.
+ * <p>
+ * Cache file stores parsed entries of every desktop entry directory together with modification times of the
+ * directory and its subdirectories. When cache is loaded modification times are compared with the file system, only
+ * directories that changed since the cache was written are scanned again. Adding, removing or renaming a file
+ * updates modification time of its directory, so a warm start costs a single memory mapped read of the cache file
+ * plus one stat call per directory. Files modified in place without touching the directory are not detected.
+ * <p>
+ * Several processes may share the same cache file. The file is replaced atomically and read through a memory map, so
+ * readers never see partial content; on file systems that do not support atomic move the cache is not written. When
+ * the cache must be rebuilt the process takes an exclusive lock on the companion <code>.lock</code> file and checks
+ * the cache again before scanning, so processes that start concurrently wait for the first one to publish its result
+ * instead of scanning themselves. If the lock file cannot be locked, rebuilds of different processes are not
+ * serialized but still produce a complete cache file. {@link #inRuntimeDir()} places the cache in
+ * <code>$XDG_RUNTIME_DIR</code> which is usually a memory file system private to the user session, there mapped cache
+ * pages are shared by all JVMs of the session.
+ */
+public class DesktopEntryCache {
+    static final int MAGIC = 0x46444543;
+    static final int VERSION = 2;
+
+    private static final String CACHE_DIRECTORY = "java-freedesktop";
+    private static final String CACHE_FILE = "desktop-entries.cache";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final long MISSING = -1;
+
+    // File locks are held by the whole JVM, threads must be serialized separately
+    private static final Object LOCK = new Object();
+
+    private final Path cacheFile;
+    private final List<Path> directories;
+
+    /**
+     * Creates cache for {@link XDGBaseDirectory#getDesktopEntryDirectories()} stored under
+     * {@link XDGBaseDirectory#getCacheHome()}.
+     */
+    public DesktopEntryCache() {
+        this(XDGBaseDirectory.getCacheHome().resolve(CACHE_DIRECTORY).resolve(CACHE_FILE),
+                XDGBaseDirectory.getDesktopEntryDirectories());
+    }
+
+    /**
+     * Creates cache.
+     *
+     * @param cacheFile   cache file
+     * @param directories preference-ordered list of desktop entry directories
+     */
+    public DesktopEntryCache(Path cacheFile, List<Path> directories) {
+        this.cacheFile = Objects.requireNonNull(cacheFile);
+        this.directories = List.copyOf(directories);
+    }
+
+    /**
+     * Creates cache for {@link XDGBaseDirectory#getDesktopEntryDirectories()} stored under
+     * {@link XDGBaseDirectory#getRuntimeDir()} to be shared by all processes of the user session.
+     *
+     * @return cache, empty if <code>$XDG_RUNTIME_DIR</code> is not set
+     */
+    public static Optional<DesktopEntryCache> inRuntimeDir() {
+        return XDGBaseDirectory.getRuntimeDir().map(dir -> new DesktopEntryCache(
+                dir.resolve(CACHE_DIRECTORY).resolve(CACHE_FILE), XDGBaseDirectory.getDesktopEntryDirectories()));
+    }
+
+    /**
+     * Returns cache file location.
+     *
+     * @return cache file
+     */
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Loads desktop entries. Directories that did not change since the cache was written are loaded from the cache,
+     * the rest are scanned. Cache file is rewritten if any directory was scanned. Failure to write cache file is
+     * ignored.
+     *
+     * @return desktop entries by desktop file ID, see {@link DesktopEntryScanner}
+     */
+    public Map<String, DesktopEntry> load() {
+        var sections = getValidSections(read(cacheFile));
+        if (sections == null) {
+            synchronized (LOCK) {
+                var lock = lock();
+                try {
+                    sections = update();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+
+        var result = new ArrayList<Map<String, DesktopEntry>>(sections.size());
+        for (var section : sections) {
+            result.add(section.entries());
+        }
+        return DesktopEntryScanner.merge(result);
+    }
+
+    /**
+     * Returns sections in directory order if cache is complete and up to date, null otherwise.
+     */
+    private List<Section> getValidSections(Map<Path, Section> cached) {
+        if (cached.size() != directories.size()) {
+            return null;
+        }
+        var sections = new ArrayList<Section>(directories.size());
+        for (var directory : directories) {
+            var section = cached.get(directory);
+            if (section == null || !section.isValid()) {
+                return null;
+            }
+            sections.add(section);
+        }
+        return sections;
+    }
+
+    /**
+     * Scans changed directories and rewrites cache file. Cache is read again because another process may have
+     * published it while this one was waiting for the lock.
+     */
+    private List<Section> update() {
+        var cached = read(cacheFile);
+
+        var sections = new ArrayList<Section>(directories.size());
+        var loader = new DesktopEntryLoader();
+        boolean changed = cached.size() != directories.size();
+        for (var directory : directories) {
+            var section = cached.get(directory);
+            if (section == null || !section.isValid()) {
+                // Stamps are taken before scanning, concurrent changes will be detected next time
+                var stamps = takeStamps(directory);
+                section = new Section(directory, stamps, loader.loadDirectory(directory));
+                changed = true;
+            }
+            sections.add(section);
+        }
+
+        if (changed) {
+            try {
+                write(cacheFile, sections);
+            } catch (IOException | UncheckedIOException ex) {
+                // Cache is optional
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Takes exclusive lock of the lock file. Returns lock that does nothing if lock file cannot be created or locked,
+     * for example on a read-only or network file system. In that case rebuilds are serialized only within this JVM:
+     * concurrent processes scan directories independently and the last one to replace the cache file wins.
+     */
+    private CacheLock lock() {
+        var lockFile = cacheFile.resolveSibling(cacheFile.getFileName() + LOCK_EXTENSION);
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(lockFile.toAbsolutePath().getParent());
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            var lock = channel.lock();
+            var lockedChannel = channel;
+            return () -> {
+                try (lockedChannel) {
+                    lock.release();
+                } catch (IOException ex) {
+                    // Lock is released when channel is closed
+                }
+            };
+        } catch (IOException | UnsupportedOperationException ex) {
+            closeQuietly(channel);
+            return () -> {
+            };
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Records modification times of the directory and all its subdirectories.
+     */
+    static Map<Path, Long> takeStamps(Path directory) {
+        var stamps = new LinkedHashMap<Path, Long>();
+        if (!Files.isDirectory(directory)) {
+            stamps.put(directory, MISSING);
+            return stamps;
+        }
+
+        try {
+            Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            stamps.put(dir, attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (NoSuchFileException ex) {
+            stamps.clear();
+            stamps.put(directory, MISSING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return stamps;
+    }
+
+    static long stamp(Path directory) {
+        try {
+            var attrs = Files.readAttributes(directory, BasicFileAttributes.class);
+            return attrs.isDirectory() ? attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS) : MISSING;
+        } catch (IOException ex) {
+            return MISSING;
+        }
+    }
+
+    /**
+     * Reads cache file. Returns empty map if file does not exist or is corrupted.
+     */
+    static Map<Path, Section> read(Path cacheFile) {
+        try (var channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException ex) {
+            return Map.of();
+        }
+    }
+
+    static Map<Path, Section> read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getInt() != DesktopEntryCodec.LAYOUT)
+            {
+                return Map.of();
+            }
+
+            var codec = new DesktopEntryCodec();
+            int sectionCount = buffer.getInt();
+            var result = new HashMap<Path, Section>();
+            for (int i = 0; i < sectionCount; i++) {
+                var directory = Path.of(codec.readString(buffer));
+
+                int stampCount = buffer.getInt();
+                var stamps = new LinkedHashMap<Path, Long>();
+                for (int j = 0; j < stampCount; j++) {
+                    stamps.put(Path.of(codec.readString(buffer)), buffer.getLong());
+                }
+
+                int entryCount = buffer.getInt();
+                var entries = new LinkedHashMap<String, DesktopEntry>();
+                for (int j = 0; j < entryCount; j++) {
+                    entries.put(codec.readString(buffer), codec.readEntry(buffer));
+                }
+                result.put(directory, new Section(directory, stamps, entries));
+            }
+            return result;
+        } catch (BufferUnderflowException | IllegalStateException | IllegalArgumentException ex) {
+            return Map.of();
+        }
+    }
+
+    /**
+     * Writes cache file. File is replaced with an atomic move only, if file system does not support it the existing
+     * cache file is left unchanged and exception is thrown.
+     */
+    static void write(Path cacheFile, List<Section> sections) throws IOException {
+        Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+        var temp = AtomicFiles.createTempFile(cacheFile);
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(DesktopEntryCodec.LAYOUT);
+                out.writeInt(sections.size());
+                for (var section : sections) {
+                    DesktopEntryCodec.writeString(out, section.directory().toString());
+                    out.writeInt(section.stamps().size());
+                    for (var stamp : section.stamps().entrySet()) {
+                        DesktopEntryCodec.writeString(out, stamp.getKey().toString());
+                        out.writeLong(stamp.getValue());
+                    }
+                    out.writeInt(section.entries().size());
+                    for (var entry : section.entries().entrySet()) {
+                        DesktopEntryCodec.writeString(out, entry.getKey());
+                        DesktopEntryCodec.writeEntry(out, entry.getValue());
+                    }
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private interface CacheLock {
+        void release();
+    }
+
+    /**
+     * Cached content of one desktop entry directory.
+     *
+     * @param directory directory
+     * @param stamps    modification times of the directory and its subdirectories
+     * @param entries   desktop entries by desktop file ID
+     */
+    record Section(Path directory, Map<Path, Long> stamps, Map<String, DesktopEntry> entries) {
+        boolean isValid() {
+            for (var stamp : stamps.entrySet()) {
+                if (stamp(stamp.getKey()) != stamp.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
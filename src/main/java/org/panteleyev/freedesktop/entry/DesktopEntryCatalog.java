@@ -0,0 +1,473 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Catalog of desktop entries kept up to date by {@link WatchService}.
+ * <p>
+ * Every desktop entry directory and its subdirectories are watched. When a file is created, modified or deleted only
+ * this file is parsed again. Events are coalesced: changes are applied once no new events arrived during the
+ * debounce interval, so package manager installs touching hundreds of files produce a single update. After each
+ * update a new {@link DesktopEntrySnapshot} is published through {@link DesktopEntryRegistry}, only entries with
+ * changed desktop file IDs are updated in it. Listeners are notified from the watcher thread.
+ * <p>
+ * Directories that do not exist yet are picked up as soon as they are created.
+ */
+public class DesktopEntryCatalog implements AutoCloseable {
+    /**
+     * Default debounce interval.
+     */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(200);
+
+    private static final int MAX_DEBOUNCE_ROUNDS = 10;
+    private static final String DESKTOP_EXTENSION = "." + DesktopEntryType.APPLICATION.getFileExtension();
+
+    private final List<Path> directories;
+    private final Duration debounce;
+    private final List<Consumer<DesktopEntrySnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final DesktopEntryRegistry registry = new DesktopEntryRegistry();
+
+    // Accessed by the watcher thread only after start
+    private final List<TreeMap<String, DesktopEntry>> contents = new ArrayList<>();
+    // File of every loaded desktop file ID, per directory
+    private final List<Map<String, Path>> sources = new ArrayList<>();
+    private final Map<WatchKey, Path> watchKeys = new HashMap<>();
+    private final DesktopEntryLoader loader = new DesktopEntryLoader();
+
+    private WatchService watchService;
+    private Thread thread;
+    private volatile Thread.UncaughtExceptionHandler exceptionHandler;
+
+    /**
+     * Creates catalog for {@link XDGBaseDirectory#getDesktopEntryDirectories()} with default debounce interval.
+     */
+    public DesktopEntryCatalog() {
+        this(XDGBaseDirectory.getDesktopEntryDirectories(), DEFAULT_DEBOUNCE);
+    }
+
+    /**
+     * Creates catalog.
+     *
+     * @param directories preference-ordered list of desktop entry directories
+     * @param debounce    time without events after which changes are applied
+     */
+    public DesktopEntryCatalog(List<Path> directories, Duration debounce) {
+        this.directories = List.copyOf(directories);
+        this.debounce = Objects.requireNonNull(debounce);
+    }
+
+    /**
+     * Scans directories, publishes the initial snapshot and starts watching for changes.
+     *
+     * @return this
+     * @throws IllegalStateException if catalog is already started
+     */
+    public synchronized DesktopEntryCatalog start() {
+        if (watchService != null) {
+            throw new IllegalStateException("Catalog is already started");
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        try {
+            for (int i = 0; i < directories.size(); i++) {
+                contents.add(new TreeMap<>());
+                sources.add(new HashMap<>());
+                registerRoot(i);
+            }
+            var initial = registry.replace(DesktopEntryScanner.merge(contents));
+            notifyListeners(initial);
+
+            thread = new Thread(this::run, "desktop-entry-catalog");
+            thread.setDaemon(true);
+            thread.start();
+            return this;
+        } catch (RuntimeException | Error ex) {
+            // Leave catalog in the initial state so start can be retried
+            try {
+                watchService.close();
+            } catch (IOException closeEx) {
+                ex.addSuppressed(closeEx);
+            }
+            watchService = null;
+            thread = null;
+            contents.clear();
+            sources.clear();
+            watchKeys.clear();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns current snapshot of the catalog. Snapshot is immutable and is not affected by further changes.
+     *
+     * @return desktop entries by desktop file ID
+     */
+    public DesktopEntrySnapshot getSnapshot() {
+        return registry.getSnapshot();
+    }
+
+    /**
+     * Adds listener that is called with the new snapshot after each update. Exception thrown by a listener is passed
+     * to the exception handler, see {@link #setExceptionHandler(Thread.UncaughtExceptionHandler)}, it does not affect
+     * other listeners and further updates.
+     *
+     * @param listener listener
+     */
+    public void addListener(Consumer<DesktopEntrySnapshot> listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Sets handler of exceptions thrown by listeners. By default, they are passed to the uncaught exception handler of
+     * the notifying thread.
+     *
+     * @param handler exception handler, null restores the default
+     */
+    public void setExceptionHandler(Thread.UncaughtExceptionHandler handler) {
+        exceptionHandler = handler;
+    }
+
+    /**
+     * Removes listener.
+     *
+     * @param listener listener
+     */
+    public void removeListener(Consumer<DesktopEntrySnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops watching for changes. Last published snapshot remains available.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                var changes = new Changes();
+                collect(watchService.take(), changes);
+
+                // Coalesce event storms
+                for (int round = 0; round < MAX_DEBOUNCE_ROUNDS; round++) {
+                    var key = watchService.poll(debounce.toNanos(), TimeUnit.NANOSECONDS);
+                    if (key == null) {
+                        break;
+                    }
+                    do {
+                        collect(key, changes);
+                    } while ((key = watchService.poll()) != null);
+                }
+
+                var before = registry.getSnapshot();
+                var after = apply(changes);
+                if (after != before) {
+                    notifyListeners(after);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ex) {
+            // Catalog is closed
+        }
+    }
+
+    private void notifyListeners(DesktopEntrySnapshot snapshot) {
+        for (var listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException ex) {
+                var current = Thread.currentThread();
+                var handler = exceptionHandler;
+                (handler != null ? handler : current.getUncaughtExceptionHandler()).uncaughtException(current, ex);
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Changes changes) {
+        var directory = watchKeys.get(key);
+        for (var event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                changes.rescan = true;
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            var path = directory.resolve((Path) event.context());
+            if (isRootOrAncestor(path)) {
+                if (event.kind() == ENTRY_MODIFY) {
+                    continue;
+                }
+                // Root or one of its parents has been created or deleted
+                changes.roots = true;
+            } else if (findRoot(path) < 0) {
+                // Unrelated change in the parent of the missing root
+                continue;
+            } else if (path.getFileName().toString().endsWith(DESKTOP_EXTENSION)) {
+                changes.files.add(path);
+            } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                changes.directories.add(path);
+            } else if (event.kind() == ENTRY_DELETE) {
+                changes.deleted.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchKeys.remove(key);
+            if (directory != null && isRootOrAncestor(directory)) {
+                changes.roots = true;
+            }
+        }
+    }
+
+    /**
+     * Applies collected changes.
+     *
+     * @return new snapshot
+     */
+    private DesktopEntrySnapshot apply(Changes changes) {
+        if (changes.rescan || changes.roots) {
+            for (var key : watchKeys.keySet()) {
+                key.cancel();
+            }
+            watchKeys.clear();
+            for (int i = 0; i < directories.size(); i++) {
+                contents.get(i).clear();
+                sources.get(i).clear();
+                registerRoot(i);
+            }
+            return registry.replace(DesktopEntryScanner.merge(contents));
+        }
+
+        var changedIds = new HashSet<String>();
+        for (var directory : changes.directories) {
+            var root = findRoot(directory);
+            if (root >= 0) {
+                var entries = contents.get(root);
+                var before = new HashMap<>(entries);
+                register(root, directory);
+                for (var entry : entries.entrySet()) {
+                    if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                        changedIds.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        for (var deleted : changes.deleted) {
+            var root = findRoot(deleted);
+            if (root >= 0) {
+                // Only files under the deleted directory, desktop file ID prefix may belong to other files
+                var iterator = sources.get(root).entrySet().iterator();
+                while (iterator.hasNext()) {
+                    var source = iterator.next();
+                    if (source.getValue().startsWith(deleted)) {
+                        iterator.remove();
+                        contents.get(root).remove(source.getKey());
+                        changedIds.add(source.getKey());
+                    }
+                }
+            }
+        }
+        for (var file : changes.files) {
+            var root = findRoot(file);
+            if (root >= 0) {
+                reload(root, file).ifPresent(changedIds::add);
+            }
+        }
+
+        return registry.update(snapshot -> {
+            for (var id : changedIds) {
+                var entry = findEntry(id);
+                snapshot = entry == null ? snapshot.without(id) : snapshot.with(id, entry);
+            }
+            return snapshot;
+        });
+    }
+
+    /**
+     * Returns entry with the highest precedence.
+     */
+    private DesktopEntry findEntry(String id) {
+        for (var entries : contents) {
+            var entry = entries.get(id);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reloads file.
+     *
+     * @return desktop file ID if entry changed
+     */
+    private Optional<String> reload(int root, Path file) {
+        var id = DesktopEntryLoader.getDesktopFileId(directories.get(root), file);
+        var entries = contents.get(root);
+        DesktopEntry entry = null;
+        if (Files.isRegularFile(file)) {
+            try {
+                entry = loader.load(file);
+            } catch (ValidationException | UncheckedIOException ex) {
+                // Invalid files are treated as removed
+            }
+        }
+        DesktopEntry previous;
+        if (entry == null) {
+            previous = entries.remove(id);
+            sources.get(root).remove(id);
+        } else {
+            previous = entries.put(id, entry);
+            sources.get(root).put(id, file);
+        }
+        return Objects.equals(previous, entry) ? Optional.empty() : Optional.of(id);
+    }
+
+    private void registerRoot(int root) {
+        var directory = directories.get(root);
+        if (Files.isDirectory(directory)) {
+            register(root, directory);
+        } else {
+            // Watch the nearest existing parent to detect creation of the directory
+            var parent = directory.toAbsolutePath().getParent();
+            while (parent != null && !Files.isDirectory(parent)) {
+                parent = parent.getParent();
+            }
+            if (parent != null) {
+                watch(parent);
+            }
+        }
+    }
+
+    /**
+     * Loads and watches directory with all its subdirectories.
+     */
+    private void register(int root, Path directory) {
+        var base = directories.get(root);
+        var entries = contents.get(root);
+        var files = sources.get(root);
+        try {
+            Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            watch(dir);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile() && file.getFileName().toString().endsWith(DESKTOP_EXTENSION)) {
+                                try {
+                                    var id = DesktopEntryLoader.getDesktopFileId(base, file);
+                                    entries.put(id, loader.load(file));
+                                    files.put(id, file);
+                                } catch (ValidationException | UncheckedIOException ex) {
+                                    // Invalid or unreadable files are skipped
+                                }
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException ex) {
+            // Directory disappeared, will be handled by the following events
+        }
+    }
+
+    private void watch(Path directory) {
+        try {
+            var key = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            watchKeys.put(key, directory);
+        } catch (IOException ex) {
+            // Directory cannot be watched
+        }
+    }
+
+    private int findRoot(Path path) {
+        for (int i = 0; i < directories.size(); i++) {
+            if (path.startsWith(directories.get(i)) && !path.equals(directories.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isRootOrAncestor(Path path) {
+        for (var directory : directories) {
+            if (directory.startsWith(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Changes {
+        private final Set<Path> files = new LinkedHashSet<>();
+        private final Set<Path> directories = new LinkedHashSet<>();
+        private final Set<Path> deleted = new LinkedHashSet<>();
+        private boolean rescan;
+        private boolean roots;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Binary encoding of desktop entries used by caches.
+ * <p>
+ * Strings are stored as int length followed by UTF-8 bytes. Entry keys defined by the specification are stored as
+ * {@link Key} ordinal, custom keys as -1 followed by the key string. Decoder is not thread-safe.
+ * <p>
+ * As ordinals change when constants are added or reordered, files must store {@link #LAYOUT} and reject data written
+ * with a different value.
+ */
+final class DesktopEntryCodec {
+    private static final Key[] KEYS = Key.values();
+    private static final DesktopEntryType[] TYPES = DesktopEntryType.values();
+    private static final int CUSTOM_KEY = -1;
+
+    /**
+     * Hash of {@link Key} and {@link DesktopEntryType} constant names in declaration order.
+     */
+    static final int LAYOUT = layout();
+
+    private final Map<String, String> locales = new HashMap<>();
+    private byte[] scratch = new byte[256];
+
+    private static int layout() {
+        int hash = 1;
+        for (var key : KEYS) {
+            hash = 31 * hash + key.name().hashCode();
+        }
+        for (var type : TYPES) {
+            hash = 31 * hash + type.name().hashCode();
+        }
+        return hash;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeEntry(DataOutput out, DesktopEntry desktopEntry) throws IOException {
+        out.writeByte(desktopEntry.getType().ordinal());
+        writeEntries(out, desktopEntry.entries());
+        out.writeInt(desktopEntry.actions().size());
+        for (var action : desktopEntry.actions()) {
+            writeString(out, action.name());
+            writeEntries(out, action.entries());
+        }
+    }
+
+    private static void writeEntries(DataOutput out, Iterable<Entry> entries) throws IOException {
+        int count = 0;
+        for (var ignored : entries) {
+            count++;
+        }
+        out.writeInt(count);
+        for (var entry : entries) {
+            if (entry.key() instanceof Key key) {
+                out.writeShort(key.ordinal());
+            } else {
+                out.writeShort(CUSTOM_KEY);
+                writeString(out, entry.key().toString());
+            }
+            writeString(out, entry.locale());
+            writeString(out, entry.value().toString());
+        }
+    }
+
+    String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Corrupted string");
+        }
+        if (length == 0) {
+            return "";
+        }
+        String result;
+        if (buffer.hasArray()) {
+            result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            result = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    DesktopEntry readEntry(ByteBuffer buffer) {
+        int typeOrdinal = buffer.get();
+        if (typeOrdinal < 0 || typeOrdinal >= TYPES.length) {
+            throw new IllegalStateException("Corrupted desktop entry type");
+        }
+        var entries = readEntries(buffer);
+        int actionCount = buffer.getInt();
+        var actions = new ArrayList<ApplicationAction>(actionCount);
+        for (int i = 0; i < actionCount; i++) {
+            var name = readString(buffer);
+            actions.add(new ApplicationAction(name, readEntries(buffer)));
+        }
+        return new DesktopEntry(TYPES[typeOrdinal], entries, actions);
+    }
+
+    private HashSet<Entry> readEntries(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalStateException("Corrupted entry count");
+        }
+        var entries = new HashSet<Entry>(count * 2);
+        for (int i = 0; i < count; i++) {
+            int keyOrdinal = buffer.getShort();
+            CharSequence key;
+            if (keyOrdinal == CUSTOM_KEY) {
+                key = readString(buffer);
+            } else if (keyOrdinal >= 0 && keyOrdinal < KEYS.length) {
+                key = KEYS[keyOrdinal];
+            } else {
+                throw new IllegalStateException("Corrupted entry key");
+            }
+
+            var locale = readString(buffer);
+            var value = readString(buffer);
+            if (locale.isEmpty()) {
+                entries.add(new Entry(key, value));
+            } else {
+                entries.add(new Entry(key, new LocaleString(value, locales.computeIfAbsent(locale, l -> l))));
+            }
+        }
+        return entries;
+    }
+}
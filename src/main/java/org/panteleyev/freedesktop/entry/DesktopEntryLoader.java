@@ -0,0 +1,183 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Loads desktop entry files in bulk.
+ * <p>
+ * Files that fit into the internal buffer are read into the same direct buffer which is reused for every file, larger
+ * files are memory mapped. In both cases bytes are passed to {@link DesktopEntryReader} without intermediate streams
+ * or strings. This roughly halves allocation compared with reading every file through an input stream, but does not
+ * make loading faster: with a warm page cache latency is dominated by parsing, on a cold scan by disk reads and JVM
+ * warm-up, and in both cases it is the same as with input streams within measurement noise.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class DesktopEntryLoader {
+    /**
+     * Default size of the read buffer. Most desktop entry files are smaller than this value.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String DESKTOP_EXTENSION = "." + DesktopEntryType.APPLICATION.getFileExtension();
+
+    private final DesktopEntryReader reader = new DesktopEntryReader();
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates loader with default buffer size.
+     */
+    public DesktopEntryLoader() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates loader.
+     *
+     * @param bufferSize size of the read buffer, files larger than this value are memory mapped
+     */
+    public DesktopEntryLoader(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Loads desktop entry file.
+     *
+     * @param path path to desktop entry file
+     * @return desktop entry
+     * @throws ValidationException  if file content is not a valid desktop entry
+     * @throws UncheckedIOException if file cannot be read
+     */
+    public DesktopEntry load(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ValidationException("File is too large: " + path);
+            }
+
+            if (size <= buffer.capacity()) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                return reader.read(buffer);
+            } else {
+                return reader.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Loads all <code>.desktop</code> files from the directory and its subdirectories. See
+     * {@link #loadDirectory(Path, String)} for details.
+     *
+     * @param directory directory
+     * @return desktop entries sorted by desktop file ID
+     */
+    public SortedMap<String, DesktopEntry> loadDirectory(Path directory) {
+        return loadDirectory(directory, DESKTOP_EXTENSION);
+    }
+
+    /**
+     * Loads all files with a given extension from the directory and its subdirectories. Entries are identified by
+     * desktop file ID, i.e. path relative to the directory with '/' replaced by '-'. If two files produce the same
+     * ID the one with lexicographically smaller relative path is used. Files that cannot be read or parsed are
+     * skipped.
+     *
+     * @param directory     directory
+     * @param fileExtension file extension including leading dot
+     * @return desktop entries sorted by desktop file ID, empty map if directory does not exist
+     */
+    public SortedMap<String, DesktopEntry> loadDirectory(Path directory, String fileExtension) {
+        var result = new TreeMap<String, DesktopEntry>();
+        var paths = new TreeMap<String, String>();
+
+        if (!Files.isDirectory(directory)) {
+            return Collections.unmodifiableSortedMap(result);
+        }
+
+        try {
+            Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (!attrs.isRegularFile() || !file.getFileName().toString().endsWith(fileExtension)) {
+                                return FileVisitResult.CONTINUE;
+                            }
+
+                            var relative = directory.relativize(file).toString();
+                            var id = getDesktopFileId(directory, file);
+                            var existing = paths.get(id);
+                            if (existing != null && existing.compareTo(relative) < 0) {
+                                return FileVisitResult.CONTINUE;
+                            }
+
+                            try {
+                                result.put(id, load(file));
+                                paths.put(id, relative);
+                            } catch (ValidationException | UncheckedIOException ex) {
+                                // Invalid or unreadable files are skipped
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (NoSuchFileException ex) {
+            // Directory has been removed
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    /**
+     * Returns desktop file ID of the file, i.e. path relative to the base directory with '/' replaced by '-'.
+     *
+     * @param directory base directory
+     * @param file      desktop entry file
+     * @return desktop file ID
+     */
+    public static String getDesktopFileId(Path directory, Path file) {
+        var relative = directory.relativize(file);
+        var builder = new StringBuilder();
+        for (var name : relative) {
+            if (!builder.isEmpty()) {
+                builder.append('-');
+            }
+            builder.append(name);
+        }
+        return builder.toString();
+    }
+}
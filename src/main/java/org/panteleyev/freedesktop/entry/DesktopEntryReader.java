@@ -0,0 +1,405 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads desktop entry files into {@link DesktopEntry} instances.
+ * <p>
+ * Parser works directly over the file bytes. Group headers, keys and well-known values are matched without decoding,
+ * only values of the retained groups are converted into strings. Groups other than <code>[Desktop Entry]</code> and
+ * <code>[Desktop Action ...]</code> are skipped. Values of the retained groups are decoded while parsing because
+ * entries store strings; decoding is not deferred until the value is requested. Values are kept exactly as they appear
+ * in the file, i.e. in the same form {@link DesktopEntry#write(java.io.OutputStream)} produces them, escape sequences
+ * are resolved by typed accessors.
+ * <p>
+ * If a key occurs in a group more than once, only the first occurrence is used. Localized keys are distinguished by
+ * locale.
+ * <p>
+ * Instances are not thread-safe but may be reused to parse any number of files.
+ */
+public class DesktopEntryReader {
+    private static final String DESKTOP_ENTRY_GROUP = "Desktop Entry";
+    private static final String DESKTOP_ACTION_PREFIX = "Desktop Action ";
+    private static final String TRUE = Boolean.toString(true);
+    private static final String FALSE = Boolean.toString(false);
+
+    private static final Key[][] KEYS_BY_LENGTH = groupKeysByLength();
+    private static final DesktopEntryType[] TYPES = DesktopEntryType.values();
+
+    private enum Group {
+        NONE,
+        DESKTOP_ENTRY,
+        DESKTOP_ACTION,
+        OTHER
+    }
+
+    private byte[] scratch = new byte[256];
+
+    private Group group;
+    private DesktopEntryType type;
+    private Set<Entry> entries;
+    private long seenKeys;
+    // Custom and localized keys in the key[locale] form
+    private Set<String> seenNames;
+    private String actionName;
+    private Set<Entry> actionEntries;
+    private long seenActionKeys;
+    private Set<String> seenActionNames;
+    private List<ApplicationAction> actions;
+
+    /**
+     * Creates desktop entry reader.
+     */
+    public DesktopEntryReader() {
+    }
+
+    /**
+     * Reads desktop entry from the file.
+     *
+     * @param path path to desktop entry file
+     * @return desktop entry
+     * @throws ValidationException if file content is not a valid desktop entry
+     */
+    public DesktopEntry read(Path path) {
+        try {
+            return read(ByteBuffer.wrap(Files.readAllBytes(path)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Reads desktop entry from the input stream. Stream is read till the end but not closed.
+     *
+     * @param inputStream input stream
+     * @return desktop entry
+     * @throws ValidationException if stream content is not a valid desktop entry
+     */
+    public DesktopEntry read(InputStream inputStream) {
+        try {
+            return read(ByteBuffer.wrap(inputStream.readAllBytes()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Reads desktop entry from the remaining bytes of the buffer. Buffer content must be UTF-8 encoded. Buffer
+     * position and limit are not modified, buffer content is not referenced after this method returns.
+     *
+     * @param buffer byte buffer
+     * @return desktop entry
+     * @throws ValidationException if buffer content is not a valid desktop entry
+     */
+    public DesktopEntry read(ByteBuffer buffer) {
+        group = Group.NONE;
+        type = null;
+        entries = new HashSet<>();
+        seenKeys = 0;
+        seenNames = new HashSet<>();
+        actions = new ArrayList<>();
+        actionName = null;
+
+        try {
+            int limit = buffer.limit();
+            int pos = skipBom(buffer, buffer.position(), limit);
+            while (pos < limit) {
+                int eol = indexOf(buffer, (byte) '\n', pos, limit);
+                int end = eol;
+                if (end > pos && buffer.get(end - 1) == '\r') {
+                    end--;
+                }
+                parseLine(buffer, pos, end);
+                pos = eol + 1;
+            }
+            closeAction();
+
+            if (type == null) {
+                throw new ValidationException("Mandatory key Type is missing");
+            }
+            if ((seenKeys & bit(Key.NAME)) == 0) {
+                throw new ValidationException("Mandatory key Name is missing");
+            }
+            return new DesktopEntry(type, entries, actions);
+        } finally {
+            entries = null;
+            seenNames = null;
+            actionEntries = null;
+            seenActionNames = null;
+            actions = null;
+        }
+    }
+
+    private void parseLine(ByteBuffer buffer, int from, int to) {
+        int start = skipSpaces(buffer, from, to);
+        if (start == to || buffer.get(start) == '#') {
+            return;
+        }
+
+        if (buffer.get(start) == '[') {
+            int end = trimTrailingSpaces(buffer, start, to);
+            if (buffer.get(end - 1) != ']') {
+                throw new ValidationException("Malformed group header");
+            }
+            parseGroupHeader(buffer, start + 1, end - 1);
+            return;
+        }
+
+        switch (group) {
+            case NONE -> throw new ValidationException("Entry outside of any group");
+            case OTHER -> {
+                return;
+            }
+            default -> {
+            }
+        }
+
+        int eq = indexOf(buffer, (byte) '=', start, to);
+        if (eq == to) {
+            throw new ValidationException("Malformed entry, '=' is missing");
+        }
+
+        int keyEnd = trimTrailingSpaces(buffer, start, eq);
+        int localeStart = -1;
+        int localeEnd = -1;
+        if (keyEnd > start && buffer.get(keyEnd - 1) == ']') {
+            localeEnd = keyEnd - 1;
+            localeStart = lastIndexOf(buffer, (byte) '[', start, localeEnd);
+            if (localeStart < 0) {
+                throw new ValidationException("Malformed entry locale");
+            }
+            keyEnd = localeStart++;
+        }
+        if (keyEnd == start) {
+            throw new ValidationException("Malformed entry, key is empty");
+        }
+
+        int valueStart = skipSpaces(buffer, eq + 1, to);
+        int valueEnd = trimTrailingSpaces(buffer, valueStart, to);
+
+        var key = findKey(buffer, start, keyEnd);
+        if (localeStart < 0) {
+            if (key != null) {
+                addKeyEntry(key, buffer, valueStart, valueEnd);
+            } else {
+                var name = decode(buffer, start, keyEnd);
+                if (firstOccurrence(name)) {
+                    currentEntries().add(new Entry(name, decode(buffer, valueStart, valueEnd)));
+                }
+            }
+        } else {
+            var name = key != null ? key.toString() : decode(buffer, start, keyEnd);
+            var locale = decode(buffer, localeStart, localeEnd);
+            if (firstOccurrence(name + "[" + locale + "]")) {
+                var value = new LocaleString(decode(buffer, valueStart, valueEnd), locale);
+                currentEntries().add(new Entry(key != null ? key : name, value));
+            }
+        }
+    }
+
+    private void parseGroupHeader(ByteBuffer buffer, int from, int to) {
+        closeAction();
+        if (matches(buffer, from, to, DESKTOP_ENTRY_GROUP)) {
+            if (group != Group.NONE) {
+                throw new ValidationException("Duplicate [" + DESKTOP_ENTRY_GROUP + "] group");
+            }
+            group = Group.DESKTOP_ENTRY;
+        } else if (group == Group.NONE) {
+            throw new ValidationException("[" + DESKTOP_ENTRY_GROUP + "] must be the first group");
+        } else if (to - from > DESKTOP_ACTION_PREFIX.length()
+                && matches(buffer, from, from + DESKTOP_ACTION_PREFIX.length(), DESKTOP_ACTION_PREFIX))
+        {
+            group = Group.DESKTOP_ACTION;
+            actionName = decode(buffer, from + DESKTOP_ACTION_PREFIX.length(), to);
+            actionEntries = new HashSet<>();
+            seenActionKeys = 0;
+            seenActionNames = new HashSet<>();
+        } else {
+            group = Group.OTHER;
+        }
+    }
+
+    private void closeAction() {
+        if (actionName == null) {
+            return;
+        }
+        if ((seenActionKeys & bit(Key.NAME)) == 0) {
+            throw new ValidationException("Action missing mandatory name");
+        }
+        actions.add(new ApplicationAction(actionName, actionEntries));
+        actionName = null;
+        actionEntries = null;
+        seenActionNames = null;
+    }
+
+    private Set<Entry> currentEntries() {
+        return group == Group.DESKTOP_ACTION ? actionEntries : entries;
+    }
+
+    private boolean firstOccurrence(String name) {
+        return (group == Group.DESKTOP_ACTION ? seenActionNames : seenNames).add(name);
+    }
+
+    private void addKeyEntry(Key key, ByteBuffer buffer, int from, int to) {
+        // Only the first occurrence of the key is used
+        if (group == Group.DESKTOP_ACTION) {
+            if ((seenActionKeys & bit(key)) != 0) {
+                return;
+            }
+            seenActionKeys |= bit(key);
+        } else {
+            if ((seenKeys & bit(key)) != 0) {
+                return;
+            }
+            seenKeys |= bit(key);
+        }
+
+        if (key == Key.TYPE && group == Group.DESKTOP_ENTRY) {
+            type = findType(buffer, from, to);
+            currentEntries().add(new Entry(key, type.toString()));
+            return;
+        }
+        currentEntries().add(new Entry(key, decodeValue(buffer, from, to)));
+    }
+
+    private String decodeValue(ByteBuffer buffer, int from, int to) {
+        if (matches(buffer, from, to, TRUE)) {
+            return TRUE;
+        } else if (matches(buffer, from, to, FALSE)) {
+            return FALSE;
+        } else {
+            return decode(buffer, from, to);
+        }
+    }
+
+    private String decode(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (length == 0) {
+            return "";
+        }
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + from, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Key[][] groupKeysByLength() {
+        var maxLength = Arrays.stream(Key.values()).mapToInt(Key::length).max().orElse(0);
+        var result = new Key[maxLength + 1][];
+        for (int length = 0; length <= maxLength; length++) {
+            int l = length;
+            result[length] = Arrays.stream(Key.values())
+                    .filter(key -> key.length() == l)
+                    .toArray(Key[]::new);
+        }
+        return result;
+    }
+
+    private static Key findKey(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (length >= KEYS_BY_LENGTH.length) {
+            return null;
+        }
+        for (var key : KEYS_BY_LENGTH[length]) {
+            if (matches(buffer, from, to, key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private static DesktopEntryType findType(ByteBuffer buffer, int from, int to) {
+        for (var type : TYPES) {
+            if (matches(buffer, from, to, type.toString())) {
+                return type;
+            }
+        }
+        throw new ValidationException("Unsupported desktop entry type");
+    }
+
+    private static long bit(Key key) {
+        return 1L << key.ordinal();
+    }
+
+    /**
+     * Compares bytes with ASCII character sequence.
+     */
+    private static boolean matches(ByteBuffer buffer, int from, int to, CharSequence ascii) {
+        int length = ascii.length();
+        if (to - from != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(from + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipBom(ByteBuffer buffer, int from, int to) {
+        if (to - from >= 3
+                && buffer.get(from) == (byte) 0xEF
+                && buffer.get(from + 1) == (byte) 0xBB
+                && buffer.get(from + 2) == (byte) 0xBF)
+        {
+            return from + 3;
+        }
+        return from;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, byte b, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(ByteBuffer buffer, int from, int to) {
+        while (from < to && isSpace(buffer.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimTrailingSpaces(ByteBuffer buffer, int from, int to) {
+        while (to > from && isSpace(buffer.get(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Registry of desktop entries for concurrent readers.
+ * <p>
+ * Current content is an immutable {@link DesktopEntrySnapshot} published through an atomic reference. Readers never
+ * lock or block, they just take the current snapshot and work with it as long as they need. Writers create a new
+ * snapshot sharing unchanged structure with the current one and publish it with compare-and-set, retrying if another
+ * writer was faster.
+ */
+public class DesktopEntryRegistry {
+    private final AtomicReference<DesktopEntrySnapshot> snapshot;
+
+    /**
+     * Creates empty registry.
+     */
+    public DesktopEntryRegistry() {
+        this(DesktopEntrySnapshot.empty());
+    }
+
+    /**
+     * Creates registry with initial content.
+     *
+     * @param entries desktop entries by desktop file ID
+     */
+    public DesktopEntryRegistry(Map<String, DesktopEntry> entries) {
+        this.snapshot = new AtomicReference<>(DesktopEntrySnapshot.of(entries));
+    }
+
+    /**
+     * Returns current snapshot.
+     *
+     * @return current snapshot
+     */
+    public DesktopEntrySnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Adds or replaces entry.
+     *
+     * @param id    desktop file ID
+     * @param entry desktop entry
+     * @return new snapshot
+     */
+    public DesktopEntrySnapshot put(String id, DesktopEntry entry) {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(entry);
+        return update(s -> s.with(id, entry));
+    }
+
+    /**
+     * Adds or replaces entries in a single update.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @return new snapshot
+     */
+    public DesktopEntrySnapshot putAll(Map<String, DesktopEntry> entries) {
+        return update(s -> s.withAll(entries));
+    }
+
+    /**
+     * Removes entry.
+     *
+     * @param id desktop file ID
+     * @return new snapshot
+     */
+    public DesktopEntrySnapshot remove(String id) {
+        return update(s -> s.without(id));
+    }
+
+    /**
+     * Removes entries in a single update.
+     *
+     * @param ids desktop file IDs
+     * @return new snapshot
+     */
+    public DesktopEntrySnapshot removeAll(Collection<String> ids) {
+        return update(s -> {
+            for (var id : ids) {
+                s = s.without(id);
+            }
+            return s;
+        });
+    }
+
+    /**
+     * Replaces the whole content. Only entries that differ from the current content are updated.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @return new snapshot
+     */
+    public DesktopEntrySnapshot replace(Map<String, DesktopEntry> entries) {
+        return update(s -> {
+            var result = s;
+            for (var id : s.keySet()) {
+                if (!entries.containsKey(id)) {
+                    result = result.without(id);
+                }
+            }
+            return result.withAll(entries);
+        });
+    }
+
+    /**
+     * Atomically applies update function to the current snapshot. Function may be called several times if other
+     * writers publish their snapshots concurrently, so it must be free of side effects.
+     *
+     * @param function update function
+     * @return new snapshot
+     */
+    public DesktopEntrySnapshot update(UnaryOperator<DesktopEntrySnapshot> function) {
+        while (true) {
+            var current = snapshot.get();
+            var updated = Objects.requireNonNull(function.apply(current));
+            if (updated == current || snapshot.compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans desktop entry directories and merges their content according to desktop file ID precedence: if the same ID
+ * exists in several directories, the entry from the earlier directory is used.
+ * <p>
+ * Directories can be scanned sequentially, with {@link ForkJoinPool} or with any {@link ExecutorService}, for example
+ * virtual thread per task executor on JDK 21+. All methods produce identical results.
+ */
+public class DesktopEntryScanner {
+    private static final int CHUNK_SIZE = 64;
+    private static final String DESKTOP_EXTENSION = "." + DesktopEntryType.APPLICATION.getFileExtension();
+
+    private final List<Path> directories;
+
+    /**
+     * Creates scanner for {@link XDGBaseDirectory#getDesktopEntryDirectories()}.
+     */
+    public DesktopEntryScanner() {
+        this(XDGBaseDirectory.getDesktopEntryDirectories());
+    }
+
+    /**
+     * Creates scanner.
+     *
+     * @param directories preference-ordered list of directories
+     */
+    public DesktopEntryScanner(List<Path> directories) {
+        this.directories = List.copyOf(directories);
+    }
+
+    /**
+     * Returns directories this scanner works with.
+     *
+     * @return preference-ordered list of directories
+     */
+    public List<Path> getDirectories() {
+        return directories;
+    }
+
+    /**
+     * Scans directories sequentially in the calling thread.
+     *
+     * @return desktop entries by desktop file ID
+     */
+    public Map<String, DesktopEntry> scan() {
+        var loader = new DesktopEntryLoader();
+        var results = new ArrayList<Map<String, DesktopEntry>>(directories.size());
+        for (var directory : directories) {
+            results.add(loader.loadDirectory(directory));
+        }
+        return merge(results);
+    }
+
+    /**
+     * Scans directories in parallel using fork/join pool.
+     *
+     * @param pool fork/join pool
+     * @return desktop entries by desktop file ID
+     */
+    public Map<String, DesktopEntry> scan(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        var tasks = new ArrayList<DirectoryTask>(directories.size());
+        for (var directory : directories) {
+            var task = new DirectoryTask(directory, directory, List.of());
+            tasks.add(task);
+            pool.execute(task);
+        }
+
+        var results = new ArrayList<Map<String, DesktopEntry>>(directories.size());
+        for (var task : tasks) {
+            results.add(resolve(task.join()));
+        }
+        return merge(results);
+    }
+
+    /**
+     * Scans directories in parallel using executor service. Directories are listed in the calling thread, files are
+     * parsed by the executor in chunks.
+     *
+     * @param executor executor service
+     * @return desktop entries by desktop file ID
+     */
+    public Map<String, DesktopEntry> scan(ExecutorService executor) {
+        Objects.requireNonNull(executor);
+        var futures = new ArrayList<List<Future<List<LoadedFile>>>>(directories.size());
+        for (var directory : directories) {
+            var files = new ArrayList<Path>();
+            listFiles(directory, List.of(), files, null);
+
+            var directoryFutures = new ArrayList<Future<List<LoadedFile>>>();
+            for (int from = 0; from < files.size(); from += CHUNK_SIZE) {
+                var chunk = files.subList(from, Math.min(from + CHUNK_SIZE, files.size()));
+                Callable<List<LoadedFile>> task = () -> load(directory, chunk);
+                directoryFutures.add(executor.submit(task));
+            }
+            futures.add(directoryFutures);
+        }
+
+        try {
+            var results = new ArrayList<Map<String, DesktopEntry>>(directories.size());
+            for (var directoryFutures : futures) {
+                var loaded = new ArrayList<LoadedFile>();
+                for (var future : directoryFutures) {
+                    loaded.addAll(future.get());
+                }
+                results.add(resolve(loaded));
+            }
+            return merge(results);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futures.forEach(list -> list.forEach(f -> f.cancel(true)));
+            throw new IllegalStateException("Scan interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException rex) {
+                throw rex;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Returns desktop file IDs of all desktop entry files in the directory and its subdirectories. Files are not
+     * parsed.
+     *
+     * @param directory desktop entry directory
+     * @return desktop file IDs, empty set if directory does not exist
+     */
+    public static Set<String> getDesktopFileIds(Path directory) {
+        var files = new ArrayList<Path>();
+        listFiles(directory, List.of(), files, null);
+        var result = new HashSet<String>(files.size() * 2);
+        for (var file : files) {
+            result.add(DesktopEntryLoader.getDesktopFileId(directory, file));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Merges desktop entries of several directories. If the same desktop file ID exists in several maps, the entry
+     * from the earlier map is used.
+     *
+     * @param directoryEntries preference-ordered list of directory contents
+     * @return merged desktop entries
+     */
+    static Map<String, DesktopEntry> merge(List<? extends Map<String, DesktopEntry>> directoryEntries) {
+        var result = new LinkedHashMap<String, DesktopEntry>();
+        for (var entries : directoryEntries) {
+            for (var entry : entries.entrySet()) {
+                result.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Resolves desktop file ID collisions within one directory the same way
+     * {@link DesktopEntryLoader#loadDirectory(Path)} does.
+     */
+    private static SortedMap<String, DesktopEntry> resolve(List<LoadedFile> loaded) {
+        loaded.sort(Comparator.comparing(LoadedFile::relative));
+        var result = new TreeMap<String, DesktopEntry>();
+        for (var file : loaded) {
+            result.putIfAbsent(file.id(), file.entry());
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    private static List<LoadedFile> load(Path root, List<Path> files) {
+        var loader = new DesktopEntryLoader();
+        var result = new ArrayList<LoadedFile>(files.size());
+        for (var file : files) {
+            try {
+                result.add(new LoadedFile(DesktopEntryLoader.getDesktopFileId(root, file),
+                        root.relativize(file).toString(), loader.load(file)));
+            } catch (ValidationException | UncheckedIOException ex) {
+                // Invalid or unreadable files are skipped
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists desktop entry files of the directory. Subdirectories are either added to the list or, if list is null,
+     * traversed recursively. Symbolic links are followed, links pointing to one of the ancestors are ignored.
+     *
+     * @return real path of the directory followed by real paths of its ancestors
+     */
+    private static List<Path> listFiles(Path directory, List<Path> ancestors, List<Path> files,
+            List<Path> subdirectories)
+    {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+
+        try {
+            var realPath = directory.toRealPath();
+            if (ancestors.contains(realPath)) {
+                return null;
+            }
+            var chain = new ArrayList<Path>(ancestors.size() + 1);
+            chain.add(realPath);
+            chain.addAll(ancestors);
+
+            var children = new ArrayList<Path>();
+            try (var stream = Files.newDirectoryStream(directory)) {
+                stream.forEach(children::add);
+            }
+            for (var child : children) {
+                if (Files.isDirectory(child)) {
+                    if (subdirectories != null) {
+                        subdirectories.add(child);
+                    } else {
+                        listFiles(child, chain, files, null);
+                    }
+                } else if (child.getFileName().toString().endsWith(DESKTOP_EXTENSION)
+                        && Files.isRegularFile(child))
+                {
+                    files.add(child);
+                }
+            }
+            return chain;
+        } catch (IOException ex) {
+            // Unreadable directories are skipped
+            return null;
+        }
+    }
+
+    private record LoadedFile(String id, String relative, DesktopEntry entry) {
+    }
+
+    // Tasks are never serialized, ForkJoinTask is Serializable only by inheritance
+    @SuppressWarnings("serial")
+    private static class DirectoryTask extends RecursiveTask<List<LoadedFile>> {
+        private final Path root;
+        private final Path directory;
+        private final List<Path> ancestors;
+
+        DirectoryTask(Path root, Path directory, List<Path> ancestors) {
+            this.root = root;
+            this.directory = directory;
+            this.ancestors = ancestors;
+        }
+
+        @Override
+        protected List<LoadedFile> compute() {
+            var files = new ArrayList<Path>();
+            var subdirectories = new ArrayList<Path>();
+            var chain = listFiles(directory, ancestors, files, subdirectories);
+            if (chain == null) {
+                return new ArrayList<>();
+            }
+
+            var tasks = new ArrayList<RecursiveTask<List<LoadedFile>>>();
+            for (var subdirectory : subdirectories) {
+                tasks.add(new DirectoryTask(root, subdirectory, chain));
+            }
+            for (int from = 0; from < files.size(); from += CHUNK_SIZE) {
+                tasks.add(new FilesTask(root, files.subList(from, Math.min(from + CHUNK_SIZE, files.size()))));
+            }
+
+            var result = new ArrayList<LoadedFile>();
+            for (var task : invokeAll(tasks)) {
+                result.addAll(task.join());
+            }
+            return result;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class FilesTask extends RecursiveTask<List<LoadedFile>> {
+        private final Path root;
+        private final List<Path> files;
+
+        FilesTask(Path root, List<Path> files) {
+            this.root = root;
+            this.files = files;
+        }
+
+        @Override
+        protected List<LoadedFile> compute() {
+            return load(root, files);
+        }
+    }
+}
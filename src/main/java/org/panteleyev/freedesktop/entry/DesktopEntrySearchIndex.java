@@ -0,0 +1,393 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * In-memory search index over <code>Name</code>, <code>GenericName</code>, <code>Keywords</code> and
+ * <code>Comment</code> values of desktop entries for a single locale.
+ * <p>
+ * Escape sequences of values are decoded, then values are split into lower case words with diacritics removed. Sorted
+ * word dictionary answers prefix queries with a binary search, trigram index over the dictionary provides candidates
+ * for fuzzy matching (one typo for words of four characters, two for longer ones). Trigrams include the start of the
+ * word, so a single inserted, deleted or replaced character always leaves a trigram shared with the intended word.
+ * Query words shorter than four characters are matched by prefix only: one typo in them would match too many
+ * unrelated words. Query cost depends on the number of matching words and entries, not on the catalog size.
+ * <p>
+ * Every query word must match. Entries are ranked by the sum of their best match per query word: exact word match
+ * scores higher than prefix match which scores higher than fuzzy match, matches in Name score higher than in
+ * GenericName, Keywords and Comment. Entries whose name starts with the query get an additional bonus.
+ * <p>
+ * Instances are immutable.
+ */
+public final class DesktopEntrySearchIndex {
+    private static final int NAME_WEIGHT = 8;
+    private static final int GENERIC_NAME_WEIGHT = 4;
+    private static final int KEYWORDS_WEIGHT = 3;
+    private static final int COMMENT_WEIGHT = 1;
+
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int FUZZY = 1;
+    private static final int NAME_PREFIX_BONUS = 10;
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+    // Trigrams are taken over the word prefixed with two padding characters that never appear in words
+    private static final String PADDING = "  ";
+    private static final int[] EMPTY = new int[0];
+
+    private final String[] ids;
+    private final String[] names;
+    private final String[] terms;
+    private final int[][] postingDocuments;
+    private final int[][] postingWeights;
+    private final Map<String, int[]> trigrams;
+
+    private DesktopEntrySearchIndex(String[] ids, String[] names, String[] terms, int[][] postingDocuments,
+            int[][] postingWeights, Map<String, int[]> trigrams)
+    {
+        this.ids = ids;
+        this.names = names;
+        this.terms = terms;
+        this.postingDocuments = postingDocuments;
+        this.postingWeights = postingWeights;
+        this.trigrams = trigrams;
+    }
+
+    /**
+     * Builds index for the locale. Both localized and default values are indexed.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @param locale  locale
+     * @return search index
+     */
+    public static DesktopEntrySearchIndex of(Map<String, DesktopEntry> entries, Locale locale) {
+        var fallback = LocaleFallback.of(locale);
+        var sorted = new TreeMap<>(entries);
+        var ids = new String[sorted.size()];
+        var names = new String[sorted.size()];
+        var postings = new HashMap<String, PostingBuilder>();
+
+        int document = 0;
+        for (var entry : sorted.entrySet()) {
+            var desktopEntry = entry.getValue();
+            ids[document] = entry.getKey();
+
+            var name = Objects.requireNonNullElse(desktopEntry.value(Key.NAME, fallback), "");
+            names[document] = normalize(name.isEmpty() ? entry.getKey() : DesktopEntry.unescape(name));
+
+            index(postings, document, name, NAME_WEIGHT);
+            index(postings, document, Objects.requireNonNullElse(desktopEntry.value(Key.NAME), ""), NAME_WEIGHT);
+            for (var key : List.of(Key.GENERIC_NAME, Key.KEYWORDS, Key.COMMENT)) {
+                var weight = switch (key) {
+                    case GENERIC_NAME -> GENERIC_NAME_WEIGHT;
+                    case KEYWORDS -> KEYWORDS_WEIGHT;
+                    default -> COMMENT_WEIGHT;
+                };
+                index(postings, document, Objects.requireNonNullElse(desktopEntry.value(key, fallback), ""), weight);
+                index(postings, document, Objects.requireNonNullElse(desktopEntry.value(key), ""), weight);
+            }
+            document++;
+        }
+
+        var terms = postings.keySet().toArray(String[]::new);
+        Arrays.sort(terms);
+        var postingDocuments = new int[terms.length][];
+        var postingWeights = new int[terms.length][];
+        var trigramBuilders = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < terms.length; i++) {
+            var builder = postings.get(terms[i]);
+            postingDocuments[i] = Arrays.copyOf(builder.documents, builder.size);
+            postingWeights[i] = Arrays.copyOf(builder.weights, builder.size);
+            for (var trigram : trigrams(terms[i])) {
+                var list = trigramBuilders.computeIfAbsent(trigram, k -> new ArrayList<>());
+                if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                    list.add(i);
+                }
+            }
+        }
+        var trigrams = new HashMap<String, int[]>();
+        trigramBuilders.forEach((trigram, list) ->
+                trigrams.put(trigram, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new DesktopEntrySearchIndex(ids, names, terms, postingDocuments, postingWeights, Map.copyOf(trigrams));
+    }
+
+    /**
+     * Returns number of indexed entries.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Searches entries.
+     *
+     * @param query search query
+     * @param limit maximum number of results
+     * @return desktop file IDs ordered by rank
+     */
+    public List<String> search(String query, int limit) {
+        var queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        int[] documents = null;
+        int[] scores = null;
+        for (var term : queryTerms) {
+            var matches = new Matches();
+            match(term, matches);
+            matches.reduce();
+            if (documents == null) {
+                documents = Arrays.copyOf(matches.documents, matches.size);
+                scores = Arrays.copyOf(matches.scores, matches.size);
+            } else {
+                // Intersect sorted document lists
+                int size = 0;
+                int i = 0;
+                int j = 0;
+                while (i < documents.length && j < matches.size) {
+                    if (documents[i] < matches.documents[j]) {
+                        i++;
+                    } else if (documents[i] > matches.documents[j]) {
+                        j++;
+                    } else {
+                        documents[size] = documents[i];
+                        scores[size++] = scores[i++] + matches.scores[j++];
+                    }
+                }
+                documents = Arrays.copyOf(documents, size);
+                scores = Arrays.copyOf(scores, size);
+            }
+            if (documents.length == 0) {
+                return List.of();
+            }
+        }
+
+        var normalizedQuery = String.join(" ", queryTerms);
+        var ranked = new Integer[documents.length];
+        for (int i = 0; i < documents.length; i++) {
+            if (names[documents[i]].startsWith(normalizedQuery)) {
+                scores[i] += NAME_PREFIX_BONUS;
+            }
+            ranked[i] = i;
+        }
+        int[] finalDocuments = documents;
+        int[] finalScores = scores;
+        Arrays.sort(ranked, Comparator.<Integer>comparingInt(i -> -finalScores[i])
+                .thenComparing(i -> names[finalDocuments[i]])
+                .thenComparing(i -> ids[finalDocuments[i]]));
+
+        var result = new ArrayList<String>(Math.min(limit, ranked.length));
+        for (int i = 0; i < ranked.length && i < limit; i++) {
+            result.add(ids[documents[ranked[i]]]);
+        }
+        return result;
+    }
+
+    private void match(String term, Matches matches) {
+        // Exact and prefix matches form a contiguous range in the sorted dictionary
+        int from = lowerBound(term);
+        int index = from;
+        while (index < terms.length && terms[index].startsWith(term)) {
+            matches.add(index, terms[index].length() == term.length() ? EXACT : PREFIX);
+            index++;
+        }
+
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return;
+        }
+        int maxDistance = term.length() <= 4 ? 1 : 2;
+        var termTrigrams = trigrams(term);
+        int threshold = Math.max(1, termTrigrams.size() - 3 * maxDistance);
+
+        var shared = new HashMap<Integer, Integer>();
+        for (var trigram : termTrigrams) {
+            for (var candidate : trigrams.getOrDefault(trigram, EMPTY)) {
+                shared.merge(candidate, 1, Integer::sum);
+            }
+        }
+        for (var candidate : shared.entrySet()) {
+            int termIndex = candidate.getKey();
+            if (candidate.getValue() < threshold || (termIndex >= from && termIndex < index)) {
+                continue;
+            }
+            if (prefixDistance(term, terms[termIndex], maxDistance) <= maxDistance) {
+                matches.add(termIndex, FUZZY);
+            }
+        }
+    }
+
+    private int lowerBound(String term) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(term) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private final class Matches {
+        private int[] documents = new int[16];
+        private int[] scores = new int[16];
+        private int size;
+
+        void add(int termIndex, int factor) {
+            var docs = postingDocuments[termIndex];
+            var weights = postingWeights[termIndex];
+            for (int i = 0; i < docs.length; i++) {
+                if (size == documents.length) {
+                    documents = Arrays.copyOf(documents, size * 2);
+                    scores = Arrays.copyOf(scores, size * 2);
+                }
+                documents[size] = docs[i];
+                scores[size++] = weights[i] * factor;
+            }
+        }
+
+        /**
+         * Sorts by document keeping the best score of each document.
+         */
+        void reduce() {
+            var order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) documents[i] << 32) | (Integer.MAX_VALUE - scores[i]);
+            }
+            Arrays.sort(order);
+            int newSize = 0;
+            for (int i = 0; i < order.length; i++) {
+                int document = (int) (order[i] >>> 32);
+                if (newSize > 0 && documents[newSize - 1] == document) {
+                    continue;
+                }
+                documents[newSize] = document;
+                scores[newSize++] = Integer.MAX_VALUE - (int) order[i];
+            }
+            size = newSize;
+        }
+    }
+
+    private static void index(Map<String, PostingBuilder> postings, int document, String value, int weight) {
+        for (var term : tokenize(DesktopEntry.unescape(value))) {
+            postings.computeIfAbsent(term, k -> new PostingBuilder()).add(document, weight);
+        }
+    }
+
+    static String normalize(String value) {
+        var decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        var builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            var c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                builder.append(c);
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String value) {
+        var result = new ArrayList<String>();
+        var normalized = normalize(value);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                result.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static List<String> trigrams(String term) {
+        var padded = PADDING + term;
+        var result = new ArrayList<String>(term.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            var trigram = padded.substring(i, i + 3);
+            if (!result.contains(trigram)) {
+                result.add(trigram);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns minimal edit distance between the query and any prefix of the term with length close to the query
+     * length. Adjacent transpositions count as a single edit.
+     */
+    static int prefixDistance(String query, String term, int maxDistance) {
+        int best = Integer.MAX_VALUE;
+        for (int length = query.length() - maxDistance; length <= query.length() + maxDistance; length++) {
+            if (length <= 0 || length > term.length()) {
+                continue;
+            }
+            best = Math.min(best, distance(query, term.substring(0, length)));
+        }
+        return best;
+    }
+
+    private static int distance(String a, String b) {
+        var previous2 = new int[b.length() + 1];
+        var previous = new int[b.length() + 1];
+        var current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+            }
+            var tmp = previous2;
+            previous2 = previous;
+            previous = current;
+            current = tmp;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class PostingBuilder {
+        private int[] documents = new int[4];
+        private int[] weights = new int[4];
+        private int size;
+
+        void add(int document, int weight) {
+            if (size > 0 && documents[size - 1] == document) {
+                weights[size - 1] = Math.max(weights[size - 1], weight);
+                return;
+            }
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            documents[size] = document;
+            weights[size++] = weight;
+        }
+    }
+}
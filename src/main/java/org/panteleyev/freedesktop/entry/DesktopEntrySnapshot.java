@@ -0,0 +1,130 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of desktop entries by desktop file ID.
+ * <p>
+ * Modification methods return a new snapshot sharing unchanged structure with this one, so updating a single entry
+ * does not copy the whole map. Snapshot implements read-only {@link Map}, mutators of the {@link Map} interface throw
+ * {@link UnsupportedOperationException}. Iteration order is unspecified.
+ */
+public final class DesktopEntrySnapshot extends AbstractMap<String, DesktopEntry> {
+    private static final DesktopEntrySnapshot EMPTY = new DesktopEntrySnapshot(PersistentHashMap.empty(), 0);
+
+    private final PersistentHashMap<String, DesktopEntry> map;
+    private final long version;
+    private final Set<Map.Entry<String, DesktopEntry>> entrySet = new AbstractSet<>() {
+        @Override
+        public Iterator<Map.Entry<String, DesktopEntry>> iterator() {
+            return map.iterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+    };
+
+    private DesktopEntrySnapshot(PersistentHashMap<String, DesktopEntry> map, long version) {
+        this.map = map;
+        this.version = version;
+    }
+
+    /**
+     * Returns empty snapshot.
+     *
+     * @return empty snapshot
+     */
+    public static DesktopEntrySnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates snapshot with the content of the map.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @return snapshot
+     */
+    public static DesktopEntrySnapshot of(Map<String, DesktopEntry> entries) {
+        if (entries instanceof DesktopEntrySnapshot snapshot) {
+            return snapshot;
+        }
+        return EMPTY.withAll(entries);
+    }
+
+    /**
+     * Returns snapshot version. Version is incremented by every modification that changes content.
+     *
+     * @return version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns snapshot with added or replaced entry.
+     *
+     * @param id    desktop file ID
+     * @param entry desktop entry
+     * @return new snapshot or this snapshot if nothing changed
+     */
+    public DesktopEntrySnapshot with(String id, DesktopEntry entry) {
+        var newMap = map.put(Objects.requireNonNull(id), Objects.requireNonNull(entry));
+        return newMap == map ? this : new DesktopEntrySnapshot(newMap, version + 1);
+    }
+
+    /**
+     * Returns snapshot with added or replaced entries.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @return new snapshot or this snapshot if nothing changed
+     */
+    public DesktopEntrySnapshot withAll(Map<String, DesktopEntry> entries) {
+        var newMap = map;
+        for (var entry : entries.entrySet()) {
+            newMap = newMap.put(entry.getKey(), entry.getValue());
+        }
+        return newMap == map ? this : new DesktopEntrySnapshot(newMap, version + 1);
+    }
+
+    /**
+     * Returns snapshot without entry.
+     *
+     * @param id desktop file ID
+     * @return new snapshot or this snapshot if nothing changed
+     */
+    public DesktopEntrySnapshot without(String id) {
+        var newMap = map.remove(id);
+        return newMap == map ? this : new DesktopEntrySnapshot(newMap, version + 1);
+    }
+
+    @Override
+    public DesktopEntry get(Object key) {
+        return key == null ? null : map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, DesktopEntry>> entrySet() {
+        return entrySet;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.panteleyev.freedesktop.internal.AtomicFiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Writes desktop entries as UTF-8 encoded bytes.
+ * <p>
+ * Output is encoded directly into a byte buffer: key names and group headers are precomputed UTF-8 bytes, values are
+ * encoded character by character, entries are stored already sorted by {@link DesktopEntry}. Writing does not
+ * allocate except when the internal buffer must grow. Lines are separated with <code>'\n'</code> regardless of the
+ * platform.
+ * <p>
+ * {@link #writeAtomically(DesktopEntry, Path, Sync, boolean)} replaces files atomically, so readers see either the
+ * old or the new content and never a partially written file.
+ * <p>
+ * Instances are not thread-safe but may be reused to write any number of entries.
+ */
+public class DesktopEntryWriter {
+    /**
+     * Defines how written data is flushed to the storage device.
+     */
+    public enum Sync {
+        /**
+         * Data is not flushed explicitly. File content is consistent after an application crash but may be lost after
+         * a power failure.
+         */
+        NONE,
+        /**
+         * File content is flushed before the file is moved into place.
+         */
+        FILE,
+        /**
+         * File content is flushed before the move and the directory is flushed after it, so the new file survives a
+         * power failure.
+         */
+        FILE_AND_DIRECTORY
+    }
+
+    /**
+     * Default initial size of the internal buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Order of entries in the output: keys defined by the specification in declaration order followed by custom
+     * keys in lexicographic order, localized values follow the default one. Duplicate keys are ordered by value.
+     */
+    static final Comparator<Entry> ENTRY_COMPARATOR = ((Comparator<Entry>) (o1, o2) -> {
+        if (o1.key() instanceof Key k1 && o2.key() instanceof Key k2) {
+            return k1.compareTo(k2);
+        } else if (o1.key() instanceof String s1 && o2.key() instanceof String s2) {
+            return s1.compareTo(s2);
+        } else if (o1.key() instanceof Key && o2.key() instanceof String) {
+            return -1;
+        } else {
+            return 1;
+        }
+    }).thenComparing(Entry::locale).thenComparing(entry -> entry.value().toString());
+
+    private static final byte[] DESKTOP_ENTRY = "[Desktop Entry]\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DESKTOP_ACTION = "\n[Desktop Action ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[][] KEYS = new byte[Key.values().length][];
+
+    static {
+        for (var key : Key.values()) {
+            KEYS[key.ordinal()] = key.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private ByteBuffer buffer;
+    private ByteBuffer compareBuffer;
+
+    /**
+     * Creates writer with default buffer size.
+     */
+    public DesktopEntryWriter() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates writer.
+     *
+     * @param bufferSize initial size of the internal buffer, buffer grows if an entry does not fit
+     */
+    public DesktopEntryWriter(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Encodes desktop entry into the buffer starting at its current position. Position is advanced by the number of
+     * written bytes.
+     *
+     * @param entry  desktop entry
+     * @param target target buffer
+     * @return number of written bytes
+     * @throws BufferOverflowException if buffer does not have enough space, buffer content after its initial
+     *                                 position is undefined in this case
+     */
+    public int write(DesktopEntry entry, ByteBuffer target) {
+        int start = target.position();
+        target.put(DESKTOP_ENTRY);
+        writeEntries(target, entry.sortedEntries());
+        for (var action : entry.actions()) {
+            target.put(DESKTOP_ACTION);
+            putUtf8(target, action.name());
+            target.put((byte) ']');
+            target.put((byte) '\n');
+            writeEntries(target, action.sortedEntries());
+        }
+        return target.position() - start;
+    }
+
+    /**
+     * Writes desktop entry into the channel.
+     *
+     * @param entry   desktop entry
+     * @param channel channel
+     * @return number of written bytes
+     * @throws UncheckedIOException if channel cannot be written
+     */
+    public int write(DesktopEntry entry, WritableByteChannel channel) {
+        var encoded = encode(entry);
+        try {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return encoded.limit();
+    }
+
+    /**
+     * Writes desktop entry into the output stream. Stream is not closed.
+     *
+     * @param entry        desktop entry
+     * @param outputStream output stream
+     * @return number of written bytes
+     * @throws UncheckedIOException if stream cannot be written
+     */
+    public int write(DesktopEntry entry, OutputStream outputStream) {
+        var encoded = encode(entry);
+        try {
+            outputStream.write(encoded.array(), 0, encoded.limit());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return encoded.limit();
+    }
+
+    /**
+     * Writes desktop entry into the file atomically. Content is written into a temporary file in the same directory
+     * which then replaces the target file with an atomic move. New files get <code>rw-r--r--</code> permissions,
+     * permissions of the replaced file are preserved.
+     *
+     * @param entry           desktop entry
+     * @param path            target file, its directory must exist
+     * @param sync            flush policy
+     * @param skipIfIdentical if true and the file already has exactly the same content it is not written, so its
+     *                        modification time does not change and file watchers are not triggered
+     * @return true if file was written, false if it was skipped
+     * @throws UncheckedIOException if file cannot be written, including the case when file system does not support
+     *                              atomic move, then the target file is left unchanged
+     */
+    public boolean writeAtomically(DesktopEntry entry, Path path, Sync sync, boolean skipIfIdentical) {
+        Objects.requireNonNull(sync);
+        var encoded = encode(entry);
+        try {
+            if (skipIfIdentical && hasContent(path, encoded)) {
+                return false;
+            }
+
+            var target = path.toAbsolutePath();
+            var directory = target.getParent();
+            var temp = AtomicFiles.createTempFile(target);
+            try {
+                try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    while (encoded.hasRemaining()) {
+                        channel.write(encoded);
+                    }
+                    if (sync != Sync.NONE) {
+                        channel.force(true);
+                    }
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            if (sync == Sync.FILE_AND_DIRECTORY) {
+                syncDirectory(directory);
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Checks if file content is equal to the remaining bytes of the buffer. Buffer position is not changed.
+     */
+    private boolean hasContent(Path path, ByteBuffer expected) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int size = expected.remaining();
+            if (channel.size() != size) {
+                return false;
+            }
+            if (compareBuffer == null || compareBuffer.capacity() < size) {
+                compareBuffer = ByteBuffer.allocate(Math.max(size, buffer.capacity()));
+            }
+            compareBuffer.clear().limit(size);
+            while (compareBuffer.hasRemaining()) {
+                if (channel.read(compareBuffer) < 0) {
+                    return false;
+                }
+            }
+            return compareBuffer.flip().equals(expected);
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Flushes directory metadata. Errors are ignored as not all platforms allow to open or flush directories.
+     */
+    static void syncDirectory(Path directory) {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Ignore
+        }
+    }
+
+    /**
+     * Encodes entry into the internal buffer growing it if necessary.
+     *
+     * @return internal buffer flipped for reading
+     */
+    private ByteBuffer encode(DesktopEntry entry) {
+        while (true) {
+            buffer.clear();
+            try {
+                write(entry, buffer);
+                return buffer.flip();
+            } catch (BufferOverflowException ex) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private static void writeEntries(ByteBuffer target, Entry[] entries) {
+        for (var entry : entries) {
+            if (entry.key() instanceof Key key) {
+                target.put(KEYS[key.ordinal()]);
+            } else {
+                putUtf8(target, entry.key());
+            }
+            var locale = entry.locale();
+            if (!locale.isEmpty()) {
+                target.put((byte) '[');
+                putUtf8(target, locale);
+                target.put((byte) ']');
+            }
+            target.put((byte) '=');
+            putUtf8(target, entry.value());
+            target.put((byte) '\n');
+        }
+    }
+
+    /**
+     * Encodes characters as UTF-8. Unpaired surrogates are replaced with <code>'?'</code> as
+     * {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    static void putUtf8(ByteBuffer target, CharSequence value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                target.put((byte) c);
+            } else if (c < 0x800) {
+                target.put((byte) (0xC0 | (c >> 6)));
+                target.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    target.put((byte) (0xF0 | (codePoint >> 18)));
+                    target.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    target.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    target.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    target.put((byte) '?');
+                }
+            } else {
+                target.put((byte) (0xE0 | (c >> 12)));
+                target.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                target.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable storage of group entries.
+ * <p>
+ * Entries are kept in a single array sorted in output order: keys defined by the specification in declaration order
+ * followed by custom keys, localized values follow the default one. Range of every specification key in the array
+ * is indexed by key ordinal, default values of specification keys are stored in slots indexed by key ordinal as well.
+ * Default values are therefore found with a single array access, localized values and custom keys with a binary
+ * search, and the array is written as is.
+ */
+final class EntryTable {
+    private static final Key[] KEYS = Key.values();
+    private static final Map<String, Key> KEYS_BY_NAME = new HashMap<>();
+
+    static {
+        for (var key : KEYS) {
+            KEYS_BY_NAME.put(key.toString(), key);
+        }
+    }
+
+    private final Entry[] entries;
+    private final String[] values = new String[KEYS.length];
+    // offsets[ordinal] is the first entry of the key, offsets[KEYS.length] is the first custom entry
+    private final int[] offsets = new int[KEYS.length + 1];
+    private final int hash;
+
+    EntryTable(Collection<Entry> entries) {
+        this.entries = Set.copyOf(entries).toArray(Entry[]::new);
+        Arrays.sort(this.entries, DesktopEntryWriter.ENTRY_COMPARATOR);
+
+        int index = 0;
+        for (var key : KEYS) {
+            offsets[key.ordinal()] = index;
+            while (index < this.entries.length && this.entries[index].key() == key) {
+                if (values[key.ordinal()] == null && this.entries[index].locale().isEmpty()) {
+                    values[key.ordinal()] = this.entries[index].value().toString();
+                }
+                index++;
+            }
+        }
+        offsets[KEYS.length] = index;
+
+        int h = 0;
+        for (var entry : this.entries) {
+            h += entry.hashCode();
+        }
+        hash = h;
+    }
+
+    /**
+     * Returns entries in output order. Array must not be modified.
+     */
+    Entry[] entries() {
+        return entries;
+    }
+
+    List<Entry> asList() {
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    /**
+     * Returns default value of the key.
+     *
+     * @return value or null
+     */
+    String get(Key key) {
+        return values[key.ordinal()];
+    }
+
+    /**
+     * Returns value of the key with exactly matching locale.
+     *
+     * @return value or null
+     */
+    String get(Key key, String locale) {
+        if (locale.isEmpty()) {
+            return get(key);
+        }
+        int from = offsets[key.ordinal()];
+        int to = offsets[key.ordinal() + 1];
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (entries[middle].locale().compareTo(locale) < 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from < offsets[key.ordinal() + 1] && entries[from].locale().equals(locale)
+                ? entries[from].value().toString() : null;
+    }
+
+    /**
+     * Returns localized value of the key trying locales of the fallback chain and then the default value.
+     *
+     * @return value or null
+     */
+    String get(Key key, LocaleFallback fallback) {
+        // Most keys are not localized, do not search if there is nothing but the default value
+        int localized = offsets[key.ordinal() + 1] - offsets[key.ordinal()] - (values[key.ordinal()] == null ? 0 : 1);
+        if (localized > 0) {
+            for (var locale : fallback.locales()) {
+                var value = get(key, locale);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return get(key);
+    }
+
+    /**
+     * Returns localized value of the key trying locales of the fallback chain and then the default value. Key may be
+     * either defined by the specification or custom.
+     *
+     * @return value or null
+     */
+    String get(String key, LocaleFallback fallback) {
+        for (var locale : fallback.locales()) {
+            var value = get(key, locale);
+            if (value != null) {
+                return value;
+            }
+        }
+        return get(key, "");
+    }
+
+    /**
+     * Returns value of the key with exactly matching locale. Key may be either defined by the specification or
+     * custom.
+     *
+     * @return value or null
+     */
+    String get(String key, String locale) {
+        var specKey = KEYS_BY_NAME.get(key);
+        if (specKey != null) {
+            var value = get(specKey, locale);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        int from = offsets[KEYS.length];
+        int to = entries.length;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (compareCustom(entries[middle], key, locale) < 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from < entries.length && compareCustom(entries[from], key, locale) == 0
+                ? entries[from].value().toString() : null;
+    }
+
+    private static int compareCustom(Entry entry, String key, String locale) {
+        int result = entry.key().toString().compareTo(key);
+        return result != 0 ? result : entry.locale().compareTo(locale);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof EntryTable that
+                && hash == that.hash
+                && Arrays.equals(entries, that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
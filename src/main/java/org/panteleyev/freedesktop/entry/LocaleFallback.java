@@ -0,0 +1,118 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Order in which localized values are looked up according to the
+ * <a href="https://specifications.freedesktop.org/desktop-entry-spec/desktop-entry-spec-1.5.html#localized-keys">specification</a>:
+ * <code>lang_COUNTRY@MODIFIER</code>, <code>lang_COUNTRY</code>, <code>lang@MODIFIER</code>, <code>lang</code> and
+ * finally the default value.
+ * <p>
+ * Java locale is converted as follows: variant becomes the modifier in lower case, if there is no variant Latin and
+ * Cyrillic scripts become <code>latin</code> and <code>cyrillic</code> modifiers. Instances are cached, so the chain
+ * for a given locale is computed once and shared by all lookups.
+ */
+public final class LocaleFallback {
+    private static final Map<Locale, LocaleFallback> BY_LOCALE = new ConcurrentHashMap<>();
+    private static final Map<String, LocaleFallback> BY_NAME = new ConcurrentHashMap<>();
+    private static final Map<String, String> SCRIPT_MODIFIERS = Map.of(
+            "Latn", "latin",
+            "Cyrl", "cyrillic"
+    );
+
+    private final String[] locales;
+
+    private LocaleFallback(String language, String country, String modifier) {
+        var result = new ArrayList<String>(4);
+        if (!language.isEmpty()) {
+            if (!country.isEmpty()) {
+                if (!modifier.isEmpty()) {
+                    result.add(language + "_" + country + "@" + modifier);
+                }
+                result.add(language + "_" + country);
+            }
+            if (!modifier.isEmpty()) {
+                result.add(language + "@" + modifier);
+            }
+            result.add(language);
+        }
+        this.locales = result.toArray(String[]::new);
+    }
+
+    /**
+     * Returns fallback chain for Java locale.
+     *
+     * @param locale locale
+     * @return fallback chain
+     */
+    public static LocaleFallback of(Locale locale) {
+        Objects.requireNonNull(locale);
+        return BY_LOCALE.computeIfAbsent(locale, l -> {
+            var modifier = l.getVariant().isEmpty()
+                    ? SCRIPT_MODIFIERS.getOrDefault(l.getScript(), "")
+                    : l.getVariant().toLowerCase(Locale.ROOT);
+            return new LocaleFallback(l.getLanguage(), l.getCountry(), modifier);
+        });
+    }
+
+    /**
+     * Returns fallback chain for POSIX locale name, for example value of <code>LC_MESSAGES</code> like
+     * <code>sr_RS.UTF-8@latin</code>. Encoding is ignored, <code>C</code> and <code>POSIX</code> locales produce
+     * an empty chain.
+     *
+     * @param name POSIX locale name
+     * @return fallback chain
+     */
+    public static LocaleFallback of(String name) {
+        Objects.requireNonNull(name);
+        return BY_NAME.computeIfAbsent(name, n -> {
+            var modifier = "";
+            var at = n.indexOf('@');
+            if (at >= 0) {
+                modifier = n.substring(at + 1);
+                n = n.substring(0, at);
+            }
+            var dot = n.indexOf('.');
+            if (dot >= 0) {
+                n = n.substring(0, dot);
+            }
+            var country = "";
+            var underscore = n.indexOf('_');
+            if (underscore >= 0) {
+                country = n.substring(underscore + 1);
+                n = n.substring(0, underscore);
+            }
+            if (n.equals("C") || n.equals("POSIX")) {
+                return new LocaleFallback("", "", "");
+            }
+            return new LocaleFallback(n, country, modifier);
+        });
+    }
+
+    /**
+     * Returns locales in lookup order. Default value that is used last is not included.
+     *
+     * @return list of locales
+     */
+    public List<String> getLocales() {
+        return List.of(locales);
+    }
+
+    String[] locales() {
+        return locales;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(", ", locales);
+    }
+}
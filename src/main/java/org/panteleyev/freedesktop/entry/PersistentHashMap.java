@@ -0,0 +1,332 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Immutable hash array mapped trie. Updates return a new map that shares all unchanged nodes with the original one,
+ * so an update copies at most one node per trie level.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_SHIFT = 30;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(new Branch(0, new Object[0]), 0);
+
+    private final Branch root;
+    private final int size;
+
+    private PersistentHashMap(Branch root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        int hash = hash(key);
+        Object node = root;
+        int shift = 0;
+        while (true) {
+            if (node instanceof Branch branch) {
+                int bit = bit(hash, shift);
+                if ((branch.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = branch.children[branch.index(bit)];
+                shift += BITS;
+            } else if (node instanceof Leaf<?, ?> leaf) {
+                return leaf.hash == hash && leaf.key.equals(key) ? (V) leaf.value : null;
+            } else {
+                for (var leaf : ((Collision) node).leaves) {
+                    if (leaf.key.equals(key)) {
+                        return (V) leaf.value;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    PersistentHashMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        var leaf = new Leaf<>(hash(key), key, value);
+        var result = new int[1];
+        var newRoot = (Branch) put(root, leaf, 0, result);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, size + result[0]);
+    }
+
+    PersistentHashMap<K, V> remove(Object key) {
+        var newRoot = remove(root, hash(key), key, 0, true);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>((Branch) newRoot, size - 1);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new LeafIterator<>(root);
+    }
+
+    /**
+     * Inserts leaf into the node.
+     *
+     * @param added set to 1 if a new key was added
+     */
+    private static Object put(Object node, Leaf<?, ?> leaf, int shift, int[] added) {
+        if (node instanceof Branch branch) {
+            int bit = bit(leaf.hash, shift);
+            int index = branch.index(bit);
+            if ((branch.bitmap & bit) == 0) {
+                added[0] = 1;
+                var children = new Object[branch.children.length + 1];
+                System.arraycopy(branch.children, 0, children, 0, index);
+                children[index] = leaf;
+                System.arraycopy(branch.children, index, children, index + 1, branch.children.length - index);
+                return new Branch(branch.bitmap | bit, children);
+            }
+            var child = branch.children[index];
+            var newChild = put(child, leaf, shift + BITS, added);
+            if (newChild == child) {
+                return branch;
+            }
+            var children = branch.children.clone();
+            children[index] = newChild;
+            return new Branch(branch.bitmap, children);
+        } else if (node instanceof Leaf<?, ?> existing) {
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                return existing.value.equals(leaf.value) ? existing : leaf;
+            }
+            added[0] = 1;
+            if (existing.hash == leaf.hash) {
+                return new Collision(leaf.hash, new Leaf<?, ?>[]{existing, leaf});
+            }
+            return merge(existing, leaf, shift);
+        } else {
+            var collision = (Collision) node;
+            if (collision.hash != leaf.hash) {
+                added[0] = 1;
+                var branch = new Branch(bit(collision.hash, shift), new Object[]{collision});
+                return put(branch, leaf, shift, new int[1]);
+            }
+            var leaves = collision.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    if (leaves[i].value.equals(leaf.value)) {
+                        return collision;
+                    }
+                    var newLeaves = leaves.clone();
+                    newLeaves[i] = leaf;
+                    return new Collision(leaf.hash, newLeaves);
+                }
+            }
+            added[0] = 1;
+            var newLeaves = Arrays.copyOf(leaves, leaves.length + 1);
+            newLeaves[leaves.length] = leaf;
+            return new Collision(leaf.hash, newLeaves);
+        }
+    }
+
+    private static Object merge(Leaf<?, ?> first, Leaf<?, ?> second, int shift) {
+        if (shift > MAX_SHIFT) {
+            return new Collision(first.hash, new Leaf<?, ?>[]{first, second});
+        }
+        int firstBit = bit(first.hash, shift);
+        int secondBit = bit(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new Branch(firstBit, new Object[]{merge(first, second, shift + BITS)});
+        }
+        return Integer.compareUnsigned(firstBit, secondBit) < 0 ?
+                new Branch(firstBit | secondBit, new Object[]{first, second})
+                : new Branch(firstBit | secondBit, new Object[]{second, first});
+    }
+
+    /**
+     * Removes key from the node. Returns null if node becomes empty, the only remaining leaf if a non-root branch
+     * would contain just one leaf, or the same node if key was not found.
+     */
+    private static Object remove(Object node, int hash, Object key, int shift, boolean isRoot) {
+        if (node instanceof Branch branch) {
+            int bit = bit(hash, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return branch;
+            }
+            int index = branch.index(bit);
+            var child = branch.children[index];
+            var newChild = remove(child, hash, key, shift + BITS, false);
+            if (newChild == child) {
+                return branch;
+            }
+            if (newChild != null) {
+                if (!isRoot && branch.children.length == 1 && !(newChild instanceof Branch)) {
+                    return newChild;
+                }
+                var children = branch.children.clone();
+                children[index] = newChild;
+                return new Branch(branch.bitmap, children);
+            }
+            if (!isRoot && branch.children.length == 2) {
+                var other = branch.children[1 - index];
+                if (!(other instanceof Branch)) {
+                    return other;
+                }
+            }
+            if (!isRoot && branch.children.length == 1) {
+                return null;
+            }
+            var children = new Object[branch.children.length - 1];
+            System.arraycopy(branch.children, 0, children, 0, index);
+            System.arraycopy(branch.children, index + 1, children, index, children.length - index);
+            return new Branch(branch.bitmap & ~bit, children);
+        } else if (node instanceof Leaf<?, ?> leaf) {
+            return leaf.hash == hash && leaf.key.equals(key) ? null : leaf;
+        } else {
+            var collision = (Collision) node;
+            if (collision.hash != hash) {
+                return collision;
+            }
+            var leaves = collision.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    if (leaves.length == 2) {
+                        return leaves[1 - i];
+                    }
+                    var newLeaves = new Leaf<?, ?>[leaves.length - 1];
+                    System.arraycopy(leaves, 0, newLeaves, 0, i);
+                    System.arraycopy(leaves, i + 1, newLeaves, i, newLeaves.length - i);
+                    return new Collision(hash, newLeaves);
+                }
+            }
+            return collision;
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private record Branch(int bitmap, Object[] children) {
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    private record Collision(int hash, Leaf<?, ?>[] leaves) {
+    }
+
+    private static final class Leaf<K, V> implements Map.Entry<K, V> {
+        private final int hash;
+        private final K key;
+        private final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> that
+                    && key.equals(that.getKey())
+                    && value.equals(that.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private static final class LeafIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final ArrayDeque<Object> stack = new ArrayDeque<>();
+        private Leaf<?, ?> next;
+
+        LeafIterator(Object root) {
+            stack.push(root);
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !stack.isEmpty()) {
+                var node = stack.pop();
+                if (node instanceof Leaf<?, ?> leaf) {
+                    next = leaf;
+                } else if (node instanceof Branch branch) {
+                    for (int i = branch.children.length - 1; i >= 0; i--) {
+                        stack.push(branch.children[i]);
+                    }
+                } else {
+                    var leaves = ((Collision) node).leaves;
+                    for (int i = leaves.length - 1; i >= 0; i--) {
+                        stack.push(leaves[i]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            var result = (Map.Entry<K, V>) next;
+            advance();
+            return result;
+        }
+    }
+}
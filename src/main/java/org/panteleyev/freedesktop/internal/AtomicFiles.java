@@ -0,0 +1,54 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Helpers for files that are replaced with an atomic move. Not exported by the module.
+ */
+public final class AtomicFiles {
+    private static final Set<PosixFilePermission> DEFAULT_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Creates temporary file to replace the target file with an atomic move. File is created in the directory of the
+     * target file, its name starts with a dot, so it is hidden. On POSIX file systems file gets permissions of the
+     * existing target file or <code>rw-r--r--</code> if target file does not exist.
+     *
+     * @param target target file
+     * @return temporary file
+     * @throws IOException if file cannot be created
+     */
+    public static Path createTempFile(Path target) throws IOException {
+        var absolute = target.toAbsolutePath();
+        var temp = Files.createTempFile(absolute.getParent(), "." + absolute.getFileName(), ".tmp");
+        try {
+            var view = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+            if (view != null) {
+                Set<PosixFilePermission> permissions;
+                try {
+                    permissions = Files.getPosixFilePermissions(absolute);
+                } catch (NoSuchFileException ex) {
+                    permissions = DEFAULT_PERMISSIONS;
+                }
+                view.setPermissions(permissions);
+            }
+            return temp;
+        } catch (IOException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        }
+    }
+}
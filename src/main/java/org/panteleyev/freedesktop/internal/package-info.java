@@ -0,0 +1,8 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+/**
+ * Implementation helpers shared by other packages. Not exported by the module.
+ */
+package org.panteleyev.freedesktop.internal;
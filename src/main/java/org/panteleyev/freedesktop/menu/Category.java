@@ -4,7 +4,12 @@
  */
 package org.panteleyev.freedesktop.menu;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Menu Categories. The list of Main Categories consist of those categories that every conforming desktop environment
@@ -542,6 +547,9 @@ public enum Category {
      */
     CONSOLE_ONLY("ConsoleOnly", false);
 
+    private static final Map<String, Category> BY_VALUE = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(Category::toString, Function.identity()));
+
     private final boolean main;
     private final String value;
     private final Set<Category> related;
@@ -564,6 +572,16 @@ public enum Category {
         this.related = Set.of();
     }
 
+    /**
+     * Returns category by its registered name. Category names are case-sensitive.
+     *
+     * @param value category name as used in <code>Categories</code> key
+     * @return category
+     */
+    public static Optional<Category> of(String value) {
+        return Optional.ofNullable(BY_VALUE.get(value));
+    }
+
     public boolean main() {
         return main;
     }
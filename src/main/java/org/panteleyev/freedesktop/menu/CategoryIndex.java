@@ -0,0 +1,245 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Category index of a desktop entry catalog. Keeps parsed categories of every entry and an inverted index from
+ * category to the set of entries, so category queries are evaluated as bit operations over the whole catalog.
+ * <p>
+ * Visibility of every entry in the current desktop session is precomputed by {@link VisibilityFilter} from flags
+ * parsed once per entry, and queries return visible entries only. Index for another session can be derived with
+ * {@link #withFilter(VisibilityFilter)} without parsing entries again.
+ * <p>
+ * Instances are immutable.
+ */
+public final class CategoryIndex {
+    private static final String CATEGORIES = "Categories";
+
+    private final String[] ids;
+    private final Map<String, Integer> positions;
+    private final CategoryMask[] masks;
+    private final VisibilityFilter.Flags[] flags;
+    private final Map<String, BitSet> entries;
+    private final BitSet visible;
+
+    private CategoryIndex(String[] ids, Map<String, Integer> positions, CategoryMask[] masks,
+            VisibilityFilter.Flags[] flags, Map<String, BitSet> entries, VisibilityFilter filter)
+    {
+        this.ids = ids;
+        this.positions = positions;
+        this.masks = masks;
+        this.flags = flags;
+        this.entries = entries;
+
+        this.visible = new BitSet(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            if (filter.isVisible(flags[i])) {
+                visible.set(i);
+            }
+        }
+    }
+
+    /**
+     * Builds category index where all entries are visible.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @return category index
+     */
+    public static CategoryIndex of(Map<String, DesktopEntry> entries) {
+        return of(entries, VisibilityFilter.ALL);
+    }
+
+    /**
+     * Builds category index.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @param filter  visibility filter of the desktop session
+     * @return category index
+     */
+    public static CategoryIndex of(Map<String, DesktopEntry> entries, VisibilityFilter filter) {
+        var sorted = new TreeMap<>(entries);
+        var ids = new String[sorted.size()];
+        var positions = new HashMap<String, Integer>();
+        var masks = new CategoryMask[sorted.size()];
+        var flags = new VisibilityFilter.Flags[sorted.size()];
+        var inverted = new HashMap<String, BitSet>();
+
+        int position = 0;
+        for (var entry : sorted.entrySet()) {
+            ids[position] = entry.getKey();
+            positions.put(entry.getKey(), position);
+            var mask = entry.getValue().getValue(CATEGORIES).map(CategoryMask::parse).orElse(CategoryMask.EMPTY);
+            masks[position] = mask;
+            flags[position] = VisibilityFilter.Flags.of(entry.getValue());
+            for (var category : mask.getCategories()) {
+                inverted.computeIfAbsent(category.toString(), k -> new BitSet()).set(position);
+            }
+            for (var name : mask.getOtherCategories()) {
+                inverted.computeIfAbsent(name, k -> new BitSet()).set(position);
+            }
+            position++;
+        }
+        return new CategoryIndex(ids, Map.copyOf(positions), masks, flags, Map.copyOf(inverted), filter);
+    }
+
+    /**
+     * Returns index with visibility computed by another filter.
+     *
+     * @param filter visibility filter
+     * @return category index
+     */
+    public CategoryIndex withFilter(VisibilityFilter filter) {
+        return new CategoryIndex(ids, positions, masks, flags, entries, filter);
+    }
+
+    /**
+     * Returns number of indexed entries.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns categories of the entry.
+     *
+     * @param id desktop file ID
+     * @return categories, empty mask if entry is unknown
+     */
+    public CategoryMask getCategories(String id) {
+        var position = positions.get(id);
+        return position == null ? CategoryMask.EMPTY : masks[position];
+    }
+
+    /**
+     * Checks if the entry is visible in the desktop session.
+     *
+     * @param id desktop file ID
+     * @return true if visible, false if entry is unknown
+     */
+    public boolean isVisible(String id) {
+        var position = positions.get(id);
+        return position != null && visible.get(position);
+    }
+
+    /**
+     * Returns number of visible entries with the category.
+     *
+     * @param category category
+     * @return number of entries
+     */
+    public int count(Category category) {
+        var set = entries.get(category.toString());
+        if (set == null) {
+            return 0;
+        }
+        var result = (BitSet) set.clone();
+        result.and(visible);
+        return result.cardinality();
+    }
+
+    /**
+     * Finds visible entries matching the query.
+     *
+     * @param query category query
+     * @return desktop file IDs in ascending order
+     */
+    public List<String> find(CategoryQuery query) {
+        var set = evaluate(query);
+        set.and(visible);
+        var result = new ArrayList<String>(set.cardinality());
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates query over the whole catalog.
+     *
+     * @param query category query
+     * @return set of entry positions, the caller may modify it
+     */
+    BitSet evaluate(CategoryQuery query) {
+        if (query instanceof CategoryQuery.Is is) {
+            var set = entries.get(is.name());
+            return set == null ? new BitSet() : (BitSet) set.clone();
+        } else if (query instanceof CategoryQuery.And and) {
+            if (and.operands().isEmpty()) {
+                return new BitSet();
+            }
+            BitSet result = null;
+            for (var operand : and.operands()) {
+                if (operand instanceof CategoryQuery.Not not && result != null) {
+                    result.andNot(evaluate(not.operand()));
+                } else if (result == null) {
+                    result = evaluate(operand);
+                } else {
+                    result.and(evaluate(operand));
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } else if (query instanceof CategoryQuery.Or or) {
+            var result = new BitSet();
+            for (var operand : or.operands()) {
+                result.or(evaluate(operand));
+            }
+            return result;
+        } else if (query instanceof CategoryQuery.Not not) {
+            var result = all();
+            result.andNot(evaluate(not.operand()));
+            return result;
+        } else {
+            return all();
+        }
+    }
+
+    /**
+     * Returns set containing the entry.
+     *
+     * @param id desktop file ID
+     * @return set of entry positions, the caller may modify it
+     */
+    BitSet evaluate(String id) {
+        var result = new BitSet();
+        var position = positions.get(id);
+        if (position != null) {
+            result.set(position);
+        }
+        return result;
+    }
+
+    /**
+     * Returns set of visible entries.
+     *
+     * @return set of entry positions, the caller may modify it
+     */
+    BitSet visible() {
+        return (BitSet) visible.clone();
+    }
+
+    String getId(int position) {
+        return ids[position];
+    }
+
+    private BitSet all() {
+        var result = new BitSet(ids.length);
+        result.set(0, ids.length);
+        return result;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compact immutable set of desktop entry categories. Registered categories are stored as bits indexed by
+ * {@link Category} ordinal, so membership tests and set operations are a few word operations. Unregistered categories,
+ * for example <code>X-GNOME-Utilities</code>, are kept by name.
+ */
+public final class CategoryMask {
+    private static final int WORDS = (Category.values().length + Long.SIZE - 1) / Long.SIZE;
+    private static final Category[] CATEGORIES = Category.values();
+
+    /**
+     * Empty mask.
+     */
+    public static final CategoryMask EMPTY = new CategoryMask(new long[WORDS], Set.of());
+
+    private final long[] words;
+    private final Set<String> other;
+
+    private CategoryMask(long[] words, Set<String> other) {
+        this.words = words;
+        this.other = other;
+    }
+
+    /**
+     * Creates mask from categories.
+     *
+     * @param categories categories
+     * @return category mask
+     */
+    public static CategoryMask of(Category... categories) {
+        return of(Arrays.asList(categories));
+    }
+
+    /**
+     * Creates mask from categories.
+     *
+     * @param categories categories
+     * @return category mask
+     */
+    public static CategoryMask of(Collection<Category> categories) {
+        var words = new long[WORDS];
+        for (var category : categories) {
+            set(words, category);
+        }
+        return new CategoryMask(words, Set.of());
+    }
+
+    /**
+     * Parses value of <code>Categories</code> key, a semicolon separated list of category names. Empty names are
+     * ignored.
+     *
+     * @param value value of <code>Categories</code> key
+     * @return category mask
+     */
+    public static CategoryMask parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY;
+        }
+        var words = new long[WORDS];
+        Set<String> other = null;
+        int start = 0;
+        while (start <= value.length()) {
+            int end = value.indexOf(';', start);
+            if (end < 0) {
+                end = value.length();
+            }
+            if (end > start) {
+                var name = value.substring(start, end).trim();
+                var category = Category.of(name);
+                if (category.isPresent()) {
+                    set(words, category.get());
+                } else if (!name.isEmpty()) {
+                    if (other == null) {
+                        other = new HashSet<>();
+                    }
+                    other.add(name);
+                }
+            }
+            start = end + 1;
+        }
+        return new CategoryMask(words, other == null ? Set.of() : Set.copyOf(other));
+    }
+
+    /**
+     * Checks if mask contains category.
+     *
+     * @param category category
+     * @return true if category is present
+     */
+    public boolean contains(Category category) {
+        int ordinal = category.ordinal();
+        return (words[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Checks if mask contains category with the name. Unregistered category names are supported.
+     *
+     * @param name category name
+     * @return true if category is present
+     */
+    public boolean contains(String name) {
+        return Category.of(name).map(this::contains).orElseGet(() -> other.contains(name));
+    }
+
+    /**
+     * Checks if this mask contains all categories of another mask.
+     *
+     * @param mask category mask
+     * @return true if all categories are present
+     */
+    public boolean containsAll(CategoryMask mask) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & mask.words[i]) != mask.words[i]) {
+                return false;
+            }
+        }
+        return other.containsAll(mask.other);
+    }
+
+    /**
+     * Checks if this mask has at least one category in common with another mask.
+     *
+     * @param mask category mask
+     * @return true if masks intersect
+     */
+    public boolean intersects(CategoryMask mask) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & mask.words[i]) != 0) {
+                return true;
+            }
+        }
+        for (var name : mask.other) {
+            if (other.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if mask is empty.
+     *
+     * @return true if mask contains no categories
+     */
+    public boolean isEmpty() {
+        for (var word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return other.isEmpty();
+    }
+
+    /**
+     * Returns registered categories of this mask.
+     *
+     * @return set of categories
+     */
+    public Set<Category> getCategories() {
+        var result = EnumSet.noneOf(Category.class);
+        for (int i = 0; i < WORDS; i++) {
+            var word = words[i];
+            while (word != 0) {
+                result.add(CATEGORIES[i * Long.SIZE + Long.numberOfTrailingZeros(word)]);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns unregistered category names of this mask.
+     *
+     * @return set of category names
+     */
+    public Set<String> getOtherCategories() {
+        return other;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CategoryMask that
+                && Arrays.equals(words, that.words)
+                && other.equals(that.other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(words), other);
+    }
+
+    @Override
+    public String toString() {
+        return getCategories() + (other.isEmpty() ? "" : " " + other);
+    }
+
+    private static void set(long[] words, Category category) {
+        int ordinal = category.ordinal();
+        words[ordinal >>> 6] |= 1L << ordinal;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Boolean expression over desktop entry categories, for example
+ * <code>CategoryQuery.of(Category.DEVELOPMENT).andNot(CategoryQuery.of(Category.GAME))</code>.
+ * <p>
+ * Queries can be tested against a single {@link CategoryMask} or evaluated over the whole catalog with
+ * {@link CategoryIndex#find(CategoryQuery)}.
+ */
+public sealed interface CategoryQuery {
+    /**
+     * Query matching all entries.
+     */
+    CategoryQuery ALL = new All();
+
+    /**
+     * Returns query matching entries with the category.
+     *
+     * @param category category
+     * @return query
+     */
+    static CategoryQuery of(Category category) {
+        return new Is(category.toString());
+    }
+
+    /**
+     * Returns query matching entries with the category. Unregistered category names are supported.
+     *
+     * @param name category name
+     * @return query
+     */
+    static CategoryQuery of(String name) {
+        return new Is(name);
+    }
+
+    /**
+     * Returns query matching entries that match all operands.
+     *
+     * @param operands operands
+     * @return query
+     */
+    static CategoryQuery and(List<CategoryQuery> operands) {
+        return new And(List.copyOf(operands));
+    }
+
+    /**
+     * Returns query matching entries that match at least one operand.
+     *
+     * @param operands operands
+     * @return query
+     */
+    static CategoryQuery or(List<CategoryQuery> operands) {
+        return new Or(List.copyOf(operands));
+    }
+
+    /**
+     * Returns query matching entries that do not match the operand.
+     *
+     * @param operand operand
+     * @return query
+     */
+    static CategoryQuery not(CategoryQuery operand) {
+        return new Not(operand);
+    }
+
+    /**
+     * Returns query matching entries that match both this query and another one.
+     *
+     * @param other query
+     * @return query
+     */
+    default CategoryQuery and(CategoryQuery other) {
+        return and(List.of(this, other));
+    }
+
+    /**
+     * Returns query matching entries that match this query or another one.
+     *
+     * @param other query
+     * @return query
+     */
+    default CategoryQuery or(CategoryQuery other) {
+        return or(List.of(this, other));
+    }
+
+    /**
+     * Returns query matching entries that match this query but not another one.
+     *
+     * @param other query
+     * @return query
+     */
+    default CategoryQuery andNot(CategoryQuery other) {
+        return and(List.of(this, not(other)));
+    }
+
+    /**
+     * Tests categories of a single entry.
+     *
+     * @param mask entry categories
+     * @return true if entry matches
+     */
+    boolean test(CategoryMask mask);
+
+    /**
+     * Matches all entries.
+     */
+    record All() implements CategoryQuery {
+        @Override
+        public boolean test(CategoryMask mask) {
+            return true;
+        }
+    }
+
+    /**
+     * Matches entries with the category.
+     *
+     * @param name category name
+     */
+    record Is(String name) implements CategoryQuery {
+        public Is {
+            Objects.requireNonNull(name);
+        }
+
+        @Override
+        public boolean test(CategoryMask mask) {
+            return mask.contains(name);
+        }
+    }
+
+    /**
+     * Matches entries that match all operands. Empty operand list matches nothing.
+     *
+     * @param operands operands
+     */
+    record And(List<CategoryQuery> operands) implements CategoryQuery {
+        @Override
+        public boolean test(CategoryMask mask) {
+            if (operands.isEmpty()) {
+                return false;
+            }
+            for (var operand : operands) {
+                if (!operand.test(mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Matches entries that match at least one operand.
+     *
+     * @param operands operands
+     */
+    record Or(List<CategoryQuery> operands) implements CategoryQuery {
+        @Override
+        public boolean test(CategoryMask mask) {
+            for (var operand : operands) {
+                if (operand.test(mask)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Matches entries that do not match the operand.
+     *
+     * @param operand operand
+     */
+    record Not(CategoryQuery operand) implements CategoryQuery {
+        public Not {
+            Objects.requireNonNull(operand);
+        }
+
+        @Override
+        public boolean test(CategoryMask mask) {
+            return !operand.test(mask);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+import org.panteleyev.freedesktop.entry.DesktopEntryReader;
+import org.panteleyev.freedesktop.entry.ValidationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of parsed <code>.directory</code> files that describe menus.
+ * <p>
+ * Every file is parsed once and kept together with its modification time and size. Subsequent lookups cost a single
+ * stat call, the file is parsed again only if it has changed. A menu rebuild therefore does not re-read the same
+ * directory entries again.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class DirectoryEntryCache {
+    private final List<Path> directories;
+    private final Map<Path, Cached> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates cache that searches {@link XDGBaseDirectory#getDesktopDirectoryDirectories()}.
+     */
+    public DirectoryEntryCache() {
+        this(XDGBaseDirectory.getDesktopDirectoryDirectories());
+    }
+
+    /**
+     * Creates cache.
+     *
+     * @param directories preference-ordered list of directories to search by file ID
+     */
+    public DirectoryEntryCache(List<Path> directories) {
+        this.directories = List.copyOf(directories);
+    }
+
+    /**
+     * Returns directories searched by {@link #find(String)}.
+     *
+     * @return preference-ordered list of directories
+     */
+    public List<Path> getDirectories() {
+        return directories;
+    }
+
+    /**
+     * Finds directory entry by file ID, for example <code>Development.directory</code>. Directories are searched in
+     * preference order, the first valid file wins.
+     *
+     * @param id file ID
+     * @return directory entry
+     */
+    public Optional<DesktopEntry> find(String id) {
+        Objects.requireNonNull(id);
+        for (var directory : directories) {
+            var entry = load(directory.resolve(id));
+            if (entry.isPresent()) {
+                return entry;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Loads directory entry file. Cached entry is returned if the file has not changed since it was parsed.
+     *
+     * @param file directory entry file
+     * @return directory entry, empty if file does not exist or is not valid
+     */
+    public Optional<DesktopEntry> load(Path file) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            cache.remove(file);
+            return Optional.empty();
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+
+        var cached = cache.get(file);
+        if (cached != null && cached.matches(attributes)) {
+            return Optional.ofNullable(cached.entry());
+        }
+
+        DesktopEntry entry;
+        try {
+            entry = new DesktopEntryReader().read(ByteBuffer.wrap(Files.readAllBytes(file)));
+        } catch (IOException | UncheckedIOException ex) {
+            return Optional.empty();
+        } catch (ValidationException ex) {
+            // Invalid files are remembered too, so they are not parsed again until changed
+            entry = null;
+        }
+        cache.put(file, new Cached(attributes.lastModifiedTime(), attributes.size(), entry));
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Parsed file.
+     *
+     * @param modified modification time of the file when it was parsed
+     * @param size     size of the file when it was parsed
+     * @param entry    parsed entry, null if file is not valid
+     */
+    private record Cached(FileTime modified, long size, DesktopEntry entry) {
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && modified.equals(attributes.lastModifiedTime());
+        }
+    }
+}
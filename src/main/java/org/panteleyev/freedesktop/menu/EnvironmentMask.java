@@ -0,0 +1,153 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compact immutable set of desktop environments. Registered environments are stored as bits indexed by
+ * {@link OnlyShowInEnvironment} ordinal, unregistered names are kept as is.
+ */
+public final class EnvironmentMask {
+    private static final OnlyShowInEnvironment[] ENVIRONMENTS = OnlyShowInEnvironment.values();
+
+    /**
+     * Empty mask.
+     */
+    public static final EnvironmentMask EMPTY = new EnvironmentMask(0, Set.of());
+
+    private final int bits;
+    private final Set<String> other;
+
+    private EnvironmentMask(int bits, Set<String> other) {
+        this.bits = bits;
+        this.other = other;
+    }
+
+    /**
+     * Creates mask from environment names, for example from <code>$XDG_CURRENT_DESKTOP</code>.
+     *
+     * @param names environment names
+     * @return environment mask
+     */
+    public static EnvironmentMask of(Collection<String> names) {
+        int bits = 0;
+        Set<String> other = null;
+        for (var name : names) {
+            var environment = OnlyShowInEnvironment.of(name);
+            if (environment.isPresent()) {
+                bits |= 1 << environment.get().ordinal();
+            } else if (!name.isEmpty()) {
+                if (other == null) {
+                    other = new HashSet<>();
+                }
+                other.add(name);
+            }
+        }
+        if (other == null) {
+            return bits == 0 ? EMPTY : new EnvironmentMask(bits, Set.of());
+        }
+        return new EnvironmentMask(bits, Set.copyOf(other));
+    }
+
+    /**
+     * Parses value of <code>OnlyShowIn</code> or <code>NotShowIn</code> key, a semicolon separated list of
+     * environment names.
+     *
+     * @param value key value
+     * @return environment mask
+     */
+    public static EnvironmentMask parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY;
+        }
+        var names = new HashSet<String>();
+        for (var name : value.split(";")) {
+            names.add(name.trim());
+        }
+        return of(names);
+    }
+
+    /**
+     * Checks if mask contains environment.
+     *
+     * @param environment environment
+     * @return true if environment is present
+     */
+    public boolean contains(OnlyShowInEnvironment environment) {
+        return (bits & (1 << environment.ordinal())) != 0;
+    }
+
+    /**
+     * Checks if masks have at least one environment in common.
+     *
+     * @param mask environment mask
+     * @return true if masks intersect
+     */
+    public boolean intersects(EnvironmentMask mask) {
+        if ((bits & mask.bits) != 0) {
+            return true;
+        }
+        if (other.isEmpty() || mask.other.isEmpty()) {
+            return false;
+        }
+        for (var name : mask.other) {
+            if (other.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if mask is empty.
+     *
+     * @return true if mask contains no environments
+     */
+    public boolean isEmpty() {
+        return bits == 0 && other.isEmpty();
+    }
+
+    /**
+     * Returns registered environments of this mask.
+     *
+     * @return set of environments
+     */
+    public Set<OnlyShowInEnvironment> getEnvironments() {
+        var result = EnumSet.noneOf(OnlyShowInEnvironment.class);
+        for (int b = bits; b != 0; b &= b - 1) {
+            result.add(ENVIRONMENTS[Integer.numberOfTrailingZeros(b)]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns unregistered environment names of this mask.
+     *
+     * @return set of names
+     */
+    public Set<String> getOtherEnvironments() {
+        return other;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EnvironmentMask that && bits == that.bits && other.equals(that.other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bits, other);
+    }
+
+    @Override
+    public String toString() {
+        return getEnvironments() + (other.isEmpty() ? "" : " " + other);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node of the final menu tree produced by {@link MenuLoader}. Instances are immutable.
+ * <p>
+ * {@link #getItems(Locale)} applies <code>&lt;Layout&gt;</code> and <code>&lt;DefaultLayout&gt;</code> rules of the
+ * menu. Merged items are sorted by localized names with locale-aware collation, the result is computed once per
+ * locale and cached, so the same tree can be rendered for many locales concurrently.
+ */
+public final class Menu {
+    private final String name;
+    private final DesktopEntry directory;
+    private final List<MenuEntry> entries;
+    private final List<Menu> submenus;
+    private final MenuLayout layout;
+    private final MenuLayout.Options defaultOptions;
+    private final Map<Locale, List<MenuItem>> items = new ConcurrentHashMap<>();
+
+    Menu(String name, DesktopEntry directory, List<MenuEntry> entries, List<Menu> submenus) {
+        this(name, directory, entries, submenus, MenuLayout.DEFAULT, MenuLayout.Options.DEFAULT);
+    }
+
+    /**
+     * Creates menu.
+     *
+     * @param layout         effective layout of this menu
+     * @param defaultOptions effective default layout options applied to submenus
+     */
+    Menu(String name, DesktopEntry directory, List<MenuEntry> entries, List<Menu> submenus, MenuLayout layout,
+            MenuLayout.Options defaultOptions)
+    {
+        this.name = Objects.requireNonNull(name);
+        this.directory = directory;
+        this.entries = List.copyOf(entries);
+        this.submenus = List.copyOf(submenus);
+        this.layout = Objects.requireNonNull(layout);
+        this.defaultOptions = Objects.requireNonNull(defaultOptions);
+    }
+
+    /**
+     * Returns menu name as defined by <code>&lt;Name&gt;</code> element.
+     *
+     * @return menu name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns directory entry that describes the menu, i.e. provides localized name and icon.
+     *
+     * @return directory entry
+     */
+    public Optional<DesktopEntry> getDirectory() {
+        return Optional.ofNullable(directory);
+    }
+
+    /**
+     * Returns desktop entries allocated to this menu.
+     *
+     * @return menu entries
+     */
+    public List<MenuEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns submenus.
+     *
+     * @return submenus
+     */
+    public List<Menu> getSubmenus() {
+        return submenus;
+    }
+
+    /**
+     * Returns true if menu has neither entries nor submenus.
+     *
+     * @return true if menu is empty
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty() && submenus.isEmpty();
+    }
+
+    /**
+     * Returns submenu by its path relative to this menu, for example <code>Applications/Games</code>.
+     *
+     * @param path slash separated menu names
+     * @return submenu
+     */
+    public Optional<Menu> getSubmenu(String path) {
+        var menu = this;
+        for (var name : path.split("/")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            Menu next = null;
+            for (var submenu : menu.submenus) {
+                if (submenu.name.equals(name)) {
+                    next = submenu;
+                    break;
+                }
+            }
+            if (next == null) {
+                return Optional.empty();
+            }
+            menu = next;
+        }
+        return Optional.of(menu);
+    }
+
+    /**
+     * Returns menu items ordered according to the menu layout. Submenus are inlined, empty submenus are hidden and
+     * redundant separators are removed as defined by layout attributes.
+     *
+     * @param locale locale used to select names and sort merged items
+     * @return menu items
+     */
+    public List<MenuItem> getItems(Locale locale) {
+        Objects.requireNonNull(locale);
+        return items.computeIfAbsent(locale, this::layout);
+    }
+
+    private List<MenuItem> layout(Locale locale) {
+        var collator = MenuCollator.of(locale);
+
+        var entriesById = new HashMap<String, MenuEntry>();
+        for (var entry : entries) {
+            entriesById.put(entry.id(), entry);
+        }
+        var submenusByName = new HashMap<String, Menu>();
+        for (var submenu : submenus) {
+            submenusByName.put(submenu.name, submenu);
+        }
+
+        // Explicitly mentioned items are not merged
+        var mentionedFiles = new HashSet<String>();
+        var mentionedMenus = new HashSet<String>();
+        for (var item : layout.items()) {
+            if (item instanceof MenuLayout.Filename filename) {
+                mentionedFiles.add(filename.id());
+            } else if (item instanceof MenuLayout.Menuname menuname) {
+                mentionedMenus.add(menuname.name());
+            }
+        }
+
+        var usedFiles = new HashSet<String>();
+        var usedMenus = new HashSet<String>();
+        var result = new ArrayList<MenuItem>();
+        for (var item : layout.items()) {
+            if (item instanceof MenuLayout.Filename filename) {
+                var entry = entriesById.get(filename.id());
+                if (entry != null && usedFiles.add(entry.id())) {
+                    result.add(new MenuItem.Entry(entry));
+                }
+            } else if (item instanceof MenuLayout.Menuname menuname) {
+                var submenu = submenusByName.get(menuname.name());
+                if (submenu != null && usedMenus.add(submenu.name)) {
+                    addSubmenu(result, submenu, menuname.options().withDefaults(defaultOptions), locale);
+                }
+            } else if (item instanceof MenuLayout.Separator) {
+                result.add(new MenuItem.Separator());
+            } else if (item instanceof MenuLayout.Merge merge) {
+                var merged = new ArrayList<MenuItem>();
+                if (merge.type() != MenuLayout.MergeType.FILES) {
+                    for (var submenu : submenus) {
+                        if (!mentionedMenus.contains(submenu.name) && usedMenus.add(submenu.name)) {
+                            merged.add(new MenuItem.Submenu(submenu));
+                        }
+                    }
+                }
+                if (merge.type() != MenuLayout.MergeType.MENUS) {
+                    for (var entry : entries) {
+                        if (!mentionedFiles.contains(entry.id()) && usedFiles.add(entry.id())) {
+                            merged.add(new MenuItem.Entry(entry));
+                        }
+                    }
+                }
+                var sorted = collator.sort(merged,
+                        mergedItem -> mergedItem instanceof MenuItem.Submenu submenu ?
+                                collator.getName(submenu.menu()) : collator.getName(((MenuItem.Entry) mergedItem).entry()),
+                        mergedItem -> mergedItem instanceof MenuItem.Submenu submenu ?
+                                submenu.menu().name : ((MenuItem.Entry) mergedItem).entry().id());
+                for (var mergedItem : sorted) {
+                    if (mergedItem instanceof MenuItem.Submenu submenu) {
+                        addSubmenu(result, submenu.menu(), defaultOptions, locale);
+                    } else {
+                        result.add(mergedItem);
+                    }
+                }
+            }
+        }
+        return List.copyOf(removeRedundantSeparators(result));
+    }
+
+    private static void addSubmenu(List<MenuItem> result, Menu submenu, MenuLayout.Options options, Locale locale) {
+        var submenuItems = submenu.getItems(locale);
+        if (submenuItems.isEmpty() && !options.showEmpty()) {
+            return;
+        }
+        if (options.inline()) {
+            var count = submenuItems.stream().filter(item -> !(item instanceof MenuItem.Separator)).count();
+            if (options.inlineAlias() && count == 1 && submenuItems.size() == 1) {
+                result.add(new MenuItem.Alias(submenu, submenuItems.get(0)));
+                return;
+            }
+            if (count > 0 && (options.inlineLimit() <= 0 || count <= options.inlineLimit())) {
+                if (options.inlineHeader()) {
+                    result.add(new MenuItem.Header(submenu));
+                }
+                result.addAll(submenuItems);
+                return;
+            }
+        }
+        result.add(new MenuItem.Submenu(submenu));
+    }
+
+    /**
+     * Removes leading, trailing and duplicate separators.
+     */
+    private static List<MenuItem> removeRedundantSeparators(List<MenuItem> items) {
+        var result = new ArrayList<MenuItem>(items.size());
+        for (var item : items) {
+            if (item instanceof MenuItem.Separator
+                    && (result.isEmpty() || result.get(result.size() - 1) instanceof MenuItem.Separator))
+            {
+                continue;
+            }
+            result.add(item);
+        }
+        if (!result.isEmpty() && result.get(result.size() - 1) instanceof MenuItem.Separator) {
+            result.remove(result.size() - 1);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Menu[" + name + ", entries=" + entries.size() + ", submenus=" + submenus.size() + "]";
+    }
+}
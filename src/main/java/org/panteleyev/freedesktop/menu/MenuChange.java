@@ -0,0 +1,47 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.util.Objects;
+
+/**
+ * Change of the menu tree caused by a catalog update, see {@link MenuModel}.
+ *
+ * @param type change type
+ * @param path slash separated path of the menu relative to the root menu, empty string for the root menu
+ * @param id   desktop file ID for entry changes, null for menu changes
+ */
+public record MenuChange(Type type, String path, String id) {
+    /**
+     * Change type.
+     */
+    public enum Type {
+        /**
+         * Menu became visible, i.e. it received its first entry.
+         */
+        MENU_ADDED,
+        /**
+         * Menu became empty and is not displayed anymore.
+         */
+        MENU_REMOVED,
+        /**
+         * Entry was added to the menu.
+         */
+        ENTRY_ADDED,
+        /**
+         * Entry was removed from the menu.
+         */
+        ENTRY_REMOVED,
+        /**
+         * Entry stays in the menu but its content has changed.
+         */
+        ENTRY_CHANGED
+    }
+
+    public MenuChange {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(path);
+    }
+}
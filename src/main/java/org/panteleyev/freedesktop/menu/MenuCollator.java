@@ -0,0 +1,88 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Locale-aware ordering of menu items. Collator is created once per locale, every sorted name is converted to a
+ * {@link CollationKey} once, so sorting compares precomputed keys instead of running the collation algorithm on
+ * every comparison.
+ */
+final class MenuCollator {
+    private static final Map<Locale, MenuCollator> COLLATORS = new ConcurrentHashMap<>();
+
+    private final Locale locale;
+    // Collator implementations synchronize key generation
+    private final Collator collator;
+
+    private MenuCollator(Locale locale) {
+        this.locale = locale;
+        this.collator = Collator.getInstance(locale);
+    }
+
+    static MenuCollator of(Locale locale) {
+        return COLLATORS.computeIfAbsent(locale, MenuCollator::new);
+    }
+
+    /**
+     * Returns display name of the menu: localized name of the directory entry or menu name.
+     */
+    String getName(Menu menu) {
+        return menu.getDirectory().map(this::getName).orElse(menu.getName());
+    }
+
+    /**
+     * Returns display name of the entry: localized name or desktop file ID.
+     */
+    String getName(MenuEntry entry) {
+        var name = getName(entry.entry());
+        return name != null ? name : entry.id();
+    }
+
+    /**
+     * Returns localized name of the entry.
+     */
+    private String getName(DesktopEntry entry) {
+        return entry.getName(locale).orElse(null);
+    }
+
+    /**
+     * Sorts items by display name. Items with equal names are ordered by the tie-breaker.
+     *
+     * @param items      items to sort
+     * @param name       display name of the item
+     * @param tieBreaker stable secondary order
+     * @return sorted list
+     */
+    <T> List<T> sort(List<T> items, Function<T, String> name, Function<T, String> tieBreaker) {
+        if (items.size() < 2) {
+            return new ArrayList<>(items);
+        }
+        var keyed = new ArrayList<Keyed<T>>(items.size());
+        for (var item : items) {
+            keyed.add(new Keyed<>(item, collator.getCollationKey(name.apply(item)), tieBreaker.apply(item)));
+        }
+        keyed.sort(Comparator.<Keyed<T>, CollationKey>comparing(Keyed::key).thenComparing(Keyed::tieBreaker));
+        var result = new ArrayList<T>(keyed.size());
+        for (var k : keyed) {
+            result.add(k.item());
+        }
+        return result;
+    }
+
+    private record Keyed<T>(T item, CollationKey key, String tieBreaker) {
+    }
+}
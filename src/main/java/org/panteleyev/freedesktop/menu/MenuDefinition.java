@@ -0,0 +1,79 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Content of a single <code>&lt;Menu&gt;</code> element as written in the menu file. Child elements are kept in
+ * document order because the order defines precedence. Relative paths are already resolved against the directory of
+ * the menu file.
+ *
+ * @param name  menu name, may be null for the root element of a merged file
+ * @param items child elements
+ */
+record MenuDefinition(String name, List<Item> items) {
+    MenuDefinition {
+        items = List.copyOf(items);
+    }
+
+    sealed interface Item {
+    }
+
+    record AppDir(Path path) implements Item {
+    }
+
+    record DefaultAppDirs() implements Item {
+    }
+
+    record DirectoryDir(Path path) implements Item {
+    }
+
+    record DefaultDirectoryDirs() implements Item {
+    }
+
+    record Directory(String name) implements Item {
+    }
+
+    record Rule(boolean include, MenuRule rule) implements Item {
+    }
+
+    record OnlyUnallocated(boolean value) implements Item {
+    }
+
+    record Deleted(boolean value) implements Item {
+    }
+
+    /**
+     * <code>&lt;MergeFile&gt;</code> element.
+     *
+     * @param path   file to merge, null for <code>type="parent"</code>
+     * @param source file that contains the element
+     */
+    record MergeFile(Path path, Path source) implements Item {
+    }
+
+    record MergeDir(Path path) implements Item {
+    }
+
+    record DefaultMergeDirs() implements Item {
+    }
+
+    record Move(String oldPath, String newPath) implements Item {
+    }
+
+    record Submenu(MenuDefinition menu) implements Item {
+    }
+
+    /**
+     * <code>&lt;Layout&gt;</code> or <code>&lt;DefaultLayout&gt;</code> element.
+     *
+     * @param isDefault true for <code>&lt;DefaultLayout&gt;</code>
+     * @param layout    layout
+     */
+    record Layout(boolean isDefault, MenuLayout layout) implements Item {
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+
+import java.util.Objects;
+
+/**
+ * Desktop entry allocated to a menu.
+ *
+ * @param id    desktop file ID
+ * @param entry desktop entry
+ */
+public record MenuEntry(String id, DesktopEntry entry) {
+    public MenuEntry {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(entry);
+    }
+}
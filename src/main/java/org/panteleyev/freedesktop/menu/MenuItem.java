@@ -0,0 +1,49 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+/**
+ * Item of the menu as it should be displayed after applying <code>&lt;Layout&gt;</code> rules.
+ */
+public sealed interface MenuItem {
+    /**
+     * Desktop entry.
+     *
+     * @param entry menu entry
+     */
+    record Entry(MenuEntry entry) implements MenuItem {
+    }
+
+    /**
+     * Submenu.
+     *
+     * @param menu submenu
+     */
+    record Submenu(Menu menu) implements MenuItem {
+    }
+
+    /**
+     * Header of the inlined submenu, items of the submenu follow the header.
+     *
+     * @param menu inlined submenu
+     */
+    record Header(Menu menu) implements MenuItem {
+    }
+
+    /**
+     * The only item of the inlined submenu displayed with name and icon of the submenu.
+     *
+     * @param menu inlined submenu
+     * @param item submenu item
+     */
+    record Alias(Menu menu, MenuItem item) implements MenuItem {
+    }
+
+    /**
+     * Separator.
+     */
+    record Separator() implements MenuItem {
+    }
+}
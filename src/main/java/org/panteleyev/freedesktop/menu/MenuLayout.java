@@ -0,0 +1,87 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.util.List;
+
+/**
+ * Content of <code>&lt;Layout&gt;</code> or <code>&lt;DefaultLayout&gt;</code> element.
+ *
+ * @param options layout attributes, only <code>&lt;DefaultLayout&gt;</code> has them
+ * @param items   layout items in document order
+ */
+record MenuLayout(Options options, List<Item> items) {
+    /**
+     * Layout used when menu file does not define any.
+     */
+    static final MenuLayout DEFAULT = new MenuLayout(Options.DEFAULT,
+            List.of(new Merge(MergeType.MENUS), new Merge(MergeType.FILES)));
+
+    MenuLayout {
+        items = List.copyOf(items);
+    }
+
+    /**
+     * Returns options of the submenu: attributes of the last <code>&lt;Menuname&gt;</code> element that references
+     * the submenu with unspecified values taken from defaults.
+     *
+     * @param name     submenu name
+     * @param defaults default options
+     * @return submenu options
+     */
+    Options getOptions(String name, Options defaults) {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (items.get(i) instanceof Menuname menuname && menuname.name().equals(name)) {
+                return menuname.options().withDefaults(defaults);
+            }
+        }
+        return defaults;
+    }
+
+    /**
+     * Attributes of <code>&lt;DefaultLayout&gt;</code> and <code>&lt;Menuname&gt;</code> elements. Null values are
+     * not specified and inherited.
+     */
+    record Options(Boolean showEmpty, Boolean inline, Integer inlineLimit, Boolean inlineHeader,
+                   Boolean inlineAlias)
+    {
+        static final Options DEFAULT = new Options(false, false, 4, true, false);
+        static final Options UNSPECIFIED = new Options(null, null, null, null, null);
+
+        /**
+         * Returns options with unspecified values taken from defaults.
+         */
+        Options withDefaults(Options defaults) {
+            return new Options(
+                    showEmpty != null ? showEmpty : defaults.showEmpty,
+                    inline != null ? inline : defaults.inline,
+                    inlineLimit != null ? inlineLimit : defaults.inlineLimit,
+                    inlineHeader != null ? inlineHeader : defaults.inlineHeader,
+                    inlineAlias != null ? inlineAlias : defaults.inlineAlias
+            );
+        }
+    }
+
+    enum MergeType {
+        MENUS,
+        FILES,
+        ALL
+    }
+
+    sealed interface Item {
+    }
+
+    record Filename(String id) implements Item {
+    }
+
+    record Menuname(String name, Options options) implements Item {
+    }
+
+    record Separator() implements Item {
+    }
+
+    record Merge(MergeType type) implements Item {
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+import org.panteleyev.freedesktop.directory.XdgEnvironment;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+import org.panteleyev.freedesktop.entry.DesktopEntryLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Builds menu tree according to the
+ * <a href="https://specifications.freedesktop.org/menu-spec/menu-spec-1.1.html">Desktop Menu Specification</a>.
+ * <p>
+ * Loading consists of the following steps:
+ * <ol>
+ *     <li>menu file is parsed and <code>&lt;MergeFile&gt;</code>, <code>&lt;MergeDir&gt;</code> and
+ *     <code>&lt;DefaultMergeDirs&gt;</code> elements are replaced by the content of merged files;</li>
+ *     <li>submenus with the same name are merged, <code>&lt;Move&gt;</code> elements are applied, application and
+ *     directory directories are inherited by submenus;</li>
+ *     <li><code>&lt;Include&gt;</code> and <code>&lt;Exclude&gt;</code> rules are evaluated as bit set operations
+ *     over {@link CategoryIndex} of entries found in the menu application directories, entries not visible according
+ *     to {@link VisibilityFilter} are dropped;</li>
+ *     <li>menus with <code>&lt;OnlyUnallocated/&gt;</code> receive entries not allocated to any other menu, deleted
+ *     and empty menus are removed unless layout sets <code>show_empty="true"</code>.</li>
+ * </ol>
+ * Submenus and entries are sorted by name, {@link Menu#getItems(java.util.Locale)} returns them ordered according to
+ * <code>&lt;Layout&gt;</code> rules. Legacy directories are not supported.
+ */
+public class MenuLoader {
+    /**
+     * Base name of the applications menu file.
+     */
+    public static final String APPLICATIONS_MENU = "applications.menu";
+
+    private static final String MENUS = "menus";
+    private static final String MENU_EXTENSION = ".menu";
+
+    private final VisibilityFilter filter;
+    private final DirectoryEntryCache directoryCache;
+
+    /**
+     * Creates menu loader for the current desktop session.
+     */
+    public MenuLoader() {
+        this(new VisibilityFilter());
+    }
+
+    /**
+     * Creates menu loader.
+     *
+     * @param filter visibility filter
+     */
+    public MenuLoader(VisibilityFilter filter) {
+        this(filter, new DirectoryEntryCache());
+    }
+
+    /**
+     * Creates menu loader. Directory entries are taken from the cache, so the cache may be shared between loaders
+     * to avoid parsing the same <code>.directory</code> files on every load.
+     *
+     * @param filter         visibility filter
+     * @param directoryCache directory entry cache
+     */
+    public MenuLoader(VisibilityFilter filter, DirectoryEntryCache directoryCache) {
+        this.filter = Objects.requireNonNull(filter);
+        this.directoryCache = Objects.requireNonNull(directoryCache);
+    }
+
+    /**
+     * Finds applications menu file in <code>$XDG_CONFIG_HOME/menus</code> and <code>$XDG_CONFIG_DIRS/menus</code>
+     * taking <code>$XDG_MENU_PREFIX</code> into account.
+     *
+     * @return menu file
+     */
+    public static Optional<Path> findMenuFile() {
+        var fileName = XdgEnvironment.current().getMenuPrefix() + APPLICATIONS_MENU;
+        for (var directory : getConfigDirectories()) {
+            var file = directory.resolve(MENUS).resolve(fileName);
+            if (Files.isRegularFile(file)) {
+                return Optional.of(file);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Loads applications menu found by {@link #findMenuFile()}.
+     *
+     * @return root menu, empty if there is no menu file
+     * @throws UncheckedIOException if menu file cannot be read or parsed
+     */
+    public Optional<Menu> load() {
+        return findMenuFile().map(this::load);
+    }
+
+    /**
+     * Loads menu file.
+     *
+     * @param file menu file
+     * @return root menu
+     * @throws UncheckedIOException if menu file cannot be read or parsed
+     */
+    public Menu load(Path file) {
+        var context = new Context(file);
+        var root = context.compile(file);
+        var allocated = new HashSet<String>();
+        context.allocate(root, false, allocated);
+        context.allocate(root, true, allocated);
+        return context.toMenu(root).orElseGet(() -> createMenu(root, List.of(), List.of()));
+    }
+
+    /**
+     * Loads menu file into a model that evaluates entries of the catalog and can be updated incrementally. Entries
+     * are taken from the catalog instead of application directories of the menu file.
+     *
+     * @param file    menu file
+     * @param catalog desktop entries by desktop file ID
+     * @return menu model
+     * @throws UncheckedIOException if menu file cannot be read or parsed
+     */
+    public MenuModel loadModel(Path file, Map<String, DesktopEntry> catalog) {
+        return new MenuModel(new Context(file).compile(file), catalog, filter);
+    }
+
+    /**
+     * Creates menu node of the final tree, entries and submenus are sorted by name. Empty submenus are kept only if
+     * layout options allow it.
+     */
+    static Menu createMenu(MenuNode node, List<MenuEntry> entries, List<Menu> submenus) {
+        var collator = MenuCollator.of(Locale.ROOT);
+        var shownSubmenus = new ArrayList<Menu>(submenus.size());
+        for (var submenu : submenus) {
+            if (!submenu.isEmpty() || node.layout.getOptions(submenu.getName(), node.defaultOptions).showEmpty()) {
+                shownSubmenus.add(submenu);
+            }
+        }
+        var sortedSubmenus = collator.sort(shownSubmenus, collator::getName, Menu::getName);
+        var sortedEntries = collator.sort(entries, collator::getName, MenuEntry::id);
+        return new Menu(node.name, node.directory, sortedEntries, sortedSubmenus, node.layout, node.defaultOptions);
+    }
+
+    private static List<Path> getConfigDirectories() {
+        var result = new ArrayList<Path>();
+        result.add(XDGBaseDirectory.getConfigHome());
+        result.addAll(XDGBaseDirectory.getConfigDirs());
+        return result;
+    }
+
+    /**
+     * State of a single load operation.
+     */
+    private final class Context {
+        private final String menuBaseName;
+        private final Deque<Path> stack = new ArrayDeque<>();
+        private final DesktopEntryLoader entryLoader = new DesktopEntryLoader();
+        private final Map<Path, Map<String, DesktopEntry>> directories = new HashMap<>();
+        private final Map<List<Path>, Pool> pools = new HashMap<>();
+        private final Map<MenuNode, List<MenuEntry>> entries = new HashMap<>();
+
+        Context(Path file) {
+            var fileName = file.getFileName().toString();
+            menuBaseName = fileName.endsWith(MENU_EXTENSION) ?
+                    fileName.substring(0, fileName.length() - MENU_EXTENSION.length()) : fileName;
+        }
+
+        /**
+         * Parses menu file and builds consolidated menu tree.
+         */
+        MenuNode compile(Path file) {
+            var definition = MenuParser.parse(file);
+            stack.push(file.toAbsolutePath().normalize());
+            var items = expand(definition.items());
+
+            var root = MenuNode.build(definition.name() == null ? "" : definition.name(), items);
+            root.applyMoves();
+            root.inherit(List.of(), List.of(), MenuLayout.DEFAULT);
+            resolveDirectories(root);
+            return root;
+        }
+
+        private void resolveDirectories(MenuNode node) {
+            node.directory = findDirectory(node);
+            for (var child : node.children.values()) {
+                resolveDirectories(child);
+            }
+        }
+
+        /**
+         * Replaces default directory and merge elements with their content.
+         */
+        List<MenuDefinition.Item> expand(List<MenuDefinition.Item> items) {
+            var result = new ArrayList<MenuDefinition.Item>();
+            for (var item : items) {
+                if (item instanceof MenuDefinition.DefaultAppDirs) {
+                    for (var directory : MenuNode.reversed(XDGBaseDirectory.getDesktopEntryDirectories())) {
+                        result.add(new MenuDefinition.AppDir(directory));
+                    }
+                } else if (item instanceof MenuDefinition.DefaultDirectoryDirs) {
+                    for (var directory : MenuNode.reversed(XDGBaseDirectory.getDesktopDirectoryDirectories())) {
+                        result.add(new MenuDefinition.DirectoryDir(directory));
+                    }
+                } else if (item instanceof MenuDefinition.DefaultMergeDirs) {
+                    for (var directory : MenuNode.reversed(getConfigDirectories())) {
+                        mergeDirectory(directory.resolve(MENUS).resolve(menuBaseName + "-merged"), result);
+                    }
+                } else if (item instanceof MenuDefinition.MergeDir mergeDir) {
+                    mergeDirectory(mergeDir.path(), result);
+                } else if (item instanceof MenuDefinition.MergeFile mergeFile) {
+                    var file = mergeFile.path() != null ? mergeFile.path() : findParent(mergeFile.source());
+                    if (file != null) {
+                        mergeFile(file, result);
+                    }
+                } else if (item instanceof MenuDefinition.Submenu submenu) {
+                    var menu = submenu.menu();
+                    result.add(new MenuDefinition.Submenu(new MenuDefinition(menu.name(), expand(menu.items()))));
+                } else {
+                    result.add(item);
+                }
+            }
+            return result;
+        }
+
+        private void mergeDirectory(Path directory, List<MenuDefinition.Item> result) {
+            if (!Files.isDirectory(directory)) {
+                return;
+            }
+            try (var files = Files.list(directory)) {
+                var menuFiles = files
+                        .filter(file -> file.getFileName().toString().endsWith(MENU_EXTENSION))
+                        .sorted()
+                        .toList();
+                for (var file : menuFiles) {
+                    mergeFile(file, result);
+                }
+            } catch (IOException | UncheckedIOException ex) {
+                // Unreadable merge directories are ignored
+            }
+        }
+
+        private void mergeFile(Path file, List<MenuDefinition.Item> result) {
+            var normalized = file.toAbsolutePath().normalize();
+            if (!Files.isRegularFile(normalized) || stack.contains(normalized)) {
+                return;
+            }
+            MenuDefinition definition;
+            try {
+                definition = MenuParser.parse(normalized);
+            } catch (UncheckedIOException ex) {
+                // Invalid merged files are ignored
+                return;
+            }
+            stack.push(normalized);
+            try {
+                result.addAll(expand(definition.items()));
+            } finally {
+                stack.pop();
+            }
+        }
+
+        /**
+         * Finds file with the same path relative to the next less important configuration directory.
+         */
+        private Path findParent(Path source) {
+            var normalized = source.toAbsolutePath().normalize();
+            var directories = getConfigDirectories();
+            for (int i = 0; i < directories.size(); i++) {
+                var directory = directories.get(i).toAbsolutePath().normalize();
+                if (!normalized.startsWith(directory)) {
+                    continue;
+                }
+                var relative = directory.relativize(normalized);
+                for (int j = i + 1; j < directories.size(); j++) {
+                    var candidate = directories.get(j).resolve(relative);
+                    if (Files.isRegularFile(candidate)) {
+                        return candidate;
+                    }
+                }
+                return null;
+            }
+            return null;
+        }
+
+        /**
+         * Computes entries of menus. First pass allocates entries of regular menus, second pass fills menus with
+         * <code>&lt;OnlyUnallocated/&gt;</code>.
+         */
+        void allocate(MenuNode node, boolean onlyUnallocated, Set<String> allocated) {
+            if (node.deleted) {
+                return;
+            }
+            if (node.onlyUnallocated == onlyUnallocated) {
+                var pool = getPool(node.appDirs);
+                var matches = node.evaluate(pool.index);
+                matches.and(pool.index.visible());
+
+                var ids = new ArrayList<String>(matches.cardinality());
+                for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                    var id = pool.index.getId(i);
+                    if (!onlyUnallocated || !allocated.contains(id)) {
+                        ids.add(id);
+                    }
+                }
+                if (!onlyUnallocated) {
+                    allocated.addAll(ids);
+                }
+                var menuEntries = new ArrayList<MenuEntry>(ids.size());
+                for (var id : ids) {
+                    menuEntries.add(new MenuEntry(id, pool.entries.get(id)));
+                }
+                entries.put(node, menuEntries);
+            }
+            for (var child : node.children.values()) {
+                allocate(child, onlyUnallocated, allocated);
+            }
+        }
+
+        Optional<Menu> toMenu(MenuNode node) {
+            if (node.deleted) {
+                return Optional.empty();
+            }
+            var submenus = new ArrayList<Menu>();
+            for (var child : node.children.values()) {
+                toMenu(child).ifPresent(submenus::add);
+            }
+            return Optional.of(createMenu(node, entries.getOrDefault(node, List.of()), submenus));
+        }
+
+        private DesktopEntry findDirectory(MenuNode node) {
+            for (var name : MenuNode.reversed(node.directories)) {
+                for (var directory : MenuNode.reversed(node.directoryDirs)) {
+                    var entry = directoryCache.load(directory.resolve(name));
+                    if (entry.isPresent()) {
+                        return entry.get();
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Pool getPool(List<Path> appDirs) {
+            return pools.computeIfAbsent(appDirs, dirs -> {
+                var entries = new HashMap<String, DesktopEntry>();
+                // The last directory takes precedence
+                for (var directory : dirs) {
+                    entries.putAll(directories.computeIfAbsent(directory, this::loadDirectory));
+                }
+                return new Pool(entries, CategoryIndex.of(entries, filter));
+            });
+        }
+
+        private Map<String, DesktopEntry> loadDirectory(Path directory) {
+            try {
+                return entryLoader.loadDirectory(directory);
+            } catch (UncheckedIOException ex) {
+                return Map.of();
+            }
+        }
+    }
+
+    private record Pool(Map<String, DesktopEntry> entries, CategoryIndex index) {
+    }
+}
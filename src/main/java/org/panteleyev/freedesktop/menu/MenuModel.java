@@ -0,0 +1,335 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Menu tree that can be updated incrementally when the desktop entry catalog changes.
+ * <p>
+ * The model remembers which menus every entry was allocated to. When an entry is added, changed or removed only this
+ * entry is evaluated against rules of the menus, and only menus whose content has changed are rebuilt by
+ * {@link #getMenu()}, other submenus are reused from the previous tree. Every update returns the list of changes that
+ * can be applied by UI without rendering the whole menu again.
+ * <p>
+ * Instances are created by {@link MenuLoader#loadModel(java.nio.file.Path, Map)} and are not thread-safe.
+ */
+public final class MenuModel {
+    private static final String CATEGORIES = "Categories";
+
+    private final MenuNode[] nodes;
+    private final String[] paths;
+    private final int[] parents;
+    private final int[][] children;
+    private final BitSet regular = new BitSet();
+    private final BitSet unallocated = new BitSet();
+    // Menus kept by parent layout even if empty
+    private final BitSet showEmpty = new BitSet();
+    private final VisibilityFilter filter;
+
+    private final Map<String, DesktopEntry> entries = new HashMap<>();
+    private final Map<String, BitSet> allocations = new HashMap<>();
+    private final List<Set<String>> members = new ArrayList<>();
+
+    private final Menu[] menus;
+    private final BitSet valid = new BitSet();
+
+    MenuModel(MenuNode root, Map<String, DesktopEntry> catalog, VisibilityFilter filter) {
+        this.filter = filter;
+
+        // Flatten active menus in pre-order
+        var nodeList = new ArrayList<MenuNode>();
+        var pathList = new ArrayList<String>();
+        var parentList = new ArrayList<Integer>();
+        flatten(root, "", -1, nodeList, pathList, parentList);
+        nodes = nodeList.toArray(MenuNode[]::new);
+        paths = pathList.toArray(String[]::new);
+        parents = parentList.stream().mapToInt(Integer::intValue).toArray();
+        children = new int[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            var list = new ArrayList<Integer>();
+            for (int j = i + 1; j < nodes.length; j++) {
+                if (parents[j] == i) {
+                    list.add(j);
+                }
+            }
+            children[i] = list.stream().mapToInt(Integer::intValue).toArray();
+            members.add(new HashSet<>());
+            if (!root.deleted) {
+                (nodes[i].onlyUnallocated ? unallocated : regular).set(i);
+            }
+            if (parents[i] >= 0) {
+                var parent = nodes[parents[i]];
+                if (parent.layout.getOptions(nodes[i].name, parent.defaultOptions).showEmpty()) {
+                    showEmpty.set(i);
+                }
+            }
+        }
+        menus = new Menu[nodes.length];
+
+        // Initial allocation is evaluated over the whole catalog with bit set operations
+        entries.putAll(catalog);
+        var index = CategoryIndex.of(catalog, filter);
+        var visible = index.visible();
+        for (int i = regular.nextSetBit(0); i >= 0; i = regular.nextSetBit(i + 1)) {
+            var matches = nodes[i].evaluate(index);
+            matches.and(visible);
+            for (int p = matches.nextSetBit(0); p >= 0; p = matches.nextSetBit(p + 1)) {
+                allocate(index.getId(p), i);
+            }
+        }
+        for (int i = unallocated.nextSetBit(0); i >= 0; i = unallocated.nextSetBit(i + 1)) {
+            var matches = nodes[i].evaluate(index);
+            matches.and(visible);
+            for (int p = matches.nextSetBit(0); p >= 0; p = matches.nextSetBit(p + 1)) {
+                var id = index.getId(p);
+                var allocation = allocations.get(id);
+                if (allocation == null || !allocation.intersects(regular)) {
+                    allocate(id, i);
+                }
+            }
+        }
+    }
+
+    private static void flatten(MenuNode node, String path, int parent, List<MenuNode> nodes, List<String> paths,
+            List<Integer> parents)
+    {
+        int index = nodes.size();
+        nodes.add(node);
+        paths.add(path);
+        parents.add(parent);
+        if (node.deleted) {
+            return;
+        }
+        for (var child : node.children.values()) {
+            if (!child.deleted) {
+                flatten(child, path.isEmpty() ? child.name : path + "/" + child.name, index, nodes, paths, parents);
+            }
+        }
+    }
+
+    private void allocate(String id, int node) {
+        allocations.computeIfAbsent(id, k -> new BitSet()).set(node);
+        members.get(node).add(id);
+    }
+
+    /**
+     * Returns current menu tree. Submenus that did not change since the previous call are the same instances.
+     *
+     * @return root menu
+     */
+    public Menu getMenu() {
+        return build(0);
+    }
+
+    /**
+     * Returns menus the entry is allocated to.
+     *
+     * @param id desktop file ID
+     * @return menu paths
+     */
+    public List<String> getMenus(String id) {
+        var allocation = allocations.get(id);
+        if (allocation == null) {
+            return List.of();
+        }
+        var result = new ArrayList<String>();
+        for (int i = allocation.nextSetBit(0); i >= 0; i = allocation.nextSetBit(i + 1)) {
+            result.add(paths[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Adds or replaces entry.
+     *
+     * @param id    desktop file ID
+     * @param entry desktop entry
+     * @return menu changes
+     */
+    public List<MenuChange> put(String id, DesktopEntry entry) {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(entry);
+        return apply(Map.of(id, entry), Set.of());
+    }
+
+    /**
+     * Removes entry.
+     *
+     * @param id desktop file ID
+     * @return menu changes
+     */
+    public List<MenuChange> remove(String id) {
+        return apply(Map.of(), Set.of(id));
+    }
+
+    /**
+     * Replaces catalog. Only added, removed and changed entries are evaluated. Entries are compared by reference
+     * first, so snapshots that share unchanged entries are compared quickly.
+     *
+     * @param catalog desktop entries by desktop file ID
+     * @return menu changes
+     */
+    public List<MenuChange> update(Map<String, DesktopEntry> catalog) {
+        var changed = new HashMap<String, DesktopEntry>();
+        for (var entry : catalog.entrySet()) {
+            var existing = entries.get(entry.getKey());
+            if (existing != entry.getValue() && !entry.getValue().equals(existing)) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        var removed = new ArrayList<String>();
+        for (var id : entries.keySet()) {
+            if (!catalog.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        return apply(changed, removed);
+    }
+
+    private List<MenuChange> apply(Map<String, DesktopEntry> changed, Collection<String> removed) {
+        var shownBefore = shown();
+
+        var removedEntries = new ArrayList<MenuChange>();
+        var addedEntries = new ArrayList<MenuChange>();
+        var changedEntries = new ArrayList<MenuChange>();
+        var touched = new BitSet();
+
+        for (var id : removed) {
+            update(id, null, removedEntries, addedEntries, changedEntries, touched);
+        }
+        for (var entry : changed.entrySet()) {
+            update(entry.getKey(), entry.getValue(), removedEntries, addedEntries, changedEntries, touched);
+        }
+
+        for (int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+            for (int node = i; node >= 0 && valid.get(node); node = parents[node]) {
+                valid.clear(node);
+            }
+        }
+
+        var shownAfter = shown();
+        var result = new ArrayList<MenuChange>(removedEntries);
+        // Removed menus deepest first, added menus parents first
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            if (shownBefore.get(i) && !shownAfter.get(i)) {
+                result.add(new MenuChange(MenuChange.Type.MENU_REMOVED, paths[i], null));
+            }
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            if (!shownBefore.get(i) && shownAfter.get(i)) {
+                result.add(new MenuChange(MenuChange.Type.MENU_ADDED, paths[i], null));
+            }
+        }
+        result.addAll(addedEntries);
+        result.addAll(changedEntries);
+        return result;
+    }
+
+    private void update(String id, DesktopEntry entry, List<MenuChange> removedEntries,
+            List<MenuChange> addedEntries, List<MenuChange> changedEntries, BitSet touched)
+    {
+        var oldEntry = entry == null ? entries.remove(id) : entries.put(id, entry);
+        var oldNodes = allocations.getOrDefault(id, new BitSet());
+        var newNodes = entry == null ? new BitSet() : evaluate(id, entry);
+        if (newNodes.isEmpty()) {
+            allocations.remove(id);
+        } else {
+            allocations.put(id, newNodes);
+        }
+
+        for (int i = oldNodes.nextSetBit(0); i >= 0; i = oldNodes.nextSetBit(i + 1)) {
+            if (!newNodes.get(i)) {
+                members.get(i).remove(id);
+                removedEntries.add(new MenuChange(MenuChange.Type.ENTRY_REMOVED, paths[i], id));
+                touched.set(i);
+            } else if (!Objects.equals(oldEntry, entry)) {
+                changedEntries.add(new MenuChange(MenuChange.Type.ENTRY_CHANGED, paths[i], id));
+                touched.set(i);
+            }
+        }
+        for (int i = newNodes.nextSetBit(0); i >= 0; i = newNodes.nextSetBit(i + 1)) {
+            if (!oldNodes.get(i)) {
+                members.get(i).add(id);
+                addedEntries.add(new MenuChange(MenuChange.Type.ENTRY_ADDED, paths[i], id));
+                touched.set(i);
+            }
+        }
+    }
+
+    /**
+     * Evaluates single entry against rules of all menus.
+     */
+    private BitSet evaluate(String id, DesktopEntry entry) {
+        var result = new BitSet();
+        if (!filter.isVisible(entry)) {
+            return result;
+        }
+        var categories = entry.getValue(CATEGORIES).map(CategoryMask::parse).orElse(CategoryMask.EMPTY);
+        for (int i = regular.nextSetBit(0); i >= 0; i = regular.nextSetBit(i + 1)) {
+            if (nodes[i].test(id, categories)) {
+                result.set(i);
+            }
+        }
+        if (result.isEmpty()) {
+            for (int i = unallocated.nextSetBit(0); i >= 0; i = unallocated.nextSetBit(i + 1)) {
+                if (nodes[i].test(id, categories)) {
+                    result.set(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns set of displayed menus, i.e. menus with entries or displayed submenus and empty menus whose parent
+     * layout has <code>show_empty</code> set. Rule is the same as in {@link MenuLoader#createMenu}.
+     */
+    private BitSet shown() {
+        var result = new BitSet();
+        // Children always follow their parent in pre-order
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            if (!members.get(i).isEmpty() || showEmpty.get(i)) {
+                result.set(i);
+            } else {
+                for (var child : children[i]) {
+                    if (result.get(child)) {
+                        result.set(i);
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Menu build(int node) {
+        if (valid.get(node)) {
+            return menus[node];
+        }
+        var submenus = new ArrayList<Menu>();
+        for (var child : children[node]) {
+            submenus.add(build(child));
+        }
+        var menuEntries = new ArrayList<MenuEntry>(members.get(node).size());
+        for (var id : members.get(node)) {
+            menuEntries.add(new MenuEntry(id, entries.get(id)));
+        }
+        var menu = MenuLoader.createMenu(nodes[node], menuEntries, submenus);
+        menus[node] = menu;
+        valid.set(node);
+        return menu;
+    }
+}
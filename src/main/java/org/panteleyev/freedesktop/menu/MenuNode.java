@@ -0,0 +1,224 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consolidated menu: merged submenus, inherited directories and the last values of boolean elements.
+ */
+final class MenuNode {
+    final String name;
+    List<Path> appDirs = new ArrayList<>();
+    List<Path> directoryDirs = new ArrayList<>();
+    final List<String> directories = new ArrayList<>();
+    final List<MenuDefinition.Rule> rules = new ArrayList<>();
+    final List<MenuDefinition.Move> moves = new ArrayList<>();
+    private Boolean deletedValue;
+    private Boolean onlyUnallocatedValue;
+    private MenuLayout layoutValue;
+    private MenuLayout defaultLayoutValue;
+    final Map<String, MenuNode> children = new LinkedHashMap<>();
+
+    boolean deleted;
+    boolean onlyUnallocated;
+    MenuLayout layout = MenuLayout.DEFAULT;
+    MenuLayout.Options defaultOptions = MenuLayout.Options.DEFAULT;
+    DesktopEntry directory;
+
+    private MenuNode(String name) {
+        this.name = name;
+    }
+
+    static MenuNode build(String name, List<MenuDefinition.Item> items) {
+        var node = new MenuNode(name);
+        var submenus = new LinkedHashMap<String, List<MenuDefinition.Item>>();
+        for (var item : items) {
+            if (item instanceof MenuDefinition.AppDir appDir) {
+                node.appDirs.add(appDir.path());
+            } else if (item instanceof MenuDefinition.DirectoryDir directoryDir) {
+                node.directoryDirs.add(directoryDir.path());
+            } else if (item instanceof MenuDefinition.Directory directory) {
+                node.directories.add(directory.name());
+            } else if (item instanceof MenuDefinition.Rule rule) {
+                node.rules.add(rule);
+            } else if (item instanceof MenuDefinition.OnlyUnallocated onlyUnallocated) {
+                node.onlyUnallocatedValue = onlyUnallocated.value();
+            } else if (item instanceof MenuDefinition.Deleted deleted) {
+                node.deletedValue = deleted.value();
+            } else if (item instanceof MenuDefinition.Move move) {
+                node.moves.add(move);
+            } else if (item instanceof MenuDefinition.Layout layout) {
+                if (layout.isDefault()) {
+                    node.defaultLayoutValue = layout.layout();
+                } else {
+                    node.layoutValue = layout.layout();
+                }
+            } else if (item instanceof MenuDefinition.Submenu submenu) {
+                var menu = submenu.menu();
+                if (menu.name() != null && !menu.name().isEmpty() && !menu.name().contains("/")) {
+                    submenus.computeIfAbsent(menu.name(), k -> new ArrayList<>()).addAll(menu.items());
+                }
+            }
+        }
+        submenus.forEach((submenuName, submenuItems) -> node.children.put(submenuName,
+                build(submenuName, submenuItems)));
+        return node;
+    }
+
+    /**
+     * Merges content of another node into this one, content of the other node takes precedence.
+     */
+    private void merge(MenuNode other) {
+        appDirs.addAll(other.appDirs);
+        directoryDirs.addAll(other.directoryDirs);
+        directories.addAll(other.directories);
+        rules.addAll(other.rules);
+        moves.addAll(other.moves);
+        if (other.deletedValue != null) {
+            deletedValue = other.deletedValue;
+        }
+        if (other.onlyUnallocatedValue != null) {
+            onlyUnallocatedValue = other.onlyUnallocatedValue;
+        }
+        if (other.layoutValue != null) {
+            layoutValue = other.layoutValue;
+        }
+        if (other.defaultLayoutValue != null) {
+            defaultLayoutValue = other.defaultLayoutValue;
+        }
+        other.children.forEach((childName, child) -> {
+            var existing = children.get(childName);
+            if (existing == null) {
+                children.put(childName, child);
+            } else {
+                existing.merge(child);
+            }
+        });
+    }
+
+    void applyMoves() {
+        for (var move : moves) {
+            var moved = detach(move.oldPath());
+            if (moved == null) {
+                continue;
+            }
+            var target = this;
+            for (var segment : move.newPath().split("/")) {
+                if (!segment.isEmpty()) {
+                    target = target.children.computeIfAbsent(segment, MenuNode::new);
+                }
+            }
+            if (target != this) {
+                target.merge(moved);
+            }
+        }
+        for (var child : children.values()) {
+            child.applyMoves();
+        }
+    }
+
+    private MenuNode detach(String path) {
+        var segments = Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toList();
+        if (segments.isEmpty()) {
+            return null;
+        }
+        var parent = this;
+        for (var segment : segments.subList(0, segments.size() - 1)) {
+            parent = parent.children.get(segment);
+            if (parent == null) {
+                return null;
+            }
+        }
+        return parent.children.remove(segments.get(segments.size() - 1));
+    }
+
+    /**
+     * Inherits directories and default layout of the parent menu and computes final values of boolean elements.
+     */
+    void inherit(List<Path> parentAppDirs, List<Path> parentDirectoryDirs, MenuLayout parentDefaultLayout) {
+        var inheritedAppDirs = new ArrayList<>(parentAppDirs);
+        inheritedAppDirs.addAll(appDirs);
+        appDirs = distinctKeepLast(inheritedAppDirs);
+
+        var inheritedDirectoryDirs = new ArrayList<>(parentDirectoryDirs);
+        inheritedDirectoryDirs.addAll(directoryDirs);
+        directoryDirs = distinctKeepLast(inheritedDirectoryDirs);
+
+        deleted = deletedValue != null && deletedValue;
+        onlyUnallocated = onlyUnallocatedValue != null && onlyUnallocatedValue;
+
+        var defaultLayout = defaultLayoutValue == null ? parentDefaultLayout :
+                new MenuLayout(defaultLayoutValue.options().withDefaults(parentDefaultLayout.options()),
+                        defaultLayoutValue.items());
+        layout = layoutValue != null ? layoutValue : defaultLayout;
+        defaultOptions = defaultLayout.options();
+
+        for (var child : children.values()) {
+            child.inherit(appDirs, directoryDirs, defaultLayout);
+        }
+    }
+
+    /**
+     * Evaluates <code>&lt;Include&gt;</code> and <code>&lt;Exclude&gt;</code> rules in document order over all
+     * entries of the index. Visibility is not taken into account.
+     *
+     * @param index category index
+     * @return set of matching entry positions
+     */
+    BitSet evaluate(CategoryIndex index) {
+        var result = new BitSet();
+        for (var rule : rules) {
+            if (rule.include()) {
+                result.or(rule.rule().evaluate(index));
+            } else {
+                result.andNot(rule.rule().evaluate(index));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates <code>&lt;Include&gt;</code> and <code>&lt;Exclude&gt;</code> rules for a single entry.
+     *
+     * @param id         desktop file ID
+     * @param categories entry categories
+     * @return true if entry matches
+     */
+    boolean test(String id, CategoryMask categories) {
+        var result = false;
+        for (var rule : rules) {
+            if (rule.include() != result && rule.rule().test(id, categories)) {
+                result = rule.include();
+            }
+        }
+        return result;
+    }
+
+    static <T> List<T> reversed(List<T> list) {
+        var result = new ArrayList<>(list);
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Removes duplicates keeping the last occurrence.
+     */
+    private static <T> List<T> distinctKeepLast(List<T> list) {
+        var result = new ArrayList<>(new LinkedHashSet<>(reversed(list)));
+        Collections.reverse(result);
+        return result;
+    }
+}
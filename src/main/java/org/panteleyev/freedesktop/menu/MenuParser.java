@@ -0,0 +1,314 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads menu files with a streaming parser. No document tree is built, element names are mapped to constants once
+ * per element and the menu definition is assembled directly from parser events.
+ */
+final class MenuParser {
+    /**
+     * Elements of the menu file.
+     */
+    private enum Element {
+        MENU("Menu"),
+        NAME("Name"),
+        APP_DIR("AppDir"),
+        DEFAULT_APP_DIRS("DefaultAppDirs"),
+        DIRECTORY_DIR("DirectoryDir"),
+        DEFAULT_DIRECTORY_DIRS("DefaultDirectoryDirs"),
+        DIRECTORY("Directory"),
+        INCLUDE("Include"),
+        EXCLUDE("Exclude"),
+        ONLY_UNALLOCATED("OnlyUnallocated"),
+        NOT_ONLY_UNALLOCATED("NotOnlyUnallocated"),
+        DELETED("Deleted"),
+        NOT_DELETED("NotDeleted"),
+        MERGE_FILE("MergeFile"),
+        MERGE_DIR("MergeDir"),
+        DEFAULT_MERGE_DIRS("DefaultMergeDirs"),
+        MOVE("Move"),
+        OLD("Old"),
+        NEW("New"),
+        FILENAME("Filename"),
+        CATEGORY("Category"),
+        ALL("All"),
+        AND("And"),
+        OR("Or"),
+        NOT("Not"),
+        LAYOUT("Layout"),
+        DEFAULT_LAYOUT("DefaultLayout"),
+        MENUNAME("Menuname"),
+        SEPARATOR("Separator"),
+        MERGE("Merge"),
+        UNKNOWN("");
+
+        private static final Map<String, Element> BY_NAME = new HashMap<>();
+
+        static {
+            for (var element : values()) {
+                BY_NAME.put(element.name, element);
+            }
+        }
+
+        private final String name;
+
+        Element(String name) {
+            this.name = name;
+        }
+
+        static Element of(XMLStreamReader reader) {
+            return BY_NAME.getOrDefault(reader.getLocalName(), UNKNOWN);
+        }
+    }
+
+    private MenuParser() {
+    }
+
+    /**
+     * Parses menu file. Merge directives are not resolved.
+     *
+     * @param file menu file
+     * @return root menu definition
+     * @throws UncheckedIOException if file cannot be read or is not a valid menu file
+     */
+    static MenuDefinition parse(Path file) {
+        var factory = XMLInputFactory.newDefaultFactory();
+        // Menu files reference the DTD by URL, never fetch it
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        try (var in = Files.newInputStream(file)) {
+            var reader = factory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    // Skip prolog
+                }
+                if (!reader.isStartElement() || Element.of(reader) != Element.MENU) {
+                    throw new IOException("Root element must be Menu: " + file);
+                }
+                return parseMenu(reader, file);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (XMLStreamException ex) {
+            throw new UncheckedIOException(new IOException("Invalid menu file: " + file, ex));
+        }
+    }
+
+    /**
+     * Parses <code>&lt;Menu&gt;</code> element. Reader must be positioned at the start tag and is left at the end
+     * tag.
+     */
+    private static MenuDefinition parseMenu(XMLStreamReader reader, Path file) throws XMLStreamException {
+        String name = null;
+        var items = new ArrayList<MenuDefinition.Item>();
+        while (nextChild(reader)) {
+            switch (Element.of(reader)) {
+                case NAME -> name = text(reader);
+                case APP_DIR -> items.add(new MenuDefinition.AppDir(resolve(file, text(reader))));
+                case DEFAULT_APP_DIRS -> {
+                    skip(reader);
+                    items.add(new MenuDefinition.DefaultAppDirs());
+                }
+                case DIRECTORY_DIR -> items.add(new MenuDefinition.DirectoryDir(resolve(file, text(reader))));
+                case DEFAULT_DIRECTORY_DIRS -> {
+                    skip(reader);
+                    items.add(new MenuDefinition.DefaultDirectoryDirs());
+                }
+                case DIRECTORY -> items.add(new MenuDefinition.Directory(text(reader)));
+                case INCLUDE -> items.add(new MenuDefinition.Rule(true, new MenuRule.Or(parseRules(reader))));
+                case EXCLUDE -> items.add(new MenuDefinition.Rule(false, new MenuRule.Or(parseRules(reader))));
+                case ONLY_UNALLOCATED, NOT_ONLY_UNALLOCATED -> {
+                    var value = Element.of(reader) == Element.ONLY_UNALLOCATED;
+                    skip(reader);
+                    items.add(new MenuDefinition.OnlyUnallocated(value));
+                }
+                case DELETED, NOT_DELETED -> {
+                    var value = Element.of(reader) == Element.DELETED;
+                    skip(reader);
+                    items.add(new MenuDefinition.Deleted(value));
+                }
+                case MERGE_FILE -> {
+                    var parent = "parent".equals(reader.getAttributeValue(null, "type"));
+                    var path = text(reader);
+                    items.add(parent ?
+                            new MenuDefinition.MergeFile(null, file)
+                            : new MenuDefinition.MergeFile(resolve(file, path), file));
+                }
+                case MERGE_DIR -> items.add(new MenuDefinition.MergeDir(resolve(file, text(reader))));
+                case DEFAULT_MERGE_DIRS -> {
+                    skip(reader);
+                    items.add(new MenuDefinition.DefaultMergeDirs());
+                }
+                case MOVE -> {
+                    String oldPath = null;
+                    String newPath = null;
+                    while (nextChild(reader)) {
+                        switch (Element.of(reader)) {
+                            case OLD -> oldPath = text(reader);
+                            case NEW -> newPath = text(reader);
+                            default -> skip(reader);
+                        }
+                    }
+                    if (oldPath != null && newPath != null) {
+                        items.add(new MenuDefinition.Move(oldPath, newPath));
+                    }
+                }
+                case MENU -> items.add(new MenuDefinition.Submenu(parseMenu(reader, file)));
+                case LAYOUT -> items.add(new MenuDefinition.Layout(false,
+                        new MenuLayout(MenuLayout.Options.UNSPECIFIED, parseLayout(reader))));
+                case DEFAULT_LAYOUT -> {
+                    var options = parseOptions(reader);
+                    items.add(new MenuDefinition.Layout(true, new MenuLayout(options, parseLayout(reader))));
+                }
+                // Unsupported and legacy elements are ignored
+                default -> skip(reader);
+            }
+        }
+        return new MenuDefinition(name, items);
+    }
+
+    private static List<MenuRule> parseRules(XMLStreamReader reader) throws XMLStreamException {
+        var rules = new ArrayList<MenuRule>();
+        while (nextChild(reader)) {
+            switch (Element.of(reader)) {
+                case FILENAME -> rules.add(new MenuRule.Filename(text(reader)));
+                case CATEGORY -> rules.add(new MenuRule.Category(text(reader)));
+                case ALL -> {
+                    skip(reader);
+                    rules.add(new MenuRule.All());
+                }
+                case AND -> rules.add(new MenuRule.And(parseRules(reader)));
+                case OR -> rules.add(new MenuRule.Or(parseRules(reader)));
+                case NOT -> rules.add(new MenuRule.Not(parseRules(reader)));
+                default -> skip(reader);
+            }
+        }
+        return List.copyOf(rules);
+    }
+
+    private static List<MenuLayout.Item> parseLayout(XMLStreamReader reader) throws XMLStreamException {
+        var items = new ArrayList<MenuLayout.Item>();
+        while (nextChild(reader)) {
+            switch (Element.of(reader)) {
+                case FILENAME -> items.add(new MenuLayout.Filename(text(reader)));
+                case MENUNAME -> {
+                    var options = parseOptions(reader);
+                    items.add(new MenuLayout.Menuname(text(reader), options));
+                }
+                case SEPARATOR -> {
+                    skip(reader);
+                    items.add(new MenuLayout.Separator());
+                }
+                case MERGE -> {
+                    var type = mergeType(reader.getAttributeValue(null, "type"));
+                    skip(reader);
+                    if (type != null) {
+                        items.add(new MenuLayout.Merge(type));
+                    }
+                }
+                default -> skip(reader);
+            }
+        }
+        return items;
+    }
+
+    private static MenuLayout.Options parseOptions(XMLStreamReader reader) {
+        return new MenuLayout.Options(
+                parseBoolean(reader.getAttributeValue(null, "show_empty")),
+                parseBoolean(reader.getAttributeValue(null, "inline")),
+                parseInteger(reader.getAttributeValue(null, "inline_limit")),
+                parseBoolean(reader.getAttributeValue(null, "inline_header")),
+                parseBoolean(reader.getAttributeValue(null, "inline_alias"))
+        );
+    }
+
+    static MenuLayout.MergeType mergeType(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value) {
+            case "menus" -> MenuLayout.MergeType.MENUS;
+            case "files" -> MenuLayout.MergeType.FILES;
+            case "all" -> MenuLayout.MergeType.ALL;
+            default -> null;
+        };
+    }
+
+    static Boolean parseBoolean(String value) {
+        return value == null || value.isEmpty() ? null : Boolean.valueOf(value.trim());
+    }
+
+    static Integer parseInteger(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Advances to the next child element of the current element.
+     *
+     * @return true if reader is positioned at the start tag of a child, false if at the end tag of the parent
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    return true;
+                case XMLStreamConstants.END_ELEMENT:
+                    return false;
+                default:
+                    break;
+            }
+        }
+        throw new XMLStreamException("Unexpected end of document");
+    }
+
+    /**
+     * Skips current element with all its content.
+     */
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static String text(XMLStreamReader reader) throws XMLStreamException {
+        return reader.getElementText().trim();
+    }
+
+    private static Path resolve(Path file, String path) {
+        var parent = file.toAbsolutePath().getParent();
+        return parent == null ? Path.of(path) : parent.resolve(path);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Matching rule of <code>&lt;Include&gt;</code> and <code>&lt;Exclude&gt;</code> elements. Rules are evaluated over
+ * the whole pool of entries at once as bit set operations on {@link CategoryIndex}, single entries can be tested
+ * against their category mask.
+ */
+sealed interface MenuRule {
+    /**
+     * Evaluates rule over all entries of the index.
+     *
+     * @param index category index
+     * @return set of matching entry positions, the caller may modify it
+     */
+    BitSet evaluate(CategoryIndex index);
+
+    /**
+     * Tests single entry.
+     *
+     * @param id         desktop file ID
+     * @param categories entry categories
+     * @return true if entry matches
+     */
+    boolean test(String id, CategoryMask categories);
+
+    /**
+     * <code>&lt;All/&gt;</code> matches all entries.
+     */
+    record All() implements MenuRule {
+        @Override
+        public BitSet evaluate(CategoryIndex index) {
+            return index.evaluate(CategoryQuery.ALL);
+        }
+
+        @Override
+        public boolean test(String id, CategoryMask categories) {
+            return true;
+        }
+    }
+
+    /**
+     * <code>&lt;Filename&gt;</code> matches entry with the desktop file ID.
+     */
+    record Filename(String id) implements MenuRule {
+        @Override
+        public BitSet evaluate(CategoryIndex index) {
+            return index.evaluate(id);
+        }
+
+        @Override
+        public boolean test(String id, CategoryMask categories) {
+            return this.id.equals(id);
+        }
+    }
+
+    /**
+     * <code>&lt;Category&gt;</code> matches entries with the category.
+     */
+    record Category(String name) implements MenuRule {
+        @Override
+        public BitSet evaluate(CategoryIndex index) {
+            return index.evaluate(CategoryQuery.of(name));
+        }
+
+        @Override
+        public boolean test(String id, CategoryMask categories) {
+            return categories.contains(name);
+        }
+    }
+
+    /**
+     * <code>&lt;And&gt;</code> matches entries matching all rules. Empty element matches nothing.
+     */
+    record And(List<MenuRule> rules) implements MenuRule {
+        @Override
+        public BitSet evaluate(CategoryIndex index) {
+            if (rules.isEmpty()) {
+                return new BitSet();
+            }
+            var result = rules.get(0).evaluate(index);
+            for (int i = 1; i < rules.size() && !result.isEmpty(); i++) {
+                result.and(rules.get(i).evaluate(index));
+            }
+            return result;
+        }
+
+        @Override
+        public boolean test(String id, CategoryMask categories) {
+            if (rules.isEmpty()) {
+                return false;
+            }
+            for (var rule : rules) {
+                if (!rule.test(id, categories)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * <code>&lt;Or&gt;</code> and <code>&lt;Include&gt;</code>/<code>&lt;Exclude&gt;</code> match entries matching
+     * any of the rules.
+     */
+    record Or(List<MenuRule> rules) implements MenuRule {
+        @Override
+        public BitSet evaluate(CategoryIndex index) {
+            var result = new BitSet();
+            for (var rule : rules) {
+                result.or(rule.evaluate(index));
+            }
+            return result;
+        }
+
+        @Override
+        public boolean test(String id, CategoryMask categories) {
+            for (var rule : rules) {
+                if (rule.test(id, categories)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * <code>&lt;Not&gt;</code> matches entries matching none of the rules.
+     */
+    record Not(List<MenuRule> rules) implements MenuRule {
+        @Override
+        public BitSet evaluate(CategoryIndex index) {
+            var result = index.evaluate(CategoryQuery.ALL);
+            result.andNot(new Or(rules).evaluate(index));
+            return result;
+        }
+
+        @Override
+        public boolean test(String id, CategoryMask categories) {
+            return !new Or(rules).test(id, categories);
+        }
+    }
+}
@@ -4,6 +4,12 @@
  */
 package org.panteleyev.freedesktop.menu;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * Registered OnlyShowIn environments.
  */
@@ -73,12 +79,25 @@ public enum OnlyShowInEnvironment {
      */
     OLD("Old");
 
+    private static final Map<String, OnlyShowInEnvironment> BY_VALUE = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(OnlyShowInEnvironment::getValue, Function.identity()));
+
     private final String value;
 
     OnlyShowInEnvironment(String value) {
         this.value = value;
     }
 
+    /**
+     * Returns environment by its registered name. Names are case-sensitive.
+     *
+     * @param value environment name as used in <code>$XDG_CURRENT_DESKTOP</code>
+     * @return environment
+     */
+    public static Optional<OnlyShowInEnvironment> of(String value) {
+        return Optional.ofNullable(BY_VALUE.get(value));
+    }
+
     public String getValue() {
         return value;
     }
@@ -0,0 +1,158 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.panteleyev.freedesktop.Utility;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether desktop entries are visible in the menus of a desktop session. An entry is visible if it is not
+ * <code>Hidden</code>, not <code>NoDisplay</code>, its <code>OnlyShowIn</code> (if any) includes one of the current
+ * desktops, its <code>NotShowIn</code> includes none of them, and its <code>TryExec</code> (if any) points to an
+ * existing executable file.
+ * <p>
+ * Current desktops and executable search path are captured when the filter is created. Results of
+ * <code>TryExec</code> checks are cached by the filter. Instances are thread-safe.
+ */
+public final class VisibilityFilter {
+    /**
+     * Filter that accepts all entries.
+     */
+    public static final VisibilityFilter ALL = new VisibilityFilter(EnvironmentMask.EMPTY, List.of(), false);
+
+    private static final String ONLY_SHOW_IN = "OnlyShowIn";
+    private static final String NOT_SHOW_IN = "NotShowIn";
+    private static final String TRY_EXEC = "TryExec";
+
+    private final EnvironmentMask desktops;
+    private final List<Path> searchPath;
+    private final boolean enabled;
+    private final Map<String, Boolean> executables = new ConcurrentHashMap<>();
+
+    /**
+     * Creates filter for the current session using <code>$XDG_CURRENT_DESKTOP</code> and <code>$PATH</code>.
+     */
+    public VisibilityFilter() {
+        this(Utility.getCurrentDesktops(), parseSearchPath(System.getenv("PATH")));
+    }
+
+    /**
+     * Creates filter.
+     *
+     * @param desktops   current desktop identifiers
+     * @param searchPath directories to look for <code>TryExec</code> executables
+     */
+    public VisibilityFilter(List<String> desktops, List<Path> searchPath) {
+        this(EnvironmentMask.of(desktops), searchPath, true);
+    }
+
+    private VisibilityFilter(EnvironmentMask desktops, List<Path> searchPath, boolean enabled) {
+        this.desktops = desktops;
+        this.searchPath = List.copyOf(searchPath);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns current desktops.
+     *
+     * @return desktops mask
+     */
+    public EnvironmentMask getDesktops() {
+        return desktops;
+    }
+
+    /**
+     * Checks if the entry is visible.
+     *
+     * @param entry desktop entry
+     * @return true if visible
+     */
+    public boolean isVisible(DesktopEntry entry) {
+        return isVisible(Flags.of(entry));
+    }
+
+    boolean isVisible(Flags flags) {
+        if (!enabled) {
+            return true;
+        }
+        if (flags.hidden() || flags.noDisplay()) {
+            return false;
+        }
+        if (!flags.onlyShowIn().isEmpty() && !flags.onlyShowIn().intersects(desktops)) {
+            return false;
+        }
+        if (flags.notShowIn().intersects(desktops)) {
+            return false;
+        }
+        return flags.tryExec() == null || executables.computeIfAbsent(flags.tryExec(), this::isExecutable);
+    }
+
+    private boolean isExecutable(String tryExec) {
+        try {
+            var path = Path.of(tryExec);
+            if (path.isAbsolute()) {
+                return Files.isRegularFile(path) && Files.isExecutable(path);
+            }
+            for (var directory : searchPath) {
+                var candidate = directory.resolve(path);
+                if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InvalidPathException ex) {
+            return false;
+        }
+    }
+
+    private static List<Path> parseSearchPath(String value) {
+        if (value == null || value.isEmpty()) {
+            return List.of();
+        }
+        var result = new ArrayList<Path>();
+        for (var element : value.split(File.pathSeparator)) {
+            if (!element.isEmpty()) {
+                try {
+                    result.add(Path.of(element));
+                } catch (InvalidPathException ex) {
+                    // Ignore invalid elements
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visibility related values of a single desktop entry, parsed once.
+     */
+    record Flags(boolean hidden, boolean noDisplay, EnvironmentMask onlyShowIn, EnvironmentMask notShowIn,
+                 String tryExec)
+    {
+        Flags {
+            Objects.requireNonNull(onlyShowIn);
+            Objects.requireNonNull(notShowIn);
+        }
+
+        static Flags of(DesktopEntry entry) {
+            return new Flags(
+                    entry.isHidden(),
+                    entry.isNoDisplay(),
+                    entry.getValue(ONLY_SHOW_IN).map(EnvironmentMask::parse).orElse(EnvironmentMask.EMPTY),
+                    entry.getValue(NOT_SHOW_IN).map(EnvironmentMask::parse).orElse(EnvironmentMask.EMPTY),
+                    entry.getValue(TRY_EXEC).filter(s -> !s.isBlank()).orElse(null)
+            );
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.mime;
+
+import org.panteleyev.freedesktop.Utility;
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Resolves default and associated applications for MIME types from <code>mimeapps.list</code> files combined with
+ * {@link MimeTypeIndex}.
+ * <p>
+ * Resolution results are memoized per MIME type. Files are checked for modification at most once per check interval;
+ * when any of them changes all files are read again and memoized results are dropped. Lookups between checks do not
+ * touch the file system.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class MimeAppsResolver {
+    /**
+     * Name of the association file.
+     */
+    public static final String MIMEAPPS_LIST = "mimeapps.list";
+
+    /**
+     * Default interval between file modification checks.
+     */
+    public static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofSeconds(1);
+
+    private static final String DEFAULT_APPLICATIONS = "Default Applications";
+    private static final String ADDED_ASSOCIATIONS = "Added Associations";
+    private static final String REMOVED_ASSOCIATIONS = "Removed Associations";
+
+    private final List<Path> files;
+    private final MimeTypeIndex index;
+    private final Predicate<String> installed;
+    private final long checkIntervalNanos;
+
+    private final AtomicLong lastCheck = new AtomicLong();
+    private volatile State state;
+
+    /**
+     * Creates resolver for {@link #getMimeAppsFiles()} with default check interval. All applications are considered
+     * installed.
+     *
+     * @param index MIME type index
+     */
+    public MimeAppsResolver(MimeTypeIndex index) {
+        this(getMimeAppsFiles(), index, id -> true, DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * Creates resolver.
+     *
+     * @param files         preference-ordered list of <code>mimeapps.list</code> files
+     * @param index         MIME type index
+     * @param installed     predicate returning true for installed desktop file IDs
+     * @param checkInterval interval between file modification checks
+     */
+    public MimeAppsResolver(List<Path> files, MimeTypeIndex index, Predicate<String> installed,
+            Duration checkInterval)
+    {
+        this.files = List.copyOf(files);
+        this.index = Objects.requireNonNull(index);
+        this.installed = Objects.requireNonNull(installed);
+        this.checkIntervalNanos = checkInterval.toNanos();
+        this.state = load();
+        this.lastCheck.set(System.nanoTime());
+    }
+
+    /**
+     * Returns preference-ordered list of <code>mimeapps.list</code> files for desktops from
+     * <code>$XDG_CURRENT_DESKTOP</code>.
+     *
+     * @return list of files
+     */
+    public static List<Path> getMimeAppsFiles() {
+        return getMimeAppsFiles(Utility.getCurrentDesktops());
+    }
+
+    /**
+     * Returns preference-ordered list of <code>mimeapps.list</code> files: desktop-specific and common files in
+     * <code>$XDG_CONFIG_HOME</code>, <code>$XDG_CONFIG_DIRS</code>, <code>$XDG_DATA_HOME/applications</code> and
+     * <code>$XDG_DATA_DIRS/applications</code>.
+     *
+     * @param desktops desktop identifiers in the order of preference
+     * @return list of files
+     */
+    public static List<Path> getMimeAppsFiles(List<String> desktops) {
+        var directories = new ArrayList<Path>();
+        directories.add(XDGBaseDirectory.getConfigHome());
+        directories.addAll(XDGBaseDirectory.getConfigDirs());
+        directories.addAll(XDGBaseDirectory.getDesktopEntryDirectories());
+
+        var result = new LinkedHashSet<Path>();
+        for (var directory : directories) {
+            for (var desktop : desktops) {
+                result.add(directory.resolve(desktop.toLowerCase(Locale.ROOT) + "-" + MIMEAPPS_LIST));
+            }
+            result.add(directory.resolve(MIMEAPPS_LIST));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Returns default application for the MIME type. Default is the first installed application listed in
+     * <code>[Default Applications]</code> of the most important file, or the most preferred associated application
+     * if there is no valid default.
+     *
+     * @param mimeType MIME type
+     * @return desktop file ID
+     */
+    public Optional<String> getDefaultApplication(String mimeType) {
+        return resolve(mimeType).defaultApplication();
+    }
+
+    /**
+     * Returns applications associated with the MIME type, default application first.
+     *
+     * @param mimeType MIME type
+     * @return ordered list of desktop file IDs
+     */
+    public List<String> getApplications(String mimeType) {
+        return resolve(mimeType).applications();
+    }
+
+    /**
+     * Drops memoized results and reads files again.
+     */
+    public void invalidate() {
+        state = load();
+        lastCheck.set(System.nanoTime());
+    }
+
+    private Associations resolve(String mimeType) {
+        var key = MimeTypeIndex.normalize(mimeType);
+        var current = currentState();
+        return current.associations.computeIfAbsent(key, type -> compute(current, type));
+    }
+
+    private State currentState() {
+        var now = System.nanoTime();
+        var last = lastCheck.get();
+        if (now - last >= checkIntervalNanos && lastCheck.compareAndSet(last, now)) {
+            var current = state;
+            if (!current.stamps.equals(stamps())) {
+                state = load();
+            }
+        }
+        return state;
+    }
+
+    private Associations compute(State state, String mimeType) {
+        var types = index.getLookupOrder(mimeType);
+        var lists = state.lists;
+
+        String defaultApplication = null;
+        var applications = new LinkedHashSet<String>();
+        var removed = new HashMap<String, Set<String>>();
+
+        for (var list : lists) {
+            for (var type : types) {
+                var typeRemoved = removed.getOrDefault(type, Set.of());
+                if (defaultApplication == null) {
+                    for (var id : list.get(DEFAULT_APPLICATIONS, type)) {
+                        if (!typeRemoved.contains(id) && installed.test(id)) {
+                            defaultApplication = id;
+                            break;
+                        }
+                    }
+                }
+                for (var id : list.get(ADDED_ASSOCIATIONS, type)) {
+                    if (!typeRemoved.contains(id) && installed.test(id)) {
+                        applications.add(id);
+                    }
+                }
+            }
+            for (var type : types) {
+                var ids = list.get(REMOVED_ASSOCIATIONS, type);
+                if (!ids.isEmpty()) {
+                    removed.computeIfAbsent(type, k -> new HashSet<>()).addAll(ids);
+                }
+            }
+        }
+
+        for (var type : types) {
+            var typeRemoved = removed.getOrDefault(type, Set.of());
+            for (var id : index.getRegisteredApplications(type)) {
+                if (!typeRemoved.contains(id) && installed.test(id)) {
+                    applications.add(id);
+                }
+            }
+        }
+
+        if (defaultApplication == null && !applications.isEmpty()) {
+            defaultApplication = applications.iterator().next();
+        }
+
+        var result = new ArrayList<String>(applications.size() + 1);
+        if (defaultApplication != null) {
+            result.add(defaultApplication);
+        }
+        for (var id : applications) {
+            if (!id.equals(defaultApplication)) {
+                result.add(id);
+            }
+        }
+        return new Associations(Optional.ofNullable(defaultApplication), List.copyOf(result));
+    }
+
+    private State load() {
+        // Stamps are taken before reading, concurrent changes will be detected by the next check
+        var stamps = stamps();
+        var lists = new ArrayList<MimeAppsList>(files.size());
+        for (var file : files) {
+            lists.add(MimeAppsList.read(file));
+        }
+        return new State(stamps, lists);
+    }
+
+    private List<FileStamp> stamps() {
+        var result = new ArrayList<FileStamp>(files.size());
+        for (var file : files) {
+            try {
+                var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                result.add(new FileStamp(attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), attrs.size()));
+            } catch (IOException ex) {
+                result.add(FileStamp.MISSING);
+            }
+        }
+        return result;
+    }
+
+    private record FileStamp(long modified, long size) {
+        private static final FileStamp MISSING = new FileStamp(-1, -1);
+    }
+
+    private record Associations(Optional<String> defaultApplication, List<String> applications) {
+    }
+
+    private record State(List<FileStamp> stamps, List<MimeAppsList> lists,
+            Map<String, Associations> associations)
+    {
+        State(List<FileStamp> stamps, List<MimeAppsList> lists) {
+            this(stamps, lists, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Parsed content of a single <code>mimeapps.list</code> file.
+     */
+    private record MimeAppsList(Map<String, Map<String, List<String>>> groups) {
+        private static final MimeAppsList EMPTY = new MimeAppsList(Map.of());
+
+        List<String> get(String group, String mimeType) {
+            return groups.getOrDefault(group, Map.of()).getOrDefault(mimeType, List.of());
+        }
+
+        static MimeAppsList read(Path file) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            } catch (IOException ex) {
+                // Missing or unreadable files are ignored
+                return EMPTY;
+            }
+
+            var groups = new HashMap<String, Map<String, List<String>>>();
+            Map<String, List<String>> current = null;
+            for (var line : lines) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("[") && line.endsWith("]")) {
+                    var name = line.substring(1, line.length() - 1);
+                    current = groups.computeIfAbsent(name, k -> new HashMap<>());
+                    continue;
+                }
+                var eq = line.indexOf('=');
+                if (current == null || eq <= 0) {
+                    continue;
+                }
+                current.putIfAbsent(MimeTypeIndex.normalize(line.substring(0, eq)),
+                        List.copyOf(MimeTypeIndex.split(line.substring(eq + 1))));
+            }
+
+            var result = new HashMap<String, Map<String, List<String>>>();
+            groups.forEach((name, group) -> result.put(name, Map.copyOf(group)));
+            return new MimeAppsList(Map.copyOf(result));
+        }
+    }
+}
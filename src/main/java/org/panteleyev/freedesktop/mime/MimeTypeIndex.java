@@ -0,0 +1,420 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.mime;
+
+import org.panteleyev.freedesktop.directory.XDGBaseDirectory;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+import org.panteleyev.freedesktop.entry.DesktopEntryScanner;
+import org.panteleyev.freedesktop.entry.DesktopEntryType;
+import org.panteleyev.freedesktop.internal.AtomicFiles;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of applications by MIME type, equivalent of <code>mimeinfo.cache</code> generated by
+ * <code>update-desktop-database</code>.
+ * <p>
+ * Index can be built from parsed desktop entries or read from existing <code>mimeinfo.cache</code> files. Lookup
+ * resolves MIME type aliases and falls back to wildcard types, e.g. applications registered for
+ * <code>image/*</code> are returned after those registered for <code>image/png</code>.
+ * <p>
+ * Instances are immutable.
+ */
+public final class MimeTypeIndex {
+    /**
+     * Name of the cache file in each desktop entry directory.
+     */
+    public static final String MIME_INFO_CACHE = "mimeinfo.cache";
+
+    private static final String MIME_CACHE_GROUP = "[MIME Cache]";
+    private static final String WILDCARD = "*";
+    private static final MimeTypeIndex EMPTY = new MimeTypeIndex(Map.of(), Map.of());
+
+    private final Map<String, List<String>> applications;
+    private final Map<String, String> aliases;
+
+    private MimeTypeIndex(Map<String, List<String>> applications, Map<String, String> aliases) {
+        this.applications = applications;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Returns empty index.
+     *
+     * @return empty index
+     */
+    public static MimeTypeIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds index from desktop entries. Only entries of type {@link DesktopEntryType#APPLICATION} that are not
+     * hidden are indexed. Applications are ordered by desktop file ID.
+     *
+     * @param entries desktop entries by desktop file ID
+     * @return index
+     */
+    public static MimeTypeIndex of(Map<String, DesktopEntry> entries) {
+        var result = new HashMap<String, Set<String>>();
+        for (var entry : new TreeMap<>(entries).entrySet()) {
+            var desktopEntry = entry.getValue();
+            if (desktopEntry.getType() != DesktopEntryType.APPLICATION || desktopEntry.isHidden()) {
+                continue;
+            }
+            for (var mimeType : desktopEntry.getMimeType()) {
+                result.computeIfAbsent(normalize(mimeType), k -> new LinkedHashSet<>()).add(entry.getKey());
+            }
+        }
+        return new MimeTypeIndex(copy(result), Map.of());
+    }
+
+    /**
+     * Reads <code>mimeinfo.cache</code> file.
+     *
+     * @param path path to the file
+     * @return index, empty index if file does not exist
+     */
+    public static MimeTypeIndex read(Path path) {
+        try (var in = Files.newInputStream(path)) {
+            return read(in);
+        } catch (NoSuchFileException ex) {
+            return EMPTY;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Reads <code>mimeinfo.cache</code> content from the input stream. Stream is not closed.
+     *
+     * @param inputStream input stream
+     * @return index
+     */
+    public static MimeTypeIndex read(InputStream inputStream) {
+        var result = new HashMap<String, Set<String>>();
+        var reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        try {
+            boolean inGroup = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("[")) {
+                    inGroup = line.equals(MIME_CACHE_GROUP);
+                    continue;
+                }
+                var eq = line.indexOf('=');
+                if (!inGroup || eq <= 0) {
+                    continue;
+                }
+                result.computeIfAbsent(normalize(line.substring(0, eq)), k -> new LinkedHashSet<>())
+                        .addAll(split(line.substring(eq + 1)));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new MimeTypeIndex(copy(result), Map.of());
+    }
+
+    /**
+     * Reads and merges <code>mimeinfo.cache</code> files of the preference-ordered list of desktop entry
+     * directories. Applications from earlier directories come first. Desktop file IDs present in a directory shadow
+     * the same IDs of later directories: associations of shadowed entries are dropped even if the overriding entry
+     * has no MIME types or is hidden and therefore is not listed in the cache. Directories are listed to find
+     * present IDs, desktop entry files are not parsed.
+     *
+     * @param directories desktop entry directories
+     * @return index
+     */
+    public static MimeTypeIndex load(List<Path> directories) {
+        var result = EMPTY;
+        var shadowed = new HashSet<String>();
+        for (var directory : directories) {
+            result = result.merge(read(directory.resolve(MIME_INFO_CACHE)), shadowed);
+            shadowed.addAll(DesktopEntryScanner.getDesktopFileIds(directory));
+        }
+        return result;
+    }
+
+    /**
+     * Reads and merges <code>mimeinfo.cache</code> files of {@link XDGBaseDirectory#getDesktopEntryDirectories()}.
+     *
+     * @return index
+     */
+    public static MimeTypeIndex load() {
+        return load(XDGBaseDirectory.getDesktopEntryDirectories());
+    }
+
+    /**
+     * Reads MIME type aliases in the format of shared-mime-info <code>aliases</code> file: each line contains alias
+     * followed by canonical MIME type separated by space.
+     *
+     * @param path path to the file
+     * @return canonical MIME types by alias, empty map if file does not exist
+     */
+    public static Map<String, String> readAliases(Path path) {
+        try (var lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            var result = new HashMap<String, String>();
+            lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .forEach(line -> {
+                        var parts = line.split("\\s+");
+                        if (parts.length == 2) {
+                            result.putIfAbsent(normalize(parts[0]), normalize(parts[1]));
+                        }
+                    });
+            return Map.copyOf(result);
+        } catch (NoSuchFileException ex) {
+            return Map.of();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Reads MIME type aliases from <code>mime/aliases</code> files of <code>$XDG_DATA_HOME</code> and
+     * <code>$XDG_DATA_DIRS</code>. Definitions from more important directories win.
+     *
+     * @return canonical MIME types by alias
+     */
+    public static Map<String, String> loadAliases() {
+        var result = new HashMap<String, String>();
+        result.putAll(readAliases(XDGBaseDirectory.getDataHome().resolve("mime").resolve("aliases")));
+        for (var dir : XDGBaseDirectory.getDataDirs()) {
+            for (var alias : readAliases(dir.resolve("mime").resolve("aliases")).entrySet()) {
+                result.putIfAbsent(alias.getKey(), alias.getValue());
+            }
+        }
+        return Map.copyOf(result);
+    }
+
+    /**
+     * Returns index with MIME type aliases.
+     *
+     * @param aliases canonical MIME types by alias
+     * @return new index
+     */
+    public MimeTypeIndex withAliases(Map<String, String> aliases) {
+        return new MimeTypeIndex(applications, Map.copyOf(aliases));
+    }
+
+    /**
+     * Returns index containing applications of this index followed by applications of the other index. Other index
+     * is treated as coming from a less important directory: its applications having desktop file IDs present in
+     * this index are dropped.
+     *
+     * @param other other index
+     * @return new index
+     */
+    public MimeTypeIndex merge(MimeTypeIndex other) {
+        var ids = new HashSet<String>();
+        applications.values().forEach(ids::addAll);
+        return merge(other, ids);
+    }
+
+    /**
+     * Returns index containing applications of this index followed by applications of the other index. Applications
+     * of the other index having desktop file IDs from the shadowed set or present in this index are dropped. Use it
+     * to merge indexes of desktop entry directories in the order of preference, passing IDs of all files of more
+     * important directories.
+     *
+     * @param other    other index
+     * @param shadowed desktop file IDs overridden by more important directories
+     * @return new index
+     */
+    public MimeTypeIndex merge(MimeTypeIndex other, Set<String> shadowed) {
+        Objects.requireNonNull(shadowed);
+        if (other.applications.isEmpty() && other.aliases.isEmpty()) {
+            return this;
+        }
+        var ids = new HashSet<>(shadowed);
+        applications.values().forEach(ids::addAll);
+
+        var result = new HashMap<String, Set<String>>();
+        applications.forEach((mimeType, list) -> result.put(mimeType, new LinkedHashSet<>(list)));
+        other.applications.forEach((mimeType, list) -> {
+            for (var id : list) {
+                if (!ids.contains(id)) {
+                    result.computeIfAbsent(mimeType, k -> new LinkedHashSet<>()).add(id);
+                }
+            }
+        });
+        var mergedAliases = new HashMap<>(other.aliases);
+        mergedAliases.putAll(aliases);
+        return new MimeTypeIndex(copy(result), Map.copyOf(mergedAliases));
+    }
+
+    /**
+     * Returns MIME types having at least one application.
+     *
+     * @return MIME types
+     */
+    public Set<String> getMimeTypes() {
+        return applications.keySet();
+    }
+
+    /**
+     * Returns applications registered exactly for the MIME type, without alias or wildcard resolution.
+     *
+     * @param mimeType MIME type
+     * @return ordered list of desktop file IDs
+     */
+    public List<String> getRegisteredApplications(String mimeType) {
+        return applications.getOrDefault(normalize(mimeType), List.of());
+    }
+
+    /**
+     * Returns applications that can open the MIME type. Result contains applications registered for the canonical
+     * MIME type, then for the MIME type itself if it is an alias, then for the wildcard type of the same media type.
+     *
+     * @param mimeType MIME type
+     * @return ordered list of desktop file IDs
+     */
+    public List<String> getApplications(String mimeType) {
+        return Collections.unmodifiableList(new ArrayList<>(resolve(mimeType)));
+    }
+
+    /**
+     * Returns MIME types to look up for the given one in the order of preference: canonical type, the type itself,
+     * wildcard type.
+     *
+     * @param mimeType MIME type
+     * @return MIME types
+     */
+    public List<String> getLookupOrder(String mimeType) {
+        var normalized = normalize(Objects.requireNonNull(mimeType));
+        var canonical = aliases.getOrDefault(normalized, normalized);
+        var result = new LinkedHashSet<String>();
+        result.add(canonical);
+        result.add(normalized);
+        var slash = canonical.indexOf('/');
+        if (slash > 0 && !canonical.endsWith("/" + WILDCARD)) {
+            result.add(canonical.substring(0, slash + 1) + WILDCARD);
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Writes index in <code>mimeinfo.cache</code> format. MIME types are sorted.
+     *
+     * @param outputStream output stream, not closed
+     */
+    public void write(OutputStream outputStream) {
+        try {
+            Writer out = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            out.write(MIME_CACHE_GROUP);
+            out.write('\n');
+            for (var entry : new TreeMap<>(applications).entrySet()) {
+                out.write(entry.getKey());
+                out.write('=');
+                for (var id : entry.getValue()) {
+                    out.write(id);
+                    out.write(';');
+                }
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes index into <code>mimeinfo.cache</code> file. File is replaced atomically, on POSIX file systems it keeps
+     * permissions of the existing file or gets <code>rw-r--r--</code>.
+     *
+     * @param path path to the file
+     */
+    public void write(Path path) {
+        try {
+            var temp = AtomicFiles.createTempFile(path);
+            try {
+                try (var out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    write(out);
+                }
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof MimeTypeIndex that
+                && applications.equals(that.applications)
+                && aliases.equals(that.aliases);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(applications, aliases);
+    }
+
+    private Set<String> resolve(String mimeType) {
+        var result = new LinkedHashSet<String>();
+        for (var type : getLookupOrder(mimeType)) {
+            result.addAll(applications.getOrDefault(type, List.of()));
+        }
+        return result;
+    }
+
+    private static Map<String, List<String>> copy(Map<String, ? extends Collection<String>> map) {
+        var result = new HashMap<String, List<String>>();
+        map.forEach((mimeType, ids) -> {
+            if (!ids.isEmpty()) {
+                result.put(mimeType, List.copyOf(ids));
+            }
+        });
+        return Map.copyOf(result);
+    }
+
+    static List<String> split(String value) {
+        var result = new ArrayList<String>();
+        for (var item : value.split(";")) {
+            var trimmed = item.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+
+    static String normalize(String mimeType) {
+        return mimeType.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+/**
+ * Implements
+ * <a href="https://specifications.freedesktop.org/mime-apps-spec/mime-apps-spec-1.0.1.html">Association between MIME types and applications</a>.
+ */
+package org.panteleyev.freedesktop.mime;
\ No newline at end of file
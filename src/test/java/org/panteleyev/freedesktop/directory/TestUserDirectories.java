@@ -0,0 +1,95 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.directory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestUserDirectories {
+    private static final Path HOME = Path.of("/home/user");
+
+    private static final String USER_DIRS = """
+            # This file is written by xdg-user-dirs-update
+            XDG_DESKTOP_DIR="$HOME/Desktop"
+            XDG_DOWNLOAD_DIR="$HOME/Down\\"loads"
+            XDG_TEMPLATES_DIR="$HOME/"
+            XDG_PUBLICSHARE_DIR="/srv/public"
+            XDG_DOCUMENTS_DIR=$HOME/Documents
+            XDG_MUSIC_DIR="relative/Music"
+            XDG_UNKNOWN_DIR="$HOME/Unknown"
+              XDG_PICTURES_DIR = "$HOME/Pictures/../Photos"
+            """;
+
+    @TempDir
+    private Path root;
+
+    @Test
+    public void testParse() throws Exception {
+        var file = root.resolve(UserDirectories.USER_DIRS_FILE);
+        Files.writeString(file, USER_DIRS);
+
+        var directories = new UserDirectories(file, HOME);
+
+        assertEquals(Map.of(
+                UserDirectory.DESKTOP, Path.of("/home/user/Desktop"),
+                UserDirectory.DOWNLOAD, Path.of("/home/user/Down\"loads"),
+                UserDirectory.PUBLICSHARE, Path.of("/srv/public"),
+                UserDirectory.PICTURES, Path.of("/home/user/Photos")
+        ), directories.getAll());
+        assertEquals(Optional.of(Path.of("/home/user/Desktop")), directories.get(UserDirectory.DESKTOP));
+        assertTrue(directories.get(UserDirectory.VIDEOS).isEmpty());
+    }
+
+    @Test
+    public void testReparse() throws Exception {
+        var file = root.resolve(UserDirectories.USER_DIRS_FILE);
+        var directories = new UserDirectories(file, HOME);
+        assertTrue(directories.getAll().isEmpty());
+
+        Files.writeString(file, "XDG_DESKTOP_DIR=\"$HOME/Desktop\"\n");
+        var modified = FileTime.from(Instant.parse("2024-01-01T00:00:00Z"));
+        Files.setLastModifiedTime(file, modified);
+
+        var first = directories.getAll();
+        assertEquals(Map.of(UserDirectory.DESKTOP, Path.of("/home/user/Desktop")), first);
+        assertSame(first, directories.getAll());
+
+        // Same size and time, file is not parsed again
+        Files.writeString(file, "XDG_DESKTOP_DIR=\"$HOME/Dsktop2\"\n");
+        Files.setLastModifiedTime(file, modified);
+        assertSame(first, directories.getAll());
+
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2024-01-02T00:00:00Z")));
+        assertEquals(Map.of(UserDirectory.DESKTOP, Path.of("/home/user/Dsktop2")), directories.getAll());
+
+        Files.delete(file);
+        assertTrue(directories.getAll().isEmpty());
+    }
+
+    @Test
+    public void testCurrentEnvironment() throws Exception {
+        var original = XdgEnvironment.current();
+        try {
+            XdgEnvironment.setCurrent(XdgEnvironment.of(Map.of("XDG_CONFIG_HOME", root.toString()), HOME));
+            Files.writeString(root.resolve(UserDirectories.USER_DIRS_FILE), "XDG_MUSIC_DIR=\"$HOME/Music\"\n");
+
+            assertEquals(Optional.of(Path.of("/home/user/Music")),
+                    XDGBaseDirectory.getUserDirectory(UserDirectory.MUSIC));
+        } finally {
+            XdgEnvironment.setCurrent(original);
+        }
+    }
+}
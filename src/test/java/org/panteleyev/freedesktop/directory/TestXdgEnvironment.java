@@ -0,0 +1,90 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.directory;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestXdgEnvironment {
+    private static final Path HOME = Path.of("/home/user");
+
+    @Test
+    public void testDefaults() {
+        var environment = XdgEnvironment.of(Map.of(), HOME);
+
+        assertEquals(Path.of("/home/user/.local/share"), environment.getDataHome());
+        assertEquals(Path.of("/home/user/.config"), environment.getConfigHome());
+        assertEquals(Path.of("/home/user/.local/state"), environment.getStateHome());
+        assertEquals(Path.of("/home/user/.cache"), environment.getCacheHome());
+        assertTrue(environment.getRuntimeDir().isEmpty());
+        assertEquals(List.of(Path.of("/usr/local/share"), Path.of("/usr/share")), environment.getDataDirs());
+        assertEquals(List.of(Path.of("/etc/xdg")), environment.getConfigDirs());
+        assertEquals(List.of(
+                Path.of("/home/user/.local/share/applications"),
+                Path.of("/usr/local/share/applications"),
+                Path.of("/usr/share/applications")
+        ), environment.getDesktopEntryDirectories());
+        assertEquals(List.of(), environment.getCurrentDesktops());
+        assertEquals("", environment.getMenuPrefix());
+    }
+
+    @Test
+    public void testVariables() {
+        var environment = XdgEnvironment.of(Map.of(
+                "XDG_DATA_HOME", "/data",
+                "XDG_CONFIG_HOME", "relative/config",
+                "XDG_CACHE_HOME", "",
+                "XDG_RUNTIME_DIR", "/run/user/1000",
+                "XDG_DATA_DIRS", "/opt/share/:relative::/usr/share:/opt/share:/usr/share/",
+                "XDG_CONFIG_DIRS", "relative:other",
+                "XDG_CURRENT_DESKTOP", "GNOME: ubuntu :GNOME",
+                "XDG_MENU_PREFIX", "gnome-"
+        ), HOME);
+
+        assertEquals(Path.of("/data"), environment.getDataHome());
+        // Relative and empty values are ignored
+        assertEquals(Path.of("/home/user/.config"), environment.getConfigHome());
+        assertEquals(Path.of("/home/user/.cache"), environment.getCacheHome());
+        assertEquals(Optional.of(Path.of("/run/user/1000")), environment.getRuntimeDir());
+        // Order is preserved, duplicates and relative paths are removed
+        assertEquals(List.of(Path.of("/opt/share"), Path.of("/usr/share")), environment.getDataDirs());
+        assertEquals(List.of(Path.of("/etc/xdg")), environment.getConfigDirs());
+        assertEquals(List.of(
+                Path.of("/data/desktop-directories"),
+                Path.of("/opt/share/desktop-directories"),
+                Path.of("/usr/share/desktop-directories")
+        ), environment.getDesktopDirectoryDirectories());
+        assertEquals(List.of("GNOME", "ubuntu"), environment.getCurrentDesktops());
+        assertEquals("gnome-", environment.getMenuPrefix());
+    }
+
+    @Test
+    public void testCurrent() {
+        var original = XdgEnvironment.current();
+        try {
+            var environment = XdgEnvironment.of(Map.of("XDG_DATA_DIRS", "/b:/a:/b"), HOME);
+            XdgEnvironment.setCurrent(environment);
+
+            assertSame(environment, XdgEnvironment.current());
+            assertEquals(List.of(Path.of("/b"), Path.of("/a")), List.copyOf(XDGBaseDirectory.getDataDirs()));
+            assertEquals(Path.of("/home/user/.local/share"), XDGBaseDirectory.getDataHome());
+            assertEquals(List.of(
+                    Path.of("/home/user/.local/share/applications"),
+                    Path.of("/b/applications"),
+                    Path.of("/a/applications")
+            ), XDGBaseDirectory.getDesktopEntryDirectories());
+        } finally {
+            XdgEnvironment.setCurrent(original);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.directory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestXdgFileLocator {
+    @TempDir
+    private Path root;
+
+    private XdgEnvironment environment() {
+        return XdgEnvironment.of(Map.of(
+                "XDG_CONFIG_HOME", root.resolve("config").toString(),
+                "XDG_CONFIG_DIRS", root.resolve("etc") + ":" + root.resolve("etc2"),
+                "XDG_DATA_HOME", root.resolve("data").toString(),
+                "XDG_DATA_DIRS", root.resolve("local") + ":" + root.resolve("share")
+        ), root);
+    }
+
+    private Path write(String path) throws Exception {
+        var file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, path);
+        return file;
+    }
+
+    @Test
+    public void testFindConfigFile() throws Exception {
+        var system = write("etc2/app/settings.conf");
+        var locator = new XdgFileLocator(environment(), Duration.ZERO);
+
+        assertEquals(Optional.of(system), locator.findConfigFile("app/settings.conf"));
+
+        var user = write("config/app/settings.conf");
+        assertEquals(Optional.of(user), locator.findConfigFile("app/settings.conf"));
+        assertEquals(List.of(user, system), locator.findAllConfigFiles("app/settings.conf"));
+        assertTrue(locator.findConfigFile("app/missing.conf").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> locator.findConfigFile(root.toString()));
+    }
+
+    @Test
+    public void testFindAllDataFiles() throws Exception {
+        var userEditor = write("data/applications/editor.desktop");
+        write("share/applications/editor.desktop");
+        var browser = write("share/applications/browser.desktop");
+        var calc = write("local/applications/calc.desktop");
+        write("share/applications/readme.txt");
+        write("share/applications/sub/nested.desktop");
+
+        var locator = new XdgFileLocator(environment(), Duration.ZERO);
+
+        assertEquals(List.of(userEditor, calc, browser), locator.findAllDataFiles("applications", "*.desktop"));
+        assertEquals(List.of(), locator.findAllDataFiles("missing", "*"));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        var time = new AtomicLong();
+        var current = new AtomicReference<>(environment());
+        var locator = new XdgFileLocator(current::get, Duration.ofSeconds(1), time::get);
+
+        // Negative result is cached
+        assertTrue(locator.findConfigFile("app/settings.conf").isEmpty());
+        var file = write("etc/app/settings.conf");
+        assertTrue(locator.findConfigFile("app/settings.conf").isEmpty());
+
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(Optional.of(file), locator.findConfigFile("app/settings.conf"));
+
+        // Positive result is cached
+        Files.delete(file);
+        assertEquals(Optional.of(file), locator.findConfigFile("app/settings.conf"));
+
+        locator.invalidate();
+        assertTrue(locator.findConfigFile("app/settings.conf").isEmpty());
+
+        // Environment change clears cache
+        var other = write("other/app/settings.conf");
+        assertTrue(locator.findConfigFile("app/settings.conf").isEmpty());
+        current.set(XdgEnvironment.of(Map.of("XDG_CONFIG_HOME", root.resolve("other").toString()), root));
+        assertEquals(Optional.of(other), locator.findConfigFile("app/settings.conf"));
+    }
+
+    @Test
+    public void testExpiredResultsRemoved() {
+        var time = new AtomicLong();
+        var environment = environment();
+        var locator = new XdgFileLocator(() -> environment, Duration.ofSeconds(1), time::get);
+
+        for (int i = 0; i < 10; i++) {
+            locator.findDataFile("missing-" + i);
+        }
+        assertEquals(10, locator.size());
+
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        locator.findDataFile("other");
+        assertEquals(1, locator.size());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Compares latency and allocation of {@link DesktopEntryLoader} against reading every file through an input stream.
+ * Not a unit test, run manually with the test classpath.
+ * <p>
+ * Without arguments or with the number of files, measures repeated loading with a warm page cache. Cold scan is
+ * measured by a fresh JVM per run after dropping the page cache:
+ * <pre>
+ * java ... DesktopEntryLoaderBenchmark generate /tmp/apps 3000
+ * sync; echo 3 &gt; /proc/sys/vm/drop_caches
+ * java ... DesktopEntryLoaderBenchmark cold /tmp/apps loader
+ * sync; echo 3 &gt; /proc/sys/vm/drop_caches
+ * java ... DesktopEntryLoaderBenchmark cold /tmp/apps stream
+ * </pre>
+ * Cold methods are <code>loader</code> for {@link DesktopEntryLoader#loadDirectory(Path)}, <code>files</code> for
+ * {@link DesktopEntryLoader#load(Path)} of every listed file and <code>stream</code> for an input stream per file.
+ */
+public class DesktopEntryLoaderBenchmark {
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    /**
+     * Generates desktop entry file similar to distribution application entries.
+     *
+     * @param index file index
+     * @return desktop entry file content
+     */
+    static String generate(int index) {
+        var builder = new StringBuilder("""
+                [Desktop Entry]
+                Type=Application
+                Version=1.5
+                Name=Application %1$d
+                GenericName=Generic application %1$d
+                Comment=Does something useful number %1$d
+                Icon=application-%1$d
+                Exec=application-%1$d %%F
+                TryExec=application-%1$d
+                Terminal=false
+                Categories=Utility;Development;
+                MimeType=text/plain;text/x-source-%1$d;
+                Keywords=first;second;third;
+                StartupNotify=true
+                X-Vendor-Key=%1$d
+                """.formatted(index));
+        for (var locale : List.of("de", "fr", "ru", "ja", "pt_BR", "sr@latin")) {
+            builder.append("Name[%s]=Application %d %s%n".formatted(locale, index, locale));
+            builder.append("Comment[%s]=Localized comment %d %s%n".formatted(locale, index, locale));
+        }
+        builder.append("""
+
+                [Desktop Action New]
+                Name=New Window
+                Exec=application-%1$d --new-window
+                """.formatted(index));
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("generate")) {
+            var directory = Files.createDirectories(Path.of(args[1]));
+            int count = args.length > 2 ? Integer.parseInt(args[2]) : 3000;
+            for (int i = 0; i < count; i++) {
+                Files.writeString(directory.resolve("application-" + i + ".desktop"), generate(i));
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("cold")) {
+            cold(Path.of(args[1]), args[2]);
+            return;
+        }
+
+        var directory = Files.createTempDirectory("benchmark");
+        try {
+            int count = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+            var files = new Path[count];
+            long size = 0;
+            for (int i = 0; i < count; i++) {
+                files[i] = Files.writeString(directory.resolve("application-" + i + ".desktop"), generate(i));
+                size += Files.size(files[i]);
+            }
+            System.out.printf("Files: %d, total size: %d bytes%n", count, size);
+
+            var loader = new DesktopEntryLoader();
+            var reader = new DesktopEntryReader();
+            Function<Path, DesktopEntry> stream = file -> {
+                try (var in = Files.newInputStream(file)) {
+                    return reader.read(in);
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            };
+            run("Stream", files, stream);
+            run("Loader", files, loader::load);
+            run("Stream", files, stream);
+            run("Loader", files, loader::load);
+        } finally {
+            try (var paths = Files.list(directory)) {
+                for (var path : paths.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Loads every file of the directory once, including directory listing, as a launcher does on startup.
+     */
+    private static void cold(Path directory, String method) throws Exception {
+        var start = System.nanoTime();
+        int count = 0;
+        if (method.equals("loader")) {
+            count = new DesktopEntryLoader().loadDirectory(directory).size();
+        } else if (method.equals("files")) {
+            var loader = new DesktopEntryLoader();
+            try (var paths = Files.list(directory)) {
+                for (var file : paths.toList()) {
+                    loader.load(file);
+                    count++;
+                }
+            }
+        } else {
+            var reader = new DesktopEntryReader();
+            try (var paths = Files.list(directory)) {
+                for (var file : paths.toList()) {
+                    try (var in = Files.newInputStream(file)) {
+                        reader.read(in);
+                        count++;
+                    }
+                }
+            }
+        }
+        var elapsed = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "%-6s %d files %8.2f ms%n", method, count, elapsed / 1_000_000.0);
+    }
+
+    private static void run(String name, Path[] files, Function<Path, DesktopEntry> load) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            loadAll(files, load);
+        }
+        var allocatedBefore = allocatedBytes();
+        var start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            loadAll(files, load);
+        }
+        var elapsed = System.nanoTime() - start;
+        var allocated = allocatedBytes() - allocatedBefore;
+        System.out.printf(Locale.ROOT, "%-6s %8.2f ms/op %12d bytes/op%n", name,
+                elapsed / 1_000_000.0 / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    private static void loadAll(Path[] files, Function<Path, DesktopEntry> load) {
+        for (var file : files) {
+            load.apply(file);
+        }
+    }
+
+    /**
+     * Returns number of bytes allocated by the current thread. Management API is accessed reflectively as the
+     * library module does not read it.
+     */
+    private static long allocatedBytes() throws Exception {
+        var bean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean")
+                .invoke(null);
+        var method = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+        return (long) method.invoke(bean, Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.panteleyev.freedesktop.menu.Category;
+import org.panteleyev.freedesktop.menu.OnlyShowInEnvironment;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDesktopEntryAccessors {
+    private static DesktopEntry read(String content) {
+        return new DesktopEntryReader().read(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testAccessors() {
+        var content = """
+                [Desktop Entry]
+                Type=Application
+                Version=1.5
+                Name=Viewer
+                Name[de]=Betrachter
+                GenericName=Image Viewer
+                Comment=Views images
+                Icon=viewer
+                NoDisplay=true
+                Hidden=false
+                OnlyShowIn=GNOME;KDE;Unknown;
+                DBusActivatable=true
+                TryExec=viewer
+                Exec=viewer %F
+                Path=/opt/viewer
+                Terminal=false
+                Actions=New;Open;
+                MimeType=image/png;image/jpeg;
+                Categories=Graphics;Viewer;X-Unknown;
+                Implements=org.example.Viewer;
+                Keywords=picture;photo\\;image;
+                Keywords[de]=Bild;Foto;
+                StartupNotify=true
+                StartupWMClass=viewer-main
+                PrefersNonDefaultGPU=true
+                SingleMainWindow=true
+
+                [Desktop Action New]
+                Name=New Window
+                Name[de]=Neues Fenster
+                Exec=viewer --new
+
+                [Desktop Action Open]
+                Name=Open
+                Icon=open
+                """;
+        var entry = read(content);
+
+        assertEquals(Optional.of("1.5"), entry.getVersion());
+        assertEquals(Optional.of("Viewer"), entry.getName());
+        assertEquals(Optional.of("Betrachter"), entry.getName(Locale.GERMANY));
+        assertEquals(Optional.of("Image Viewer"), entry.getGenericName());
+        assertEquals(Optional.of("Views images"), entry.getComment());
+        assertEquals(Optional.of("viewer"), entry.getIcon());
+        assertTrue(entry.isNoDisplay());
+        assertFalse(entry.isHidden());
+        assertEquals(Set.of(OnlyShowInEnvironment.GNOME, OnlyShowInEnvironment.KDE), entry.getOnlyShowIn());
+        assertTrue(entry.getNotShowIn().isEmpty());
+        assertTrue(entry.isDBusActivatable());
+        assertEquals(Optional.of("viewer"), entry.getTryExec());
+        assertEquals(Optional.of("viewer %F"), entry.getExec());
+        assertEquals(Optional.of("/opt/viewer"), entry.getPath());
+        assertFalse(entry.isTerminal());
+        assertEquals(List.of("New", "Open"), entry.getActions());
+        assertEquals(List.of("image/png", "image/jpeg"), entry.getMimeType());
+        assertEquals(List.of(Category.GRAPHICS, Category.VIEWER), entry.getCategories());
+        assertEquals(List.of("org.example.Viewer"), entry.getImplements());
+        assertEquals(List.of("picture", "photo;image"), entry.getKeywords());
+        assertEquals(List.of("Bild", "Foto"), entry.getKeywords(Locale.GERMANY));
+        assertEquals(List.of("picture", "photo;image"), entry.getKeywords(Locale.FRANCE));
+        assertTrue(entry.isStartupNotify());
+        assertEquals(Optional.of("viewer-main"), entry.getStartupWmClass());
+        assertEquals(Optional.empty(), entry.getUrl());
+        assertTrue(entry.isPrefersNonDefaultGpu());
+        assertTrue(entry.isSingleMainWindow());
+
+        var actions = List.copyOf(entry.actions());
+        assertEquals("New", actions.get(0).getId());
+        assertEquals(Optional.of("Neues Fenster"), actions.get(0).getName(Locale.GERMANY));
+        assertEquals(Optional.of("viewer --new"), actions.get(0).getExec());
+        assertEquals(Optional.of("open"), actions.get(1).getIcon());
+        assertEquals(Optional.empty(), actions.get(1).getExec());
+    }
+
+    @Test
+    public void testEscapes() {
+        var entry = read("""
+                [Desktop Entry]
+                Type=Application
+                Name=Foo\\sBar
+                Name[de]=Foo\\tBar
+                Comment=line1\\nline2\\rline3
+                Exec=foo --dir C:\\\\Temp --unknown \\x
+                Keywords=a\\\\;b;c\\;d;\\sspace;
+                MimeType= image/png ;;text/plain;
+                X-Raw=Foo\\sBar
+
+                [Desktop Action New]
+                Name=New\\sWindow
+                """);
+
+        assertEquals(Optional.of("Foo Bar"), entry.getName());
+        assertEquals(Optional.of("Foo\tBar"), entry.getName(Locale.GERMANY));
+        assertEquals(Optional.of("line1\nline2\rline3"), entry.getComment());
+        assertEquals(Optional.of("foo --dir C:\\Temp --unknown \\x"), entry.getExec());
+        // Escaped backslash is not an escaped separator
+        assertEquals(List.of("a\\", "b", "c;d", " space"), entry.getKeywords());
+        assertEquals(List.of("image/png", "text/plain"), entry.getMimeType());
+        // Raw values are not decoded
+        assertEquals(Optional.of("Foo\\sBar"), entry.getValue("X-Raw"));
+        assertEquals(Optional.of("Foo\\sBar"), entry.getValue("Name"));
+        assertEquals(Optional.of("New Window"), List.copyOf(entry.actions()).get(0).getName());
+    }
+
+    @Test
+    public void testEdgeCases() {
+        var entry = read("""
+                [Desktop Entry]
+                Type=Application
+                Name=Minimal
+                NoDisplay=True
+                Terminal=1
+                Hidden=
+                Categories=
+                Keywords=;;
+                MimeType=image/png
+                """);
+
+        // Only lower case true is a true value
+        assertFalse(entry.isNoDisplay());
+        assertFalse(entry.isTerminal());
+        assertFalse(entry.isHidden());
+        assertFalse(entry.isStartupNotify());
+        assertTrue(entry.getCategories().isEmpty());
+        assertTrue(entry.getKeywords().isEmpty());
+        assertTrue(entry.getActions().isEmpty());
+        // Trailing semicolon is optional
+        assertEquals(List.of("image/png"), entry.getMimeType());
+        assertEquals(Optional.empty(), entry.getGenericName());
+        assertEquals(Optional.empty(), entry.getGenericName(Locale.GERMANY));
+        assertTrue(entry.getOnlyShowIn().isEmpty());
+    }
+}
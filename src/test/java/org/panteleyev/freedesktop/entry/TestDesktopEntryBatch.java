@@ -0,0 +1,145 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.panteleyev.freedesktop.mime.MimeTypeIndex;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestDesktopEntryBatch {
+    @TempDir
+    private Path root;
+
+    private static DesktopEntry application(String name, List<String> mimeTypes) {
+        return new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                .name(name)
+                .exec(name.toLowerCase())
+                .mimeType(mimeTypes)
+                .build();
+    }
+
+    @Test
+    public void testInstall() throws Exception {
+        var directory = root.resolve("applications");
+        var batch = new DesktopEntryBatch(directory).sync(DesktopEntryWriter.Sync.FILE_AND_DIRECTORY);
+        var expected = new ArrayList<Path>();
+        for (int i = 0; i < 20; i++) {
+            batch.add("app" + i, application("App" + i, List.of("text/x-app" + i)));
+            expected.add(directory.resolve("app" + i + ".desktop"));
+        }
+        batch.add("site", new DesktopEntryBuilder(DesktopEntryType.LINK).name("Site").url("https://example.com")
+                .build());
+        expected.add(directory.resolve("site.desktop"));
+
+        assertEquals(expected, batch.install());
+        for (var file : expected) {
+            assertTrue(Files.exists(file));
+        }
+
+        var cacheFile = directory.resolve(MimeTypeIndex.MIME_INFO_CACHE);
+        var index = MimeTypeIndex.read(cacheFile);
+        assertEquals(20, index.getMimeTypes().size());
+        assertEquals(List.of("app7.desktop"), index.getApplications("text/x-app7"));
+
+        // Nothing changed, nothing is written
+        var modified = FileTime.from(Instant.parse("2024-01-01T00:00:00Z"));
+        Files.setLastModifiedTime(cacheFile, modified);
+        Files.setLastModifiedTime(expected.get(0), modified);
+        assertTrue(batch.install().isEmpty());
+        assertEquals(modified, Files.getLastModifiedTime(cacheFile));
+        assertEquals(modified, Files.getLastModifiedTime(expected.get(0)));
+
+        // One changed entry, cache is updated
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var changed = new DesktopEntryBatch(directory)
+                    .add("app0", application("App0", List.of("text/x-new")))
+                    .add("app1", application("App1", List.of("text/x-app1")));
+            assertEquals(List.of(directory.resolve("app0.desktop")), changed.install(executor));
+        } finally {
+            executor.shutdown();
+        }
+        index = MimeTypeIndex.read(cacheFile);
+        assertEquals(List.of("app0.desktop"), index.getApplications("text/x-new"));
+        assertTrue(index.getApplications("text/x-app0").isEmpty());
+
+        // No temporary files are left
+        try (var files = Files.list(directory)) {
+            assertFalse(files.anyMatch(f -> f.getFileName().toString().startsWith(".")));
+        }
+    }
+
+    @Test
+    public void testPartialFailure() throws Exception {
+        // Target of one entry is a directory, so it cannot be replaced
+        Files.createDirectories(root.resolve("bad.desktop").resolve("child"));
+
+        var batch = new DesktopEntryBatch(root);
+        for (int i = 0; i < 20; i++) {
+            batch.add("app" + i, application("App" + i, List.of("text/x-app" + i)));
+        }
+        batch.add("bad", application("Bad", List.of("text/x-bad")));
+
+        assertThrows(UncheckedIOException.class, batch::install);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(Files.exists(root.resolve("app" + i + ".desktop")));
+        }
+        // Cache is updated for files that were written
+        var index = MimeTypeIndex.read(root.resolve(MimeTypeIndex.MIME_INFO_CACHE));
+        assertEquals(20, index.getMimeTypes().size());
+    }
+
+    @Test
+    public void testPermissions() throws Exception {
+        assumeTrue(Files.getFileStore(root).supportsFileAttributeView("posix"));
+
+        new DesktopEntryBatch(root).add("viewer", application("Viewer", List.of("image/png"))).install();
+        assertEquals("rw-r--r--", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(root.resolve(MimeTypeIndex.MIME_INFO_CACHE))));
+        assertEquals("rw-r--r--", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(root.resolve("viewer.desktop"))));
+
+        // Permissions of existing cache are kept
+        Files.setPosixFilePermissions(root.resolve(MimeTypeIndex.MIME_INFO_CACHE),
+                PosixFilePermissions.fromString("rw-rw-r--"));
+        new DesktopEntryBatch(root).add("editor", application("Editor", List.of("text/plain"))).install();
+        assertEquals("rw-rw-r--", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(root.resolve(MimeTypeIndex.MIME_INFO_CACHE))));
+    }
+
+    @Test
+    public void testNoMimeInfoCache() {
+        var batch = new DesktopEntryBatch(root)
+                .updateMimeInfoCache(false)
+                .add("viewer", application("Viewer", List.of("image/png")));
+        assertEquals(List.of(root.resolve("viewer.desktop")), batch.install());
+        assertFalse(Files.exists(root.resolve(MimeTypeIndex.MIME_INFO_CACHE)));
+    }
+
+    @Test
+    public void testInvalidNames() {
+        var batch = new DesktopEntryBatch(root).add("viewer", application("Viewer", List.of()));
+        var entry = application("Other", List.of());
+        assertThrows(IllegalArgumentException.class, () -> batch.add("viewer", entry));
+        assertThrows(IllegalArgumentException.class, () -> batch.add("dir/viewer", entry));
+        assertThrows(IllegalArgumentException.class, () -> batch.add("", entry));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.panteleyev.freedesktop.directory.XdgEnvironment;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.panteleyev.freedesktop.entry.TestDesktopEntryLoader.writeEntry;
+
+public class TestDesktopEntryCache {
+    @TempDir
+    private Path root;
+
+    @Test
+    public void testCache() throws Exception {
+        var user = root.resolve("user");
+        var system = root.resolve("system");
+        writeEntry(user.resolve("editor.desktop"), "User Editor");
+        writeEntry(system.resolve("editor.desktop"), "System Editor");
+        writeEntry(system.resolve("vendor/viewer.desktop"), "Viewer");
+        Files.writeString(system.resolve("localized.desktop"), """
+                [Desktop Entry]
+                Type=Application
+                Name=Localized
+                Name[de]=Lokalisiert
+                X-Custom[de]=Wert
+                Actions=New;
+
+                [Desktop Action New]
+                Name=New
+                Exec=new
+                """);
+
+        var directories = List.of(user, root.resolve("missing"), system);
+        var cacheFile = root.resolve("cache").resolve("entries.cache");
+        var cache = new DesktopEntryCache(cacheFile, directories);
+
+        var scanned = new DesktopEntryScanner(directories).scan();
+        assertEquals(scanned, cache.load());
+        assertTrue(Files.exists(cacheFile));
+
+        // Modify file in place keeping directory time: cached value must be returned
+        var systemTime = Files.getLastModifiedTime(system);
+        writeEntry(system.resolve("localized.desktop"), "Changed");
+        Files.setLastModifiedTime(system, systemTime);
+        assertEquals(scanned, cache.load());
+
+        // Add file: system directory must be rescanned
+        writeEntry(system.resolve("new.desktop"), "New");
+        var updated = cache.load();
+        assertEquals(Optional.of("New"), updated.get("new.desktop").getValue("Name"));
+        assertEquals(Optional.of("Changed"), updated.get("localized.desktop").getValue("Name"));
+        assertEquals(Optional.of("User Editor"), updated.get("editor.desktop").getValue("Name"));
+        assertEquals(new DesktopEntryScanner(directories).scan(), updated);
+    }
+
+    @Test
+    public void testLayoutMismatch() throws Exception {
+        var directory = root.resolve("apps");
+        writeEntry(directory.resolve("editor.desktop"), "Editor");
+        var cacheFile = root.resolve("entries.cache");
+        var cache = new DesktopEntryCache(cacheFile, List.of(directory));
+        var expected = cache.load();
+        assertEquals(1, DesktopEntryCache.read(cacheFile).size());
+
+        // Cache written with different Key constants must be rejected and rebuilt
+        try (var channel = FileChannel.open(cacheFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, DesktopEntryCodec.LAYOUT + 1), 8);
+        }
+        assertEquals(Map.of(), DesktopEntryCache.read(cacheFile));
+        assertEquals(expected, cache.load());
+        assertEquals(1, DesktopEntryCache.read(cacheFile).size());
+    }
+
+    @Test
+    public void testSharedCache() throws Exception {
+        var directory = root.resolve("apps");
+        for (int i = 0; i < 20; i++) {
+            writeEntry(directory.resolve("app" + i + ".desktop"), "App " + i);
+        }
+        var cacheFile = root.resolve("runtime").resolve("entries.cache");
+        var expected = new DesktopEntryScanner(List.of(directory)).scan();
+
+        // Concurrent loaders wait for the first one to publish the cache
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<Map<String, DesktopEntry>>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> new DesktopEntryCache(cacheFile, List.of(directory)).load()));
+            }
+            for (var future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Up to date cache is not written again
+        var written = Files.getLastModifiedTime(cacheFile);
+        Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(written.toMillis() - 10_000));
+        var time = Files.getLastModifiedTime(cacheFile);
+        assertEquals(expected, new DesktopEntryCache(cacheFile, List.of(directory)).load());
+        assertEquals(time, Files.getLastModifiedTime(cacheFile));
+    }
+
+    @Test
+    public void testInRuntimeDir() {
+        var original = XdgEnvironment.current();
+        try {
+            XdgEnvironment.setCurrent(XdgEnvironment.of(Map.of(), root));
+            assertTrue(DesktopEntryCache.inRuntimeDir().isEmpty());
+
+            XdgEnvironment.setCurrent(XdgEnvironment.of(Map.of("XDG_RUNTIME_DIR", root.toString()), root));
+            var cache = DesktopEntryCache.inRuntimeDir().orElseThrow();
+            assertTrue(cache.getCacheFile().startsWith(root));
+        } finally {
+            XdgEnvironment.setCurrent(original);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.panteleyev.freedesktop.entry.TestDesktopEntryLoader.writeEntry;
+
+public class TestDesktopEntryCatalog {
+    @TempDir
+    private Path root;
+
+    @Test
+    public void testIncrementalUpdates() throws Exception {
+        var user = root.resolve("user");
+        var system = root.resolve("system");
+        writeEntry(system.resolve("editor.desktop"), "System Editor");
+
+        var snapshots = new LinkedBlockingQueue<DesktopEntrySnapshot>();
+        try (var catalog = new DesktopEntryCatalog(List.of(user, system), Duration.ofMillis(50))) {
+            catalog.addListener(snapshots::add);
+            catalog.start();
+            assertEquals(Optional.of("System Editor"), name(catalog.getSnapshot(), "editor.desktop"));
+
+            // User directory does not exist yet
+            writeEntry(user.resolve("editor.desktop"), "User Editor");
+            await(snapshots, s -> name(s, "editor.desktop").equals(Optional.of("User Editor")));
+
+            for (int i = 0; i < 50; i++) {
+                writeEntry(system.resolve("vendor/app" + i + ".desktop"), "Application " + i);
+            }
+            await(snapshots, s -> s.size() == 51);
+
+            Files.delete(user.resolve("editor.desktop"));
+            await(snapshots, s -> name(s, "editor.desktop").equals(Optional.of("System Editor")));
+
+            assertEquals(new DesktopEntryScanner(List.of(user, system)).scan(), catalog.getSnapshot());
+        }
+    }
+
+    @Test
+    public void testDeleteSubdirectory() throws Exception {
+        var user = root.resolve("user");
+        writeEntry(user.resolve("kde/viewer.desktop"), "KDE Viewer");
+        writeEntry(user.resolve("kde-foo.desktop"), "Foo");
+
+        var snapshots = new LinkedBlockingQueue<DesktopEntrySnapshot>();
+        try (var catalog = new DesktopEntryCatalog(List.of(user), Duration.ofMillis(50))) {
+            catalog.addListener(snapshots::add);
+            catalog.start();
+            assertEquals(2, catalog.getSnapshot().size());
+
+            // Top-level file with the same desktop file ID prefix is not affected
+            Files.delete(user.resolve("kde/viewer.desktop"));
+            Files.delete(user.resolve("kde"));
+            await(snapshots, s -> s.size() == 1);
+            assertEquals(Optional.of("Foo"), name(catalog.getSnapshot(), "kde-foo.desktop"));
+        }
+    }
+
+    @Test
+    public void testFailingListener() throws Exception {
+        var user = root.resolve("user");
+        writeEntry(user.resolve("editor.desktop"), "Editor");
+
+        var calls = new AtomicInteger();
+        var failures = new LinkedBlockingQueue<Throwable>();
+        var snapshots = new LinkedBlockingQueue<DesktopEntrySnapshot>();
+        try (var catalog = new DesktopEntryCatalog(List.of(user), Duration.ofMillis(50))) {
+            catalog.setExceptionHandler((thread, ex) -> failures.add(ex));
+            catalog.addListener(s -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("Listener failure");
+            });
+            catalog.addListener(snapshots::add);
+            catalog.start();
+            await(snapshots, s -> s.size() == 1);
+
+            // Watcher thread survives listener failures
+            writeEntry(user.resolve("viewer.desktop"), "Viewer");
+            await(snapshots, s -> s.size() == 2);
+            writeEntry(user.resolve("player.desktop"), "Player");
+            await(snapshots, s -> s.size() == 3);
+            // Every failure reaches the handler
+            assertTrue(calls.get() >= 3);
+            assertEquals(calls.get(), failures.size());
+            for (var failure : failures) {
+                assertEquals(IllegalStateException.class, failure.getClass());
+                assertEquals("Listener failure", failure.getMessage());
+            }
+        }
+    }
+
+    private static Optional<String> name(Map<String, DesktopEntry> snapshot, String id) {
+        var entry = snapshot.get(id);
+        return entry == null ? Optional.empty() : entry.getValue("Name");
+    }
+
+    private static void await(LinkedBlockingQueue<DesktopEntrySnapshot> snapshots,
+            Predicate<DesktopEntrySnapshot> condition) throws InterruptedException
+    {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            var snapshot = snapshots.poll(100, TimeUnit.MILLISECONDS);
+            if (snapshot != null && condition.test(snapshot)) {
+                return;
+            }
+        }
+        fail("Snapshot was not published");
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestDesktopEntryLoader {
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testLoadDirectory() throws Exception {
+        writeEntry(directory.resolve("app.desktop"), "App");
+        writeEntry(directory.resolve("kde/konsole.desktop"), "Konsole");
+        Files.writeString(directory.resolve("broken.desktop"), "Name=Broken\n");
+        Files.writeString(directory.resolve("readme.txt"), "Not an entry\n");
+
+        var entries = new DesktopEntryLoader().loadDirectory(directory);
+        assertEquals(List.of("app.desktop", "kde-konsole.desktop"), List.copyOf(entries.keySet()));
+        assertEquals(Optional.of("Konsole"), entries.get("kde-konsole.desktop").getValue("Name"));
+    }
+
+    @Test
+    public void testMappedFile() throws Exception {
+        var file = directory.resolve("large.desktop");
+        writeEntry(file, "Large application " + "x".repeat(1024));
+
+        var entry = new DesktopEntryLoader(16).load(file);
+        assertEquals(Optional.of("Large application " + "x".repeat(1024)), entry.getValue("Name"));
+    }
+
+    @Test
+    public void testMissingDirectory() {
+        assertEquals(0, new DesktopEntryLoader().loadDirectory(directory.resolve("missing")).size());
+    }
+
+    static void writeEntry(Path path, String name) throws Exception {
+        Files.createDirectories(path.getParent());
+        new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                .name(name)
+                .exec(name.toLowerCase())
+                .build()
+                .write(path);
+    }
+}
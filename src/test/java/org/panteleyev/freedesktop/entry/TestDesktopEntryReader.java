@@ -0,0 +1,156 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestDesktopEntryReader {
+    private static final String SPEC_EXAMPLE = """
+            [Desktop Entry]
+            Type=Application
+            Version=1.5
+            Name=Foo Viewer
+            Name[ru_RU]=Просмотр Foo
+            Comment=The best viewer for Foo objects available!
+            Icon=fooview
+            TryExec=fooview
+            Exec=fooview %F
+            Actions=Gallery;Create;
+            MimeType=image/x-foo;
+            X-KDE-StartupNotify=true
+            X-KDE-StartupNotify[en_US]=false
+
+            [Desktop Action Gallery]
+            Name=Browse Gallery
+            Exec=fooview --gallery
+
+            [Desktop Action Create]
+            Name=Create a new Foo!
+            Icon=fooview-new
+            Exec=fooview --create-new
+            """;
+
+    public static List<String> roundTripDataProvider() {
+        return List.of(
+                """
+                        [Desktop Entry]
+                        Type=Application
+                        Name=Test Application
+                        """,
+                SPEC_EXAMPLE
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("roundTripDataProvider")
+    public void testRoundTrip(String content) throws Exception {
+        var bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        var heap = new DesktopEntryReader().read(ByteBuffer.wrap(bytes));
+        assertEquals(content, write(heap));
+
+        var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        assertEquals(content, write(new DesktopEntryReader().read(direct)));
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void testValues() {
+        var entry = new DesktopEntryReader().read(ByteBuffer.wrap("""
+                # Comment
+
+                [Desktop Entry]\r
+                Type = Link\r
+                Name=Link\r
+                Name[de]  =  Verknüpfung \r
+                URL=https://example.com\r
+                \r
+                [X-Vendor Group]
+                Name=Ignored
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(DesktopEntryType.LINK, entry.getType());
+        assertEquals(Optional.of("Link"), entry.getValue("Name"));
+        assertEquals(Optional.of("Verknüpfung"), entry.getValue("Name", "de"));
+        assertEquals(Optional.of("https://example.com"), entry.getValue("URL"));
+        assertEquals(Optional.empty(), entry.getValue("Name", "fr"));
+    }
+
+    @Test
+    public void testDuplicateKeys() throws Exception {
+        // Later values sort before the first ones, so the table would pick them if duplicates were kept
+        var entry = read(new DesktopEntryReader(), """
+                [Desktop Entry]
+                Type=Application
+                Name=Second
+                Name[de]=Zweite
+                X-Custom=second
+                X-Custom[de]=zweite
+                Name=First
+                Name[de]=Erste
+                X-Custom=first
+                X-Custom[de]=erste
+                Name[fr]=Premier
+
+                [Desktop Action New]
+                Name=Zeta
+                X-Custom=zeta
+                X-Custom=alpha
+                """);
+
+        assertEquals(Optional.of("Second"), entry.getValue("Name"));
+        assertEquals(Optional.of("Zweite"), entry.getValue("Name", "de"));
+        assertEquals(Optional.of("Premier"), entry.getValue("Name", "fr"));
+        assertEquals(Optional.of("second"), entry.getValue("X-Custom"));
+        assertEquals(Optional.of("zweite"), entry.getValue("X-Custom", "de"));
+        assertEquals("""
+                [Desktop Entry]
+                Type=Application
+                Name=Second
+                Name[de]=Zweite
+                Name[fr]=Premier
+                X-Custom=second
+                X-Custom[de]=zweite
+
+                [Desktop Action New]
+                Name=Zeta
+                X-Custom=zeta
+                """, write(entry));
+    }
+
+    @Test
+    public void testNegative() {
+        var reader = new DesktopEntryReader();
+        assertThrows(ValidationException.class, () -> read(reader, "Name=Test\n"));
+        assertThrows(ValidationException.class, () -> read(reader, "[Desktop Entry]\nName=Test\n"));
+        assertThrows(ValidationException.class, () -> read(reader, "[Desktop Entry]\nType=Application\n"));
+        assertThrows(ValidationException.class, () -> read(reader, "[Desktop Entry]\nType=Service\nName=Test\n"));
+        assertThrows(ValidationException.class, () -> read(reader, "[Desktop Entry]\nType=Application\nName\n"));
+        assertThrows(ValidationException.class,
+                () -> read(reader, "[Desktop Entry]\nType=Application\nName=A\n[Desktop Action X]\nExec=a\n"));
+    }
+
+    private static DesktopEntry read(DesktopEntryReader reader, String content) {
+        return reader.read(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String write(DesktopEntry entry) throws Exception {
+        try (var out = new ByteArrayOutputStream()) {
+            entry.write(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestDesktopEntryRegistry {
+
+    @Test
+    public void testSnapshotOperations() {
+        var random = new Random(42);
+        var expected = new HashMap<String, DesktopEntry>();
+        var entries = new ArrayList<DesktopEntry>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(new DesktopEntryBuilder(DesktopEntryType.APPLICATION).name("Application " + i).build());
+        }
+
+        var snapshot = DesktopEntrySnapshot.empty();
+        for (int i = 0; i < 20_000; i++) {
+            var id = "app" + random.nextInt(2_000) + ".desktop";
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                snapshot = snapshot.without(id);
+            } else {
+                var entry = entries.get(random.nextInt(entries.size()));
+                expected.put(id, entry);
+                snapshot = snapshot.with(id, entry);
+            }
+        }
+
+        assertEquals(expected, snapshot);
+        assertEquals(snapshot, expected);
+        assertEquals(expected.hashCode(), snapshot.hashCode());
+        assertEquals(expected.keySet(), new HashSet<>(snapshot.keySet()));
+        assertNull(snapshot.get("missing.desktop"));
+
+        var id = expected.keySet().iterator().next();
+        assertSame(snapshot, snapshot.with(id, expected.get(id)));
+        assertSame(snapshot, snapshot.without("missing.desktop"));
+        assertThrows(UnsupportedOperationException.class, () -> DesktopEntrySnapshot.empty().put(id, entries.get(0)));
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        var registry = new DesktopEntryRegistry();
+        var entry = new DesktopEntryBuilder(DesktopEntryType.APPLICATION).name("Application").build();
+
+        int threadCount = 4;
+        int perThread = 1_000;
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    registry.put("app-" + thread + "-" + i + ".desktop", entry);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        var snapshot = registry.getSnapshot();
+        assertEquals(threadCount * perThread, snapshot.size());
+        assertEquals(threadCount * perThread, snapshot.getVersion());
+
+        var replaced = registry.replace(Map.of("app-0-0.desktop", entry));
+        assertEquals(1, replaced.size());
+        assertEquals(threadCount * perThread, snapshot.size());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.panteleyev.freedesktop.entry.TestDesktopEntryLoader.writeEntry;
+
+public class TestDesktopEntryScanner {
+    @TempDir
+    private Path root;
+
+    @Test
+    public void testScan() throws Exception {
+        var user = root.resolve("user");
+        var local = root.resolve("local");
+        var system = root.resolve("system");
+
+        writeEntry(user.resolve("editor.desktop"), "User Editor");
+        writeEntry(local.resolve("editor.desktop"), "Local Editor");
+        writeEntry(local.resolve("kde/konsole.desktop"), "Local Konsole");
+        writeEntry(system.resolve("kde-konsole.desktop"), "System Konsole");
+        for (int i = 0; i < 200; i++) {
+            writeEntry(system.resolve("vendor/app" + i + ".desktop"), "Application " + i);
+        }
+
+        var scanner = new DesktopEntryScanner(List.of(user, local, root.resolve("missing"), system));
+        var sequential = scanner.scan();
+
+        assertEquals(202, sequential.size());
+        assertEquals(Optional.of("User Editor"), sequential.get("editor.desktop").getValue("Name"));
+        assertEquals(Optional.of("Local Konsole"), sequential.get("kde-konsole.desktop").getValue("Name"));
+        assertEquals(Optional.of("Application 7"), sequential.get("vendor-app7.desktop").getValue("Name"));
+
+        var pool = new ForkJoinPool(4);
+        try {
+            assertEquals(sequential, scanner.scan(pool));
+        } finally {
+            pool.shutdown();
+        }
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(sequential, scanner.scan(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
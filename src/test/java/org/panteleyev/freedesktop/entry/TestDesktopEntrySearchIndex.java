@@ -0,0 +1,107 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestDesktopEntrySearchIndex {
+    private static final Map<String, DesktopEntry> ENTRIES = Map.of(
+            "firefox.desktop", new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                    .name("Firefox")
+                    .genericName("Web Browser")
+                    .comment("Browse the World Wide Web")
+                    .keywords(List.of("Internet", "WWW", "Browser", "Web"))
+                    .build(),
+            "chromium.desktop", new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                    .name("Chromium")
+                    .genericName("Web Browser")
+                    .build(),
+            "calc.desktop", new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                    .name("Calculator")
+                    .name(new LocaleString("Taschenrechner", "de"))
+                    .comment("Perform arithmetic calculations")
+                    .build(),
+            "files.desktop", new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                    .name("Files")
+                    .name(new LocaleString("Fichiers", "fr"))
+                    .genericName("File Manager")
+                    .comment("Access and organize files")
+                    .keywords(List.of("folder", "manager", "explore"))
+                    .build(),
+            "cafe.desktop", new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                    .name("Café Menu")
+                    .build(),
+            "gimp.desktop", new DesktopEntryReader().read(new ByteArrayInputStream("""
+                    [Desktop Entry]
+                    Type=Application
+                    Name=GIMP
+                    GenericName=Image\\sand\\s3D
+                    """.getBytes(StandardCharsets.UTF_8)))
+    );
+
+    private static Stream<Arguments> testSearchArguments() {
+        return Stream.of(
+                // Words of four characters are one typo away from each other, prefix match ranks first
+                Arguments.of(Locale.ROOT, "fire", List.of("firefox.desktop", "files.desktop")),
+                Arguments.of(Locale.ROOT, "browser", List.of("chromium.desktop", "firefox.desktop")),
+                Arguments.of(Locale.ROOT, "web brow", List.of("chromium.desktop", "firefox.desktop")),
+                Arguments.of(Locale.ROOT, "world chrom", List.of()),
+                Arguments.of(Locale.ROOT, "calc", List.of("calc.desktop")),
+                Arguments.of(Locale.ROOT, "calcualtor", List.of("calc.desktop")),
+                Arguments.of(Locale.ROOT, "frefox", List.of("firefox.desktop")),
+                Arguments.of(Locale.ROOT, "cafe", List.of("cafe.desktop")),
+                Arguments.of(Locale.ROOT, "FILE", List.of("files.desktop", "firefox.desktop")),
+                Arguments.of(Locale.ROOT, "cxlc", List.of("calc.desktop")),
+                Arguments.of(Locale.ROOT, "clac", List.of("calc.desktop")),
+                Arguments.of(Locale.ROOT, "xalc", List.of("calc.desktop")),
+                Arguments.of(Locale.ROOT, "cal", List.of("calc.desktop")),
+                Arguments.of(Locale.ROOT, "cxl", List.of()),
+                // Escaped space separates words
+                Arguments.of(Locale.ROOT, "3d", List.of("gimp.desktop")),
+                Arguments.of(Locale.ROOT, "", List.of()),
+                Arguments.of(Locale.ROOT, "xyz", List.of()),
+                Arguments.of(Locale.GERMANY, "taschen", List.of("calc.desktop")),
+                Arguments.of(Locale.GERMANY, "calc", List.of("calc.desktop")),
+                Arguments.of(Locale.ROOT, "taschen", List.of()),
+                Arguments.of(Locale.FRENCH, "fich", List.of("files.desktop"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testSearchArguments")
+    public void testSearch(Locale locale, String query, List<String> expected) {
+        var index = DesktopEntrySearchIndex.of(ENTRIES, locale);
+        assertEquals(expected, index.search(query, 10));
+    }
+
+    @ParameterizedTest
+    @MethodSource("testRankingArguments")
+    public void testRanking(String query, String expectedFirst) {
+        var index = DesktopEntrySearchIndex.of(ENTRIES, Locale.ROOT);
+        assertEquals(expectedFirst, index.search(query, 1).get(0));
+    }
+
+    private static Stream<Arguments> testRankingArguments() {
+        return Stream.of(
+                // Name match beats Comment and Keywords matches
+                Arguments.of("file", "files.desktop"),
+                Arguments.of("manager", "files.desktop"),
+                // Equal scores are ordered by name
+                Arguments.of("web", "chromium.desktop"),
+                Arguments.of("chromium", "chromium.desktop")
+        );
+    }
+}
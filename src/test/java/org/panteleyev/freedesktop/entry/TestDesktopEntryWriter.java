@@ -0,0 +1,160 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDesktopEntryWriter {
+    private static final String CONTENT = """
+            [Desktop Entry]
+            Type=Application
+            Name=Café
+            Name[de]=Kaffee ☕
+            Name[zh_CN]=咖啡馆
+            Comment=Emoji 🎉 test
+            Exec=cafe
+            Actions=New;
+            X-Custom=Ünïcödé
+
+            [Desktop Action New]
+            Name=Nouveau café
+            Exec=cafe --new
+            """;
+
+    @TempDir
+    private Path root;
+
+    private static DesktopEntry entry() {
+        return new DesktopEntryReader().read(ByteBuffer.wrap(CONTENT.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testByteBuffer() {
+        var entry = entry();
+        var writer = new DesktopEntryWriter();
+        var expected = CONTENT.getBytes(StandardCharsets.UTF_8);
+
+        var buffer = ByteBuffer.allocate(1024);
+        buffer.put((byte) '#');
+        assertEquals(expected.length, writer.write(entry, buffer));
+        assertEquals(expected.length + 1, buffer.position());
+
+        var actual = new byte[expected.length];
+        buffer.flip().position(1);
+        buffer.get(actual);
+        assertArrayEquals(expected, actual);
+
+        var direct = ByteBuffer.allocateDirect(expected.length);
+        writer.write(entry, direct);
+        assertEquals(CONTENT, StandardCharsets.UTF_8.decode(direct.flip()).toString());
+
+        assertThrows(BufferOverflowException.class, () -> writer.write(entry, ByteBuffer.allocate(16)));
+    }
+
+    @Test
+    public void testChannelAndStream() throws Exception {
+        var entries = List.of(entry(),
+                new DesktopEntryBuilder(DesktopEntryType.LINK).name("Link").url("https://example.com").build());
+        // Small buffer must grow
+        var writer = new DesktopEntryWriter(8);
+
+        for (var entry : entries) {
+            var file = root.resolve("entry.desktop");
+            try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                writer.write(entry, channel);
+            }
+            var bytes = Files.readAllBytes(file);
+            assertEquals(entry, new DesktopEntryReader().read(ByteBuffer.wrap(bytes)));
+
+            var out = new ByteArrayOutputStream();
+            assertEquals(bytes.length, writer.write(entry, out));
+            assertArrayEquals(bytes, out.toByteArray());
+
+            // Legacy method produces the same output
+            var legacy = new ByteArrayOutputStream();
+            entry.write(legacy);
+            assertArrayEquals(bytes, legacy.toByteArray());
+        }
+    }
+
+    @Test
+    public void testWriteAtomically() throws Exception {
+        var entry = entry();
+        var writer = new DesktopEntryWriter();
+        var file = root.resolve("cafe.desktop");
+
+        assertTrue(writer.writeAtomically(entry, file, DesktopEntryWriter.Sync.FILE_AND_DIRECTORY, true));
+        assertEquals(CONTENT, Files.readString(file));
+        if (Files.getFileStore(file).supportsFileAttributeView("posix")) {
+            assertEquals("rw-r--r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+
+        // Identical content is not written
+        var modified = FileTime.from(Instant.parse("2024-01-01T00:00:00Z"));
+        Files.setLastModifiedTime(file, modified);
+        assertFalse(writer.writeAtomically(entry, file, DesktopEntryWriter.Sync.NONE, true));
+        assertEquals(modified, Files.getLastModifiedTime(file));
+
+        // Forced write
+        assertTrue(writer.writeAtomically(entry, file, DesktopEntryWriter.Sync.NONE, false));
+        assertTrue(Files.getLastModifiedTime(file).compareTo(modified) > 0);
+
+        // Changed content replaces file and keeps its permissions
+        if (Files.getFileStore(file).supportsFileAttributeView("posix")) {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwx------"));
+        }
+        var changed = new DesktopEntryBuilder(DesktopEntryType.LINK).name("Link").url("https://example.com").build();
+        assertTrue(writer.writeAtomically(changed, file, DesktopEntryWriter.Sync.FILE, true));
+        assertEquals(changed, new DesktopEntryReader().read(ByteBuffer.wrap(Files.readAllBytes(file))));
+        if (Files.getFileStore(file).supportsFileAttributeView("posix")) {
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+
+        // Same size but different content
+        Files.writeString(file, CONTENT.replace("Café", "Cafe!"));
+        assertTrue(writer.writeAtomically(entry, file, DesktopEntryWriter.Sync.NONE, true));
+        assertEquals(CONTENT, Files.readString(file));
+
+        entry.write(file);
+        assertEquals(CONTENT, Files.readString(file));
+
+        // No temporary files are left
+        try (var files = Files.list(root)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    public void testUtf8() {
+        var value = "aé中🎉\ud800b";
+        var buffer = ByteBuffer.allocate(32);
+        DesktopEntryWriter.putUtf8(buffer, value);
+        var actual = new byte[buffer.position()];
+        buffer.flip().get(actual);
+        assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), actual);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TestEntryTable {
+    private static final List<Entry> ENTRIES = List.of(
+            new Entry(Key.TYPE, "Application"),
+            new Entry(Key.NAME, "Name"),
+            new Entry(Key.NAME, new LocaleString("Name de", "de")),
+            new Entry(Key.NAME, new LocaleString("Name de_AT", "de_AT")),
+            new Entry(Key.NAME, new LocaleString("Name sr@latin", "sr@latin")),
+            new Entry(Key.EXEC, "app"),
+            new Entry(Key.KEYWORDS, new LocaleString("Schlüssel", "de")),
+            new Entry("X-Two", "2"),
+            new Entry("X-One", "1"),
+            new Entry("X-One", new LocaleString("eins", "de")),
+            // Custom key with the name of the specification key
+            new Entry("Comment", "comment")
+    );
+
+    @Test
+    public void testLookup() {
+        var table = new EntryTable(ENTRIES);
+
+        assertEquals("Application", table.get(Key.TYPE));
+        assertEquals("Name", table.get(Key.NAME));
+        assertEquals("Name", table.get(Key.NAME, ""));
+        assertEquals("Name de", table.get(Key.NAME, "de"));
+        assertEquals("Name de_AT", table.get(Key.NAME, "de_AT"));
+        assertEquals("Name sr@latin", table.get(Key.NAME, "sr@latin"));
+        assertNull(table.get(Key.NAME, "fr"));
+        assertNull(table.get(Key.NAME, "de_DE"));
+        assertEquals("app", table.get(Key.EXEC));
+        assertNull(table.get(Key.KEYWORDS));
+        assertEquals("Schlüssel", table.get(Key.KEYWORDS, "de"));
+        assertNull(table.get(Key.URL));
+
+        assertEquals("Name de", table.get("Name", "de"));
+        assertEquals("1", table.get("X-One", ""));
+        assertEquals("eins", table.get("X-One", "de"));
+        assertEquals("2", table.get("X-Two", ""));
+        assertNull(table.get("X-Two", "de"));
+        assertNull(table.get("X-Three", ""));
+        assertNull(table.get("X-", ""));
+        assertEquals("comment", table.get("Comment", ""));
+        assertNull(table.get(Key.COMMENT));
+    }
+
+    @Test
+    public void testOrder() {
+        var table = new EntryTable(ENTRIES);
+        var expected = ENTRIES.toArray(Entry[]::new);
+        Arrays.sort(expected, DesktopEntryWriter.ENTRY_COMPARATOR);
+        assertArrayEquals(expected, table.entries());
+
+        assertEquals(Key.TYPE, table.entries()[0].key());
+        assertEquals("X-Two", table.entries()[table.entries().length - 1].key());
+    }
+
+    @Test
+    public void testEquality() {
+        var shuffled = new ArrayList<>(ENTRIES);
+        Collections.shuffle(shuffled, new Random(42));
+        // Duplicates are removed
+        shuffled.add(new Entry(Key.EXEC, "app"));
+
+        var table = new EntryTable(ENTRIES);
+        var other = new EntryTable(shuffled);
+        assertEquals(table, other);
+        assertEquals(table.hashCode(), other.hashCode());
+        assertArrayEquals(table.entries(), other.entries());
+    }
+}
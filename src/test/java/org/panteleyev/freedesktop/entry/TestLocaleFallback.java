@@ -0,0 +1,95 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestLocaleFallback {
+    private static final String CONTENT = """
+            [Desktop Entry]
+            Type=Application
+            Name=Default
+            Name[sr]=Serbian
+            Name[sr@latin]=Serbian Latin
+            Name[sr_RS]=Serbian Serbia
+            Name[sr_RS@latin]=Serbian Serbia Latin
+            Name[de]=German
+            Name[de_AT]=Austrian
+            Comment=Comment
+            X-Custom=Custom
+            X-Custom[de]=Benutzerdefiniert
+            """;
+
+    private static Stream<Arguments> testLocalesArguments() {
+        return Stream.of(
+                Arguments.of(Locale.ROOT, List.of()),
+                Arguments.of(Locale.GERMAN, List.of("de")),
+                Arguments.of(Locale.GERMANY, List.of("de_DE", "de")),
+                Arguments.of(new Locale("ca", "ES", "VALENCIA"),
+                        List.of("ca_ES@valencia", "ca_ES", "ca@valencia", "ca")),
+                Arguments.of(Locale.forLanguageTag("sr-Latn-RS"), List.of("sr_RS@latin", "sr_RS", "sr@latin", "sr")),
+                Arguments.of(Locale.forLanguageTag("sr-Latn"), List.of("sr@latin", "sr"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testLocalesArguments")
+    public void testLocales(Locale locale, List<String> expected) {
+        assertEquals(expected, LocaleFallback.of(locale).getLocales());
+        assertSame(LocaleFallback.of(locale), LocaleFallback.of(locale));
+    }
+
+    private static Stream<Arguments> testPosixLocalesArguments() {
+        return Stream.of(
+                Arguments.of("C", List.of()),
+                Arguments.of("POSIX", List.of()),
+                Arguments.of("C.UTF-8", List.of()),
+                Arguments.of("de", List.of("de")),
+                Arguments.of("de_AT.UTF-8", List.of("de_AT", "de")),
+                Arguments.of("sr_RS.UTF-8@latin", List.of("sr_RS@latin", "sr_RS", "sr@latin", "sr")),
+                Arguments.of("sr@latin", List.of("sr@latin", "sr"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testPosixLocalesArguments")
+    public void testPosixLocales(String name, List<String> expected) {
+        assertEquals(expected, LocaleFallback.of(name).getLocales());
+    }
+
+    @Test
+    public void testLookup() {
+        var entry = new DesktopEntryReader().read(ByteBuffer.wrap(CONTENT.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Optional.of("Serbian Serbia Latin"), entry.getName(Locale.forLanguageTag("sr-Latn-RS")));
+        assertEquals(Optional.of("Serbian Serbia"), entry.getName(Locale.forLanguageTag("sr-RS")));
+        assertEquals(Optional.of("Serbian Latin"), entry.getName(Locale.forLanguageTag("sr-Latn-ME")));
+        assertEquals(Optional.of("Serbian"), entry.getName(Locale.forLanguageTag("sr-ME")));
+        assertEquals(Optional.of("Austrian"), entry.getName(Locale.forLanguageTag("de-AT")));
+        assertEquals(Optional.of("German"), entry.getName(Locale.GERMANY));
+        assertEquals(Optional.of("Default"), entry.getName(Locale.FRANCE));
+        assertEquals(Optional.of("Default"), entry.getName(Locale.ROOT));
+        assertEquals(Optional.of("Comment"), entry.getComment(Locale.GERMANY));
+        assertEquals(Optional.empty(), entry.getGenericName(Locale.GERMANY));
+
+        assertEquals(Optional.of("Benutzerdefiniert"), entry.getValue("X-Custom", Locale.GERMANY));
+        assertEquals(Optional.of("Custom"), entry.getValue("X-Custom", Locale.FRANCE));
+        assertEquals(Optional.of("German"), entry.getValue("Name", Locale.GERMANY));
+        assertEquals(Optional.empty(), entry.getValue("X-Missing", Locale.GERMANY));
+    }
+}
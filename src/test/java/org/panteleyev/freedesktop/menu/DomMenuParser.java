@@ -0,0 +1,173 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads menu files with DOM. Used as a reference implementation and a benchmark baseline for {@link MenuParser}.
+ */
+final class DomMenuParser {
+    private DomMenuParser() {
+    }
+
+    /**
+     * Parses menu file. Merge directives are not resolved.
+     *
+     * @param file menu file
+     * @return root menu definition
+     * @throws UncheckedIOException if file cannot be read or is not a valid menu file
+     */
+    static MenuDefinition parse(Path file) {
+        try {
+            var factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            // Menu files reference the DTD by URL, never fetch it
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setExpandEntityReferences(false);
+            var document = factory.newDocumentBuilder().parse(file.toFile());
+            var root = document.getDocumentElement();
+            if (!"Menu".equals(root.getTagName())) {
+                throw new IOException("Root element must be Menu: " + file);
+            }
+            return parseMenu(root, file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (SAXException | ParserConfigurationException ex) {
+            throw new UncheckedIOException(new IOException("Invalid menu file: " + file, ex));
+        }
+    }
+
+    private static MenuDefinition parseMenu(Element element, Path file) {
+        String name = null;
+        var items = new ArrayList<MenuDefinition.Item>();
+        for (var child : children(element)) {
+            switch (child.getTagName()) {
+                case "Name" -> name = text(child);
+                case "AppDir" -> items.add(new MenuDefinition.AppDir(resolve(file, text(child))));
+                case "DefaultAppDirs" -> items.add(new MenuDefinition.DefaultAppDirs());
+                case "DirectoryDir" -> items.add(new MenuDefinition.DirectoryDir(resolve(file, text(child))));
+                case "DefaultDirectoryDirs" -> items.add(new MenuDefinition.DefaultDirectoryDirs());
+                case "Directory" -> items.add(new MenuDefinition.Directory(text(child)));
+                case "Include" -> items.add(new MenuDefinition.Rule(true, new MenuRule.Or(parseRules(child))));
+                case "Exclude" -> items.add(new MenuDefinition.Rule(false, new MenuRule.Or(parseRules(child))));
+                case "OnlyUnallocated" -> items.add(new MenuDefinition.OnlyUnallocated(true));
+                case "NotOnlyUnallocated" -> items.add(new MenuDefinition.OnlyUnallocated(false));
+                case "Deleted" -> items.add(new MenuDefinition.Deleted(true));
+                case "NotDeleted" -> items.add(new MenuDefinition.Deleted(false));
+                case "MergeFile" -> items.add("parent".equals(child.getAttribute("type")) ?
+                        new MenuDefinition.MergeFile(null, file)
+                        : new MenuDefinition.MergeFile(resolve(file, text(child)), file));
+                case "MergeDir" -> items.add(new MenuDefinition.MergeDir(resolve(file, text(child))));
+                case "DefaultMergeDirs" -> items.add(new MenuDefinition.DefaultMergeDirs());
+                case "Move" -> {
+                    String oldPath = null;
+                    String newPath = null;
+                    for (var moveChild : children(child)) {
+                        switch (moveChild.getTagName()) {
+                            case "Old" -> oldPath = text(moveChild);
+                            case "New" -> newPath = text(moveChild);
+                            default -> {
+                            }
+                        }
+                    }
+                    if (oldPath != null && newPath != null) {
+                        items.add(new MenuDefinition.Move(oldPath, newPath));
+                    }
+                }
+                case "Menu" -> items.add(new MenuDefinition.Submenu(parseMenu(child, file)));
+                case "Layout" -> items.add(new MenuDefinition.Layout(false,
+                        new MenuLayout(MenuLayout.Options.UNSPECIFIED, parseLayout(child))));
+                case "DefaultLayout" -> items.add(new MenuDefinition.Layout(true,
+                        new MenuLayout(parseOptions(child), parseLayout(child))));
+                default -> {
+                    // Unsupported and legacy elements are ignored
+                }
+            }
+        }
+        return new MenuDefinition(name, items);
+    }
+
+    private static List<MenuRule> parseRules(Element element) {
+        var rules = new ArrayList<MenuRule>();
+        for (var child : children(element)) {
+            switch (child.getTagName()) {
+                case "Filename" -> rules.add(new MenuRule.Filename(text(child)));
+                case "Category" -> rules.add(new MenuRule.Category(text(child)));
+                case "All" -> rules.add(new MenuRule.All());
+                case "And" -> rules.add(new MenuRule.And(parseRules(child)));
+                case "Or" -> rules.add(new MenuRule.Or(parseRules(child)));
+                case "Not" -> rules.add(new MenuRule.Not(parseRules(child)));
+                default -> {
+                }
+            }
+        }
+        return List.copyOf(rules);
+    }
+
+    private static List<MenuLayout.Item> parseLayout(Element element) {
+        var items = new ArrayList<MenuLayout.Item>();
+        for (var child : children(element)) {
+            switch (child.getTagName()) {
+                case "Filename" -> items.add(new MenuLayout.Filename(text(child)));
+                case "Menuname" -> items.add(new MenuLayout.Menuname(text(child), parseOptions(child)));
+                case "Separator" -> items.add(new MenuLayout.Separator());
+                case "Merge" -> {
+                    var type = MenuParser.mergeType(attribute(child, "type"));
+                    if (type != null) {
+                        items.add(new MenuLayout.Merge(type));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return items;
+    }
+
+    private static MenuLayout.Options parseOptions(Element element) {
+        return new MenuLayout.Options(
+                MenuParser.parseBoolean(attribute(element, "show_empty")),
+                MenuParser.parseBoolean(attribute(element, "inline")),
+                MenuParser.parseInteger(attribute(element, "inline_limit")),
+                MenuParser.parseBoolean(attribute(element, "inline_header")),
+                MenuParser.parseBoolean(attribute(element, "inline_alias"))
+        );
+    }
+
+    private static String attribute(Element element, String name) {
+        return element.hasAttribute(name) ? element.getAttribute(name) : null;
+    }
+
+    private static List<Element> children(Element element) {
+        var result = new ArrayList<Element>();
+        for (var node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                result.add((Element) node);
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element element) {
+        return element.getTextContent().trim();
+    }
+
+    private static Path resolve(Path file, String path) {
+        var parent = file.toAbsolutePath().getParent();
+        return parent == null ? Path.of(path) : parent.resolve(path);
+    }
+}
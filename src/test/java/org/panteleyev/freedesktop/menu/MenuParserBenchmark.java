@@ -0,0 +1,97 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * Compares latency and allocation of {@link MenuParser} against {@link DomMenuParser}. Not a unit test, run
+ * manually with the test classpath.
+ */
+public class MenuParserBenchmark {
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    /**
+     * Generates menu file similar to distribution menus with merged fragments.
+     *
+     * @param menus number of submenus
+     * @return menu file content
+     */
+    static String generate(int menus) {
+        var builder = new StringBuilder("""
+                <!DOCTYPE Menu PUBLIC "-//freedesktop//DTD Menu 1.0//EN"
+                 "http://www.freedesktop.org/standards/menu-spec/menu-1.0.dtd">
+                <Menu>
+                  <Name>Applications</Name>
+                  <DefaultAppDirs/>
+                  <DefaultDirectoryDirs/>
+                  <DefaultMergeDirs/>
+                """);
+        for (int i = 0; i < menus; i++) {
+            builder.append("""
+                      <Menu>
+                        <Name>Menu%1$d</Name>
+                        <Directory>menu-%1$d.directory</Directory>
+                        <Include>
+                          <And>
+                            <Category>Category%1$d</Category>
+                            <Not><Category>Game</Category></Not>
+                          </And>
+                          <Filename>application-%1$d.desktop</Filename>
+                        </Include>
+                        <Exclude><Filename>excluded-%1$d.desktop</Filename></Exclude>
+                        <Layout><Merge type="menus"/><Separator/><Merge type="files"/></Layout>
+                      </Menu>
+                      <Move><Old>Old%1$d</Old><New>Menu%1$d</New></Move>
+                    """.formatted(i));
+        }
+        return builder.append("</Menu>\n").toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        var file = Files.createTempFile("benchmark", ".menu");
+        try {
+            Files.writeString(file, generate(args.length > 0 ? Integer.parseInt(args[0]) : 500));
+            System.out.printf("File size: %d bytes%n", Files.size(file));
+            run("DOM", file, DomMenuParser::parse);
+            run("StAX", file, MenuParser::parse);
+            run("DOM", file, DomMenuParser::parse);
+            run("StAX", file, MenuParser::parse);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void run(String name, Path file, Function<Path, MenuDefinition> parser) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            parser.apply(file);
+        }
+        var allocatedBefore = allocatedBytes();
+        var start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.apply(file);
+        }
+        var elapsed = System.nanoTime() - start;
+        var allocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("%-5s %8.1f us/op %10d bytes/op%n", name,
+                elapsed / 1000.0 / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    /**
+     * Returns number of bytes allocated by the current thread. Management API is accessed reflectively as the
+     * library module does not read it.
+     */
+    private static long allocatedBytes() throws Exception {
+        var bean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean")
+                .invoke(null);
+        var method = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+        return (long) method.invoke(bean, Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+import org.panteleyev.freedesktop.entry.DesktopEntryBuilder;
+import org.panteleyev.freedesktop.entry.DesktopEntryType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.panteleyev.freedesktop.menu.Category.DEVELOPMENT;
+import static org.panteleyev.freedesktop.menu.Category.GAME;
+import static org.panteleyev.freedesktop.menu.Category.IDE;
+import static org.panteleyev.freedesktop.menu.Category.OFFICE;
+import static org.panteleyev.freedesktop.menu.Category.UTILITY;
+
+public class TestCategoryIndex {
+    private static final Map<String, DesktopEntry> ENTRIES = Map.of(
+            "ide.desktop", entry(DEVELOPMENT, IDE),
+            "game-dev.desktop", entry(DEVELOPMENT, GAME),
+            "game.desktop", entry(GAME),
+            "office.desktop", entry(OFFICE),
+            "utility.desktop", entry(UTILITY),
+            "none.desktop", new DesktopEntryBuilder(DesktopEntryType.APPLICATION).name("None").build()
+    );
+
+    private static DesktopEntry entry(Category... categories) {
+        return new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                .name("Application")
+                .categories(List.of(categories))
+                .build();
+    }
+
+    private static Stream<Arguments> testFindArguments() {
+        return Stream.of(
+                Arguments.of(CategoryQuery.of(DEVELOPMENT), List.of("game-dev.desktop", "ide.desktop")),
+                Arguments.of(CategoryQuery.of(DEVELOPMENT).andNot(CategoryQuery.of(GAME)), List.of("ide.desktop")),
+                Arguments.of(CategoryQuery.of(GAME).or(CategoryQuery.of(OFFICE)),
+                        List.of("game-dev.desktop", "game.desktop", "office.desktop")),
+                Arguments.of(CategoryQuery.not(CategoryQuery.or(List.of(CategoryQuery.of(DEVELOPMENT),
+                                CategoryQuery.of(GAME)))),
+                        List.of("none.desktop", "office.desktop", "utility.desktop")),
+                Arguments.of(CategoryQuery.of("X-Unknown"), List.of()),
+                Arguments.of(CategoryQuery.and(List.of()), List.of()),
+                Arguments.of(CategoryQuery.ALL, List.of("game-dev.desktop", "game.desktop", "ide.desktop",
+                        "none.desktop", "office.desktop", "utility.desktop"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testFindArguments")
+    public void testFind(CategoryQuery query, List<String> expected) {
+        var index = CategoryIndex.of(ENTRIES);
+        assertEquals(expected, index.find(query));
+
+        // Index evaluation must agree with per-entry evaluation
+        var filtered = ENTRIES.keySet().stream()
+                .filter(id -> query.test(index.getCategories(id)))
+                .sorted()
+                .toList();
+        assertEquals(expected, filtered);
+    }
+
+    @Test
+    public void testMask() {
+        var mask = CategoryMask.parse("Development;IDE;X-Custom;;ConsoleOnly");
+        assertEquals(Set.of(DEVELOPMENT, IDE, Category.CONSOLE_ONLY), mask.getCategories());
+        assertEquals(Set.of("X-Custom"), mask.getOtherCategories());
+        assertTrue(mask.contains(Category.CONSOLE_ONLY));
+        assertTrue(mask.contains("X-Custom"));
+        assertFalse(mask.contains(GAME));
+        assertTrue(mask.containsAll(CategoryMask.of(DEVELOPMENT, IDE)));
+        assertFalse(mask.containsAll(CategoryMask.of(DEVELOPMENT, GAME)));
+        assertTrue(mask.intersects(CategoryMask.of(GAME, IDE)));
+        assertFalse(mask.intersects(CategoryMask.of(GAME)));
+        assertEquals(mask, CategoryMask.parse("X-Custom;ConsoleOnly;IDE;Development;"));
+        assertTrue(CategoryMask.parse("").isEmpty());
+
+        for (var category : Category.values()) {
+            var single = CategoryMask.of(category);
+            assertEquals(Set.of(category), single.getCategories());
+            assertEquals(single, CategoryMask.parse(category.toString()));
+        }
+    }
+}
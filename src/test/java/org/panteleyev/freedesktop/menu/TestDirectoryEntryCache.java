@@ -0,0 +1,91 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDirectoryEntryCache {
+    @TempDir
+    private Path root;
+
+    private Path writeDirectory(String directory, String id, String name) throws Exception {
+        var file = root.resolve(directory).resolve(id);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "[Desktop Entry]\nType=Directory\nName=" + name + "\n");
+        return file;
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        writeDirectory("user", "Games.directory", "My Games");
+        writeDirectory("system", "Games.directory", "Games");
+        writeDirectory("system", "Office.directory", "Office");
+        Files.createDirectories(root.resolve("system"));
+        Files.writeString(root.resolve("system/Invalid.directory"), "Name=Invalid\n");
+
+        var cache = new DirectoryEntryCache(List.of(root.resolve("user"), root.resolve("system")));
+
+        assertEquals("My Games", cache.find("Games.directory").orElseThrow().getValue("Name").orElseThrow());
+        assertEquals("Office", cache.find("Office.directory").orElseThrow().getValue("Name").orElseThrow());
+        assertTrue(cache.find("Invalid.directory").isEmpty());
+        assertTrue(cache.find("Missing.directory").isEmpty());
+    }
+
+    @Test
+    public void testModification() throws Exception {
+        var file = writeDirectory("directories", "Games.directory", "Games");
+        var modified = FileTime.from(Instant.parse("2024-01-01T00:00:00Z"));
+        Files.setLastModifiedTime(file, modified);
+
+        var cache = new DirectoryEntryCache(List.of(root.resolve("directories")));
+        var first = cache.load(file).orElseThrow();
+        assertSame(first, cache.load(file).orElseThrow());
+
+        // Same size and time but new content is not detected
+        Files.writeString(file, "[Desktop Entry]\nType=Directory\nName=Fames\n");
+        Files.setLastModifiedTime(file, modified);
+        assertSame(first, cache.load(file).orElseThrow());
+
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2024-01-02T00:00:00Z")));
+        var second = cache.load(file).orElseThrow();
+        assertNotSame(first, second);
+        assertEquals("Fames", second.getValue("Name").orElseThrow());
+
+        Files.delete(file);
+        assertTrue(cache.load(file).isEmpty());
+    }
+
+    @Test
+    public void testMenuLoader() throws Exception {
+        var file = writeDirectory("directories", "development.directory", "Programming");
+        var menuFile = root.resolve("applications.menu");
+        Files.writeString(menuFile, """
+                <Menu>
+                  <Name>Applications</Name>
+                  <DirectoryDir>directories</DirectoryDir>
+                  <Directory>development.directory</Directory>
+                </Menu>
+                """);
+
+        var cache = new DirectoryEntryCache(List.of());
+        var loader = new MenuLoader(new VisibilityFilter(List.of(), List.of()), cache);
+        var directory = loader.load(menuFile).getDirectory().orElseThrow();
+
+        assertSame(directory, loader.load(menuFile).getDirectory().orElseThrow());
+        assertSame(directory, cache.load(file).orElseThrow());
+    }
+}
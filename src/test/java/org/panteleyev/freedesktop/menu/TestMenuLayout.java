@@ -0,0 +1,212 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestMenuLayout {
+    private static final String LAYOUT_MENU = """
+            <Menu>
+              <Name>Applications</Name>
+              <AppDir>apps</AppDir>
+              <DefaultLayout inline="true" inline_limit="2" inline_alias="true">
+                <Merge type="all"/>
+              </DefaultLayout>
+              <Layout>
+                <Filename>terminal.desktop</Filename>
+                <Separator/>
+                <Separator/>
+                <Menuname>Office</Menuname>
+                <Menuname inline="false">Games</Menuname>
+                <Separator/>
+                <Merge type="menus"/>
+                <Separator/>
+                <Merge type="files"/>
+                <Separator/>
+              </Layout>
+              <Menu>
+                <Name>Games</Name>
+                <Include><Category>Game</Category></Include>
+              </Menu>
+              <Menu>
+                <Name>Office</Name>
+                <Include><Category>Office</Category></Include>
+              </Menu>
+              <Menu>
+                <Name>Graphics</Name>
+                <Include><Category>Graphics</Category></Include>
+              </Menu>
+              <Menu>
+                <Name>Science</Name>
+                <Include><Category>Science</Category></Include>
+              </Menu>
+              <Menu>
+                <Name>Empty</Name>
+                <Include><Category>Education</Category></Include>
+              </Menu>
+              <Include>
+                <Filename>terminal.desktop</Filename>
+                <Filename>files.desktop</Filename>
+                <Filename>browser.desktop</Filename>
+              </Include>
+            </Menu>
+            """;
+
+    @TempDir
+    private Path root;
+
+    private void writeApplication(String path, String name, String... lines) throws Exception {
+        var file = root.resolve("apps").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "[Desktop Entry]\nType=Application\nName=" + name + "\nExec=" + name + "\n"
+                + String.join("\n", lines) + "\n");
+    }
+
+    private Menu load(String content) throws Exception {
+        var menuFile = root.resolve("applications.menu");
+        Files.writeString(menuFile, content);
+        return new MenuLoader(new VisibilityFilter(List.of(), List.of())).load(menuFile);
+    }
+
+    private static List<String> describe(List<MenuItem> items) {
+        return items.stream().map(item -> {
+            if (item instanceof MenuItem.Entry entry) {
+                return entry.entry().id();
+            } else if (item instanceof MenuItem.Submenu submenu) {
+                return "menu:" + submenu.menu().getName();
+            } else if (item instanceof MenuItem.Header header) {
+                return "header:" + header.menu().getName();
+            } else if (item instanceof MenuItem.Alias alias) {
+                return "alias:" + alias.menu().getName();
+            } else {
+                return "---";
+            }
+        }).toList();
+    }
+
+    @Test
+    public void testLayout() throws Exception {
+        writeApplication("terminal.desktop", "Terminal");
+        writeApplication("files.desktop", "Files");
+        writeApplication("browser.desktop", "Browser");
+        writeApplication("chess.desktop", "Chess", "Categories=Game;");
+        writeApplication("writer.desktop", "Writer", "Categories=Office;");
+        writeApplication("sheet.desktop", "Sheet", "Categories=Office;");
+        writeApplication("paint.desktop", "Paint", "Categories=Graphics;");
+        writeApplication("atlas.desktop", "Atlas", "Categories=Science;");
+        writeApplication("chemistry.desktop", "Chemistry", "Categories=Science;");
+        writeApplication("math.desktop", "Math", "Categories=Science;");
+
+        var menu = load(LAYOUT_MENU);
+        var items = menu.getItems(Locale.ROOT);
+
+        assertEquals(List.of(
+                "terminal.desktop",
+                "---",
+                // Inlined with header, items of the submenu are sorted by its inherited default layout
+                "header:Office", "sheet.desktop", "writer.desktop",
+                // Inline disabled by Menuname
+                "menu:Games",
+                "---",
+                // Single item is aliased, Science exceeds inline limit
+                "alias:Graphics", "menu:Science",
+                "---",
+                "browser.desktop", "files.desktop"
+        ), describe(items));
+        assertEquals("paint.desktop", ((MenuItem.Entry) ((MenuItem.Alias) items.get(7)).item()).entry().id());
+
+        // Empty submenu is removed from the tree
+        assertTrue(menu.getSubmenu("Empty").isEmpty());
+        // Layout is computed once per locale
+        assertSame(items, menu.getItems(Locale.ROOT));
+    }
+
+    @Test
+    public void testDefaultLayout() throws Exception {
+        writeApplication("b.desktop", "B", "Categories=Game;");
+        writeApplication("a.desktop", "A");
+
+        var menu = load("""
+                <Menu>
+                  <Name>Applications</Name>
+                  <AppDir>apps</AppDir>
+                  <DefaultLayout show_empty="true">
+                    <Merge type="files"/>
+                    <Separator/>
+                    <Merge type="menus"/>
+                  </DefaultLayout>
+                  <Include><Filename>a.desktop</Filename></Include>
+                  <Menu>
+                    <Name>Games</Name>
+                    <Include><Category>Game</Category></Include>
+                  </Menu>
+                  <Menu>
+                    <Name>Empty</Name>
+                    <Include><Category>Education</Category></Include>
+                  </Menu>
+                </Menu>
+                """);
+
+        assertEquals(List.of("a.desktop", "---", "menu:Empty", "menu:Games"), describe(menu.getItems(Locale.ROOT)));
+        assertTrue(menu.getSubmenu("Empty").isPresent());
+        assertEquals(List.of("b.desktop"), describe(menu.getSubmenu("Games").orElseThrow().getItems(Locale.ROOT)));
+    }
+
+    @Test
+    public void testLocaleCollation() throws Exception {
+        writeApplication("zebra.desktop", "Zebra");
+        writeApplication("apple.desktop", "apple");
+        writeApplication("apfel.desktop", "Apple", "Name[de]=Äpfel");
+        writeApplication("banana.desktop", "Banana", "Name[de]=Banane");
+
+        var menu = load("""
+                <Menu>
+                  <Name>Applications</Name>
+                  <AppDir>apps</AppDir>
+                  <Include><All/></Include>
+                </Menu>
+                """);
+
+        assertEquals(List.of("apple.desktop", "apfel.desktop", "banana.desktop", "zebra.desktop"),
+                describe(menu.getItems(Locale.ENGLISH)));
+        // Localized names: Äpfel, apple, Banane, Zebra
+        assertEquals(List.of("apfel.desktop", "apple.desktop", "banana.desktop", "zebra.desktop"),
+                describe(menu.getItems(Locale.GERMANY)));
+        assertEquals(List.of("apple.desktop", "apfel.desktop", "banana.desktop", "zebra.desktop"),
+                describe(menu.getEntries().stream().map(entry -> (MenuItem) new MenuItem.Entry(entry)).toList()));
+    }
+
+    @Test
+    public void testModelLayout() throws Exception {
+        var menuFile = root.resolve("applications.menu");
+        Files.writeString(menuFile, """
+                <Menu>
+                  <Name>Applications</Name>
+                  <Layout>
+                    <Menuname show_empty="true">Games</Menuname>
+                    <Merge type="all"/>
+                  </Layout>
+                  <Menu>
+                    <Name>Games</Name>
+                    <Include><Category>Game</Category></Include>
+                  </Menu>
+                </Menu>
+                """);
+        var model = new MenuLoader(new VisibilityFilter(List.of(), List.of())).loadModel(menuFile, Map.of());
+
+        assertEquals(List.of("menu:Games"), describe(model.getMenu().getItems(Locale.ROOT)));
+    }
+}
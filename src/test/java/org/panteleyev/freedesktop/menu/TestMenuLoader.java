@@ -0,0 +1,135 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestMenuLoader {
+    private static final String DOCTYPE = """
+            <!DOCTYPE Menu PUBLIC "-//freedesktop//DTD Menu 1.0//EN"
+             "http://www.freedesktop.org/standards/menu-spec/menu-1.0.dtd">
+            """;
+
+    static final String MAIN_MENU = DOCTYPE + """
+            <Menu>
+              <Name>Applications</Name>
+              <AppDir>apps</AppDir>
+              <DirectoryDir>directories</DirectoryDir>
+              <Menu>
+                <Name>Development</Name>
+                <Directory>development.directory</Directory>
+                <Include>
+                  <And>
+                    <Category>Development</Category>
+                    <Not><Category>Game</Category></Not>
+                  </And>
+                </Include>
+              </Menu>
+              <Menu>
+                <Name>Games</Name>
+                <Include><Category>Game</Category></Include>
+                <Exclude><Filename>excluded-game.desktop</Filename></Exclude>
+              </Menu>
+              <Menu>
+                <Name>Other</Name>
+                <OnlyUnallocated/>
+                <Include><All/></Include>
+              </Menu>
+              <Menu>
+                <Name>Removed</Name>
+                <Include><All/></Include>
+                <Deleted/>
+              </Menu>
+              <Menu>
+                <Name>Empty</Name>
+                <Include><Category>Office</Category></Include>
+              </Menu>
+              <MergeFile>merged/extra.menu</MergeFile>
+              <Move>
+                <Old>Tools</Old>
+                <New>Development/Tools</New>
+              </Move>
+            </Menu>
+            """;
+
+    static final String EXTRA_MENU = DOCTYPE + """
+            <Menu>
+              <Name>Ignored</Name>
+              <Menu>
+                <Name>Games</Name>
+                <Include><Filename>solitaire.desktop</Filename></Include>
+              </Menu>
+              <Menu>
+                <Name>Tools</Name>
+                <Include><Category>Utility</Category></Include>
+              </Menu>
+              <MergeFile>../applications.menu</MergeFile>
+            </Menu>
+            """;
+
+    @TempDir
+    private Path root;
+
+    private void writeApplication(String path, String name, String... lines) throws Exception {
+        var file = root.resolve("apps").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "[Desktop Entry]\nType=Application\nName=" + name + "\nExec=" + name + "\n"
+                + String.join("\n", lines) + "\n");
+    }
+
+    private static List<String> ids(Menu menu) {
+        return menu.getEntries().stream().map(MenuEntry::id).toList();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        writeApplication("ide.desktop", "IDE", "Categories=Development;IDE;");
+        writeApplication("sub/editor.desktop", "Editor", "Categories=Development;TextEditor;");
+        writeApplication("game-dev.desktop", "Game Maker", "Categories=Development;Game;");
+        writeApplication("chess.desktop", "Chess", "Categories=Game;BoardGame;");
+        writeApplication("excluded-game.desktop", "Excluded", "Categories=Game;");
+        writeApplication("solitaire.desktop", "Solitaire", "Categories=X-Card;");
+        writeApplication("calc.desktop", "Calculator", "Categories=Utility;");
+        writeApplication("misc.desktop", "Misc");
+        writeApplication("no-display.desktop", "No Display", "Categories=Development;", "NoDisplay=true");
+
+        Files.createDirectories(root.resolve("directories"));
+        Files.writeString(root.resolve("directories/development.directory"),
+                "[Desktop Entry]\nType=Directory\nName=Programming\n");
+
+        var menuFile = root.resolve("applications.menu");
+        Files.writeString(menuFile, MAIN_MENU);
+        Files.createDirectories(root.resolve("merged"));
+        Files.writeString(root.resolve("merged/extra.menu"), EXTRA_MENU);
+
+        var menu = new MenuLoader(new VisibilityFilter(List.of(), List.of())).load(menuFile);
+
+        assertEquals("Applications", menu.getName());
+        assertTrue(menu.getEntries().isEmpty());
+        // Sorted by display name: Games, Other, Programming
+        assertEquals(List.of("Games", "Other", "Development"),
+                menu.getSubmenus().stream().map(Menu::getName).toList());
+
+        var development = menu.getSubmenu("Development").orElseThrow();
+        assertEquals("Programming", development.getDirectory().flatMap(d -> d.getValue("Name")).orElseThrow());
+        assertEquals(List.of("sub-editor.desktop", "ide.desktop"), ids(development));
+        assertEquals(List.of("calc.desktop"), ids(menu.getSubmenu("Development/Tools").orElseThrow()));
+        assertTrue(menu.getSubmenu("Tools").isEmpty());
+
+        assertEquals(List.of("chess.desktop", "game-dev.desktop", "solitaire.desktop"),
+                ids(menu.getSubmenu("Games").orElseThrow()));
+        assertEquals(List.of("excluded-game.desktop", "misc.desktop"), ids(menu.getSubmenu("Other").orElseThrow()));
+        assertTrue(menu.getSubmenu("Removed").isEmpty());
+        assertTrue(menu.getSubmenu("Empty").isEmpty());
+    }
+}
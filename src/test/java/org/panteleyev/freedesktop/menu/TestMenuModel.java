@@ -0,0 +1,141 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+import org.panteleyev.freedesktop.entry.DesktopEntryBuilder;
+import org.panteleyev.freedesktop.entry.DesktopEntryLoader;
+import org.panteleyev.freedesktop.entry.DesktopEntryType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.panteleyev.freedesktop.menu.MenuChange.Type.ENTRY_ADDED;
+import static org.panteleyev.freedesktop.menu.MenuChange.Type.ENTRY_CHANGED;
+import static org.panteleyev.freedesktop.menu.MenuChange.Type.ENTRY_REMOVED;
+import static org.panteleyev.freedesktop.menu.MenuChange.Type.MENU_ADDED;
+import static org.panteleyev.freedesktop.menu.MenuChange.Type.MENU_REMOVED;
+
+public class TestMenuModel {
+    private static final VisibilityFilter FILTER = new VisibilityFilter(List.of(), List.of());
+
+    @TempDir
+    private Path root;
+
+    private static DesktopEntry application(String name, Category... categories) {
+        return new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                .name(name)
+                .exec(name)
+                .categories(List.of(categories))
+                .build();
+    }
+
+    private static String describe(Menu menu) {
+        var builder = new StringBuilder(menu.getName()).append(menu.getEntries().stream().map(MenuEntry::id).toList());
+        for (var submenu : menu.getSubmenus()) {
+            builder.append('{').append(describe(submenu)).append('}');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testIncrementalUpdates() throws Exception {
+        var apps = Files.createDirectories(root.resolve("apps"));
+        application("IDE", Category.DEVELOPMENT).write(apps.resolve("ide.desktop"));
+        application("Chess", Category.GAME).write(apps.resolve("chess.desktop"));
+        application("Calculator", Category.UTILITY).write(apps.resolve("calc.desktop"));
+        application("Misc").write(apps.resolve("misc.desktop"));
+        Files.createDirectories(root.resolve("merged"));
+        Files.writeString(root.resolve("merged/extra.menu"), TestMenuLoader.EXTRA_MENU);
+        var menuFile = Files.writeString(root.resolve("applications.menu"), TestMenuLoader.MAIN_MENU);
+
+        var loader = new MenuLoader(FILTER);
+        var catalog = new HashMap<String, DesktopEntry>(new DesktopEntryLoader().loadDirectory(apps));
+        var model = loader.loadModel(menuFile, catalog);
+        assertEquals(describe(loader.load(menuFile)), describe(model.getMenu()));
+        var games = model.getMenu().getSubmenu("Games").orElseThrow();
+
+        // New entry makes empty menu visible
+        var office = application("Office", Category.OFFICE);
+        assertEquals(List.of(
+                new MenuChange(MENU_ADDED, "Empty", null),
+                new MenuChange(ENTRY_ADDED, "Empty", "office.desktop")
+        ), model.put("office.desktop", office));
+        assertEquals(List.of("Empty"), model.getMenus("office.desktop"));
+        assertSame(games, model.getMenu().getSubmenu("Games").orElseThrow());
+
+        // Entry moves between menus, source menu disappears
+        assertEquals(List.of(
+                new MenuChange(ENTRY_REMOVED, "Development/Tools", "calc.desktop"),
+                new MenuChange(MENU_REMOVED, "Development/Tools", null),
+                new MenuChange(ENTRY_ADDED, "Development", "calc.desktop")
+        ), model.put("calc.desktop", application("Calculator", Category.DEVELOPMENT)));
+
+        // Allocated entry leaves the unallocated menu
+        assertEquals(List.of(
+                new MenuChange(ENTRY_REMOVED, "Other", "misc.desktop"),
+                new MenuChange(MENU_REMOVED, "Other", null),
+                new MenuChange(ENTRY_ADDED, "Games", "misc.desktop")
+        ), model.put("misc.desktop", application("Misc", Category.GAME)));
+
+        assertEquals(List.of(
+                new MenuChange(ENTRY_CHANGED, "Games", "chess.desktop")
+        ), model.put("chess.desktop", application("Chess 2", Category.GAME)));
+        assertEquals(List.of(), model.put("chess.desktop", application("Chess 2", Category.GAME)));
+
+        assertEquals(List.of(
+                new MenuChange(ENTRY_REMOVED, "Empty", "office.desktop"),
+                new MenuChange(MENU_REMOVED, "Empty", null)
+        ), model.remove("office.desktop"));
+
+        // Catalog replacement
+        catalog.put("calc.desktop", application("Calculator", Category.DEVELOPMENT));
+        catalog.put("misc.desktop", application("Misc", Category.GAME));
+        catalog.put("chess.desktop", application("Chess 2", Category.GAME));
+        catalog.remove("ide.desktop");
+        assertEquals(List.of(
+                new MenuChange(ENTRY_REMOVED, "Development", "ide.desktop")
+        ), model.update(catalog));
+
+        assertEquals(describe(loader.loadModel(menuFile, catalog).getMenu()), describe(model.getMenu()));
+    }
+
+    @Test
+    public void testShowEmpty() throws Exception {
+        var menuFile = Files.writeString(root.resolve("applications.menu"), """
+                <Menu>
+                  <Name>Applications</Name>
+                  <Menu>
+                    <Name>Games</Name>
+                    <Layout>
+                      <Menuname show_empty="true">Board</Menuname>
+                      <Merge type="all"/>
+                    </Layout>
+                    <Menu>
+                      <Name>Board</Name>
+                      <Include><Category>BoardGame</Category></Include>
+                    </Menu>
+                  </Menu>
+                </Menu>
+                """);
+        var model = new MenuLoader(FILTER).loadModel(menuFile, new HashMap<>());
+        assertEquals("Applications[]{Games[]{Board[]}}", describe(model.getMenu()));
+
+        // Menus kept by layout are neither added nor removed with their entries
+        assertEquals(List.of(
+                new MenuChange(ENTRY_ADDED, "Games/Board", "chess.desktop")
+        ), model.put("chess.desktop", application("Chess", Category.GAME, Category.BOARD_GAME)));
+        assertEquals(List.of(
+                new MenuChange(ENTRY_REMOVED, "Games/Board", "chess.desktop")
+        ), model.remove("chess.desktop"));
+        assertEquals("Applications[]{Games[]{Board[]}}", describe(model.getMenu()));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestMenuParser {
+    @TempDir
+    private Path root;
+
+    private static Stream<Arguments> testSameAsDomArguments() {
+        return Stream.of(
+                Arguments.of(TestMenuLoader.MAIN_MENU),
+                Arguments.of(TestMenuLoader.EXTRA_MENU),
+                Arguments.of(MenuParserBenchmark.generate(20)),
+                Arguments.of("""
+                        <?xml version="1.0"?>
+                        <Menu>
+                          <!-- comment -->
+                          <Name>  Spaces  </Name>
+                          <MergeFile type="parent">ignored</MergeFile>
+                          <MergeDir>/absolute/dir</MergeDir>
+                          <LegacyDir prefix="kde-">/usr/share/applnk</LegacyDir>
+                          <Include><Category><![CDATA[Development]]></Category></Include>
+                          <NotDeleted/><NotOnlyUnallocated/>
+                        </Menu>
+                        """)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testSameAsDomArguments")
+    public void testSameAsDom(String content) throws Exception {
+        var file = root.resolve("test.menu");
+        Files.writeString(file, content);
+        assertEquals(DomMenuParser.parse(file), MenuParser.parse(file));
+    }
+
+    private static Stream<Arguments> testInvalidArguments() {
+        return Stream.of(
+                Arguments.of("<Menu><Name>Unclosed</Name>"),
+                Arguments.of("<NotMenu/>"),
+                Arguments.of("")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testInvalidArguments")
+    public void testInvalid(String content) throws Exception {
+        var file = root.resolve("test.menu");
+        Files.writeString(file, content);
+        assertThrows(UncheckedIOException.class, () -> MenuParser.parse(file));
+        assertThrows(UncheckedIOException.class, () -> MenuParser.parse(root.resolve("missing.menu")));
+    }
+}
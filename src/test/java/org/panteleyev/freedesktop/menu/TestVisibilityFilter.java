@@ -0,0 +1,101 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.menu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+import org.panteleyev.freedesktop.entry.DesktopEntryBuilder;
+import org.panteleyev.freedesktop.entry.DesktopEntryReader;
+import org.panteleyev.freedesktop.entry.DesktopEntryType;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.panteleyev.freedesktop.menu.OnlyShowInEnvironment.GNOME;
+import static org.panteleyev.freedesktop.menu.OnlyShowInEnvironment.KDE;
+import static org.panteleyev.freedesktop.menu.OnlyShowInEnvironment.XFCE;
+
+public class TestVisibilityFilter {
+    @TempDir
+    private Path bin;
+
+    private static DesktopEntryBuilder builder() {
+        return new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                .name("Application")
+                .categories(List.of(Category.UTILITY));
+    }
+
+    @Test
+    public void testVisibility() throws Exception {
+        var executable = Files.createFile(bin.resolve("tool"),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxr-xr-x")));
+        Files.createFile(bin.resolve("data"));
+
+        var entries = new LinkedHashMap<String, DesktopEntry>();
+        entries.put("plain.desktop", builder().build());
+        entries.put("hidden.desktop", builder().hidden(true).build());
+        entries.put("no-display.desktop", builder().noDisplay(true).build());
+        entries.put("only-gnome.desktop", builder().onlyShowIn(Set.of(GNOME)).build());
+        entries.put("only-kde.desktop", builder().onlyShowIn(Set.of(KDE)).build());
+        entries.put("not-gnome.desktop", builder().notShowIn(Set.of(GNOME, XFCE)).build());
+        entries.put("try-exec.desktop", builder().tryExec("tool").build());
+        entries.put("try-exec-absolute.desktop", builder().tryExec(executable.toString()).build());
+        entries.put("try-exec-missing.desktop", builder().tryExec("missing").build());
+        entries.put("try-exec-not-executable.desktop", builder().tryExec("data").build());
+
+        var gnome = new VisibilityFilter(List.of("ubuntu", "GNOME"), List.of(bin));
+        var index = CategoryIndex.of(entries, gnome);
+        assertEquals(List.of("only-gnome.desktop", "plain.desktop", "try-exec-absolute.desktop", "try-exec.desktop"),
+                index.find(CategoryQuery.of(Category.UTILITY)));
+        for (var entry : entries.entrySet()) {
+            assertEquals(index.isVisible(entry.getKey()), gnome.isVisible(entry.getValue()), entry.getKey());
+        }
+
+        var kde = index.withFilter(new VisibilityFilter(List.of("KDE"), List.of()));
+        assertEquals(List.of("not-gnome.desktop", "only-kde.desktop", "plain.desktop", "try-exec-absolute.desktop"),
+                kde.find(CategoryQuery.ALL));
+        assertEquals(4, kde.count(Category.UTILITY));
+
+        var all = index.withFilter(VisibilityFilter.ALL);
+        assertEquals(entries.size(), all.find(CategoryQuery.ALL).size());
+        assertTrue(all.isVisible("hidden.desktop"));
+        assertFalse(all.isVisible("unknown.desktop"));
+    }
+
+    @Test
+    public void testBooleanValues() {
+        // Only exact lower case values are booleans, same as in DesktopEntry
+        var entry = new DesktopEntryReader().read(new ByteArrayInputStream("""
+                [Desktop Entry]
+                Type=Application
+                Name=Application
+                Hidden=TRUE
+                NoDisplay=True
+                """.getBytes(StandardCharsets.UTF_8)));
+        assertFalse(entry.isHidden());
+        assertTrue(new VisibilityFilter(List.of(), List.of()).isVisible(entry));
+    }
+
+    @Test
+    public void testEnvironmentMask() {
+        var session = EnvironmentMask.of(List.of("ubuntu", "GNOME"));
+        assertEquals(Set.of(GNOME), session.getEnvironments());
+        assertEquals(Set.of("ubuntu"), session.getOtherEnvironments());
+        assertTrue(session.intersects(EnvironmentMask.parse("KDE;GNOME;")));
+        assertTrue(session.intersects(EnvironmentMask.parse("ubuntu;")));
+        assertFalse(session.intersects(EnvironmentMask.parse("KDE;XFCE;")));
+        assertTrue(EnvironmentMask.parse(";").isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.mime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestMimeAppsResolver {
+    @TempDir
+    private Path root;
+
+    private static final MimeTypeIndex INDEX = MimeTypeIndex.read(new ByteArrayInputStream("""
+            [MIME Cache]
+            image/png=viewer.desktop;gimp.desktop;
+            image/*=gimp.desktop;
+            text/plain=editor.desktop;vim.desktop;
+            """.getBytes(StandardCharsets.UTF_8)));
+
+    @Test
+    public void testResolution() throws Exception {
+        var desktopList = root.resolve("gnome-mimeapps.list");
+        var userList = root.resolve("user-mimeapps.list");
+        var systemList = root.resolve("system-mimeapps.list");
+
+        Files.writeString(desktopList, """
+                [Default Applications]
+                text/plain=missing.desktop;vim.desktop;
+                """);
+        Files.writeString(userList, """
+                [Default Applications]
+                image/png=gimp.desktop;
+                text/plain=editor.desktop;
+
+                [Added Associations]
+                image/png=krita.desktop;
+
+                [Removed Associations]
+                image/png=viewer.desktop;
+                """);
+        Files.writeString(systemList, """
+                [Default Applications]
+                image/png=viewer.desktop;
+                application/pdf=reader.desktop;
+                """);
+
+        var installed = Set.of("viewer.desktop", "gimp.desktop", "editor.desktop", "vim.desktop", "krita.desktop");
+        var resolver = new MimeAppsResolver(List.of(desktopList, userList, root.resolve("none.list"), systemList),
+                INDEX, installed::contains, Duration.ZERO);
+
+        assertEquals(Optional.of("vim.desktop"), resolver.getDefaultApplication("text/plain"));
+        assertEquals(List.of("vim.desktop", "editor.desktop"), resolver.getApplications("text/plain"));
+
+        assertEquals(Optional.of("gimp.desktop"), resolver.getDefaultApplication("image/png"));
+        assertEquals(List.of("gimp.desktop", "krita.desktop"), resolver.getApplications("image/png"));
+
+        assertEquals(Optional.of("gimp.desktop"), resolver.getDefaultApplication("image/gif"));
+        assertEquals(Optional.empty(), resolver.getDefaultApplication("application/pdf"));
+
+        // Changed file must be picked up
+        Files.writeString(desktopList, """
+                [Default Applications]
+                text/plain=editor.desktop;
+                """);
+        assertEquals(Optional.of("editor.desktop"), resolver.getDefaultApplication("text/plain"));
+    }
+
+    @Test
+    public void testMimeAppsFiles() {
+        var files = MimeAppsResolver.getMimeAppsFiles(List.of("KDE"));
+        assertEquals("kde-mimeapps.list", files.get(0).getFileName().toString());
+        assertEquals("mimeapps.list", files.get(1).getFileName().toString());
+        assertEquals(files.get(0).getParent(), files.get(1).getParent());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ Copyright © 2024 Petr Panteleyev <petr@panteleyev.org>
+ SPDX-License-Identifier: BSD-2-Clause
+ */
+package org.panteleyev.freedesktop.mime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.panteleyev.freedesktop.entry.DesktopEntry;
+import org.panteleyev.freedesktop.entry.DesktopEntryBuilder;
+import org.panteleyev.freedesktop.entry.DesktopEntryType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestMimeTypeIndex {
+    @TempDir
+    private Path root;
+
+    private static DesktopEntry application(String name, List<String> mimeTypes) {
+        return new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                .name(name)
+                .mimeType(mimeTypes)
+                .build();
+    }
+
+    @Test
+    public void testLookup() {
+        var index = MimeTypeIndex.of(Map.of(
+                "viewer.desktop", application("Viewer", List.of("image/png", "image/jpeg")),
+                "gimp.desktop", application("GIMP", List.of("image/*")),
+                "editor.desktop", application("Editor", List.of("text/plain")),
+                "hidden.desktop", new DesktopEntryBuilder(DesktopEntryType.APPLICATION)
+                        .name("Hidden")
+                        .hidden(true)
+                        .mimeType(List.of("image/png"))
+                        .build()
+        )).withAliases(Map.of("image/x-png", "image/png"));
+
+        assertEquals(List.of("viewer.desktop", "gimp.desktop"), index.getApplications("image/png"));
+        assertEquals(List.of("viewer.desktop", "gimp.desktop"), index.getApplications("IMAGE/X-PNG"));
+        assertEquals(List.of("gimp.desktop"), index.getApplications("image/gif"));
+        assertEquals(List.of("editor.desktop"), index.getApplications("text/plain"));
+        assertEquals(List.of(), index.getApplications("application/pdf"));
+        assertEquals(List.of("viewer.desktop"), index.getRegisteredApplications("image/png"));
+    }
+
+    @Test
+    public void testReadWrite() {
+        var content = """
+                [MIME Cache]
+                image/jpeg=viewer.desktop;
+                image/png=viewer.desktop;gimp.desktop;
+                text/plain=editor.desktop;
+                """;
+        var index = MimeTypeIndex.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of("viewer.desktop", "gimp.desktop"), index.getApplications("image/png"));
+
+        var out = new ByteArrayOutputStream();
+        index.write(out);
+        assertEquals(content, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        var user = root.resolve("user");
+        var system = root.resolve("system");
+        Files.createDirectories(user);
+        Files.createDirectories(system);
+        Files.writeString(user.resolve(MimeTypeIndex.MIME_INFO_CACHE), "[MIME Cache]\ntext/plain=mine.desktop;\n");
+        Files.writeString(system.resolve(MimeTypeIndex.MIME_INFO_CACHE),
+                "[MIME Cache]\ntext/plain=editor.desktop;mine.desktop;\ntext/html=browser.desktop;\n");
+
+        var index = MimeTypeIndex.load(List.of(user, root.resolve("missing"), system));
+        assertEquals(List.of("mine.desktop", "editor.desktop"), index.getApplications("text/plain"));
+        assertEquals(List.of("browser.desktop"), index.getApplications("text/html"));
+    }
+
+    @Test
+    public void testLoadShadowed() throws Exception {
+        var user = root.resolve("user");
+        var system = root.resolve("system");
+        Files.createDirectories(user.resolve("vendor"));
+        Files.createDirectories(system);
+        // Overrides without MIME types are not listed in the user cache
+        Files.writeString(user.resolve("editor.desktop"), "[Desktop Entry]\nType=Application\nName=Editor\n");
+        Files.writeString(user.resolve("vendor").resolve("viewer.desktop"),
+                "[Desktop Entry]\nType=Application\nName=Viewer\nHidden=true\n");
+        Files.writeString(system.resolve(MimeTypeIndex.MIME_INFO_CACHE),
+                "[MIME Cache]\ntext/plain=editor.desktop;vendor-viewer.desktop;other.desktop;\n");
+
+        var index = MimeTypeIndex.load(List.of(user, system));
+        assertEquals(List.of("other.desktop"), index.getApplications("text/plain"));
+    }
+
+    @Test
+    public void testMerge() {
+        var user = MimeTypeIndex.read(new ByteArrayInputStream(
+                "[MIME Cache]\ntext/plain=mine.desktop;\n".getBytes(StandardCharsets.UTF_8)));
+        var system = MimeTypeIndex.read(new ByteArrayInputStream(
+                "[MIME Cache]\ntext/plain=editor.desktop;\ntext/html=mine.desktop;hidden.desktop;\n"
+                        .getBytes(StandardCharsets.UTF_8)));
+
+        var merged = user.merge(system);
+        assertEquals(List.of("mine.desktop", "editor.desktop"), merged.getApplications("text/plain"));
+        assertEquals(List.of("hidden.desktop"), merged.getApplications("text/html"));
+
+        merged = user.merge(system, Set.of("hidden.desktop"));
+        assertEquals(List.of(), merged.getApplications("text/html"));
+
+        // Aliases of an index without applications are kept
+        var aliases = MimeTypeIndex.of(Map.of()).withAliases(Map.of("text/x-plain", "text/plain"));
+        assertEquals(List.of("mine.desktop"), user.merge(aliases).getApplications("text/x-plain"));
+    }
+
+    @Test
+    public void testReadAliases() throws Exception {
+        var file = root.resolve("aliases");
+        Files.writeString(file, "application/x-pdf application/pdf\nimage/x-png image/png\n");
+        assertEquals(Map.of("application/x-pdf", "application/pdf", "image/x-png", "image/png"),
+                MimeTypeIndex.readAliases(file));
+    }
+}